@@ -0,0 +1,300 @@
+package com.buddy.agent.cache;
+
+import com.buddy.agent.openai.ChatMessage;
+import com.buddy.agent.state.SessionStateStore;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Opt-in cache of complete assistant answers. Answers are grouped by a fingerprint of everything the
+// model saw besides the new prompt (routed model, system prompt, tool catalog version, prior messages), then
+// looked up by normalized prompt; with a similarity threshold below 1, the closest prompt in the same
+// group also counts. Hits are replayed token by token. Lookups are counted as
+// agent.response.cache.lookups{result=hit|similar|miss|bypass}. The bypass flag belongs to the user who
+// set it, so nobody can switch the cache off or back on for another user's session. A shared flag store
+// is read and written off the event loop, and a flag that cannot be read counts as unset.
+@Component
+public class ResponseCache {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ResponseCache.class);
+    
+    private static final int VECTOR_DIMENSIONS = 256;
+    private static final String BYPASS_FLAG = "response-cache-bypass";
+    
+    private final boolean enabled;
+    private final long ttlNanos;
+    private final int entriesPerContext;
+    private final double similarityThreshold;
+    private final Duration replayInterval;
+    
+    private final Cache<String, ContextBucket> buckets;
+    private final SessionStateStore sessionState;
+    private final Counter hits;
+    private final Counter similarHits;
+    private final Counter misses;
+    private final Counter bypasses;
+    
+    public ResponseCache(@Value("${agent.responseCache.enabled:false}") boolean enabled,
+                         @Value("${agent.responseCache.ttl:PT1H}") Duration ttl,
+                         @Value("${agent.responseCache.maxContexts:10000}") long maxContexts,
+                         @Value("${agent.responseCache.entriesPerContext:256}") int entriesPerContext,
+                         @Value("${agent.responseCache.similarityThreshold:1.0}") double similarityThreshold,
+                         @Value("${agent.responseCache.replayInterval:PT0S}") Duration replayInterval,
+                         SessionStateStore sessionState,
+                         MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.ttlNanos = ttl.toNanos();
+        this.entriesPerContext = entriesPerContext;
+        this.similarityThreshold = similarityThreshold;
+        this.replayInterval = replayInterval;
+        this.buckets = Caffeine.newBuilder()
+            .maximumSize(maxContexts)
+            .expireAfterAccess(ttl)
+            .recordStats()
+            .build();
+        this.sessionState = sessionState;
+        
+        CaffeineCacheMetrics.monitor(meterRegistry, buckets, "agent.response");
+        this.hits = lookups(meterRegistry, "hit");
+        this.similarHits = lookups(meterRegistry, "similar");
+        this.misses = lookups(meterRegistry, "miss");
+        this.bypasses = lookups(meterRegistry, "bypass");
+    }
+    
+    // Cache key for a conversation whose last message is the new user prompt and that the given model
+    // will answer, or empty if this turn must not use the cache
+    public Mono<Key> keyFor(String username, String sessionId, String model, List<ChatMessage> conversation,
+                            String toolsVersion) {
+        if (!enabled) {
+            return Mono.empty();
+        }
+        return isBypassed(username, sessionId).flatMap(bypassed -> {
+            if (bypassed) {
+                bypasses.increment();
+                return Mono.empty();
+            }
+            return Mono.just(key(model, conversation, toolsVersion));
+        });
+    }
+    
+    private Key key(String model, List<ChatMessage> conversation, String toolsVersion) {
+        MessageDigest digest = sha256();
+        update(digest, model);
+        update(digest, toolsVersion);
+        for (int i = 0; i < conversation.size() - 1; i++) {
+            update(digest, conversation.get(i).getRole());
+            update(digest, conversation.get(i).getContent());
+        }
+        String prompt = normalize(conversation.get(conversation.size() - 1).getContent());
+        return new Key(HexFormat.of().formatHex(digest.digest()), prompt);
+    }
+    
+    public List<String> get(Key key) {
+        ContextBucket bucket = buckets.getIfPresent(key.context);
+        Entry entry = bucket == null ? null : bucket.find(key, this);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        return entry.tokens;
+    }
+    
+    public void put(Key key, List<String> tokens) {
+        if (tokens.isEmpty()) {
+            return;
+        }
+        buckets.get(key.context, context -> new ContextBucket()).put(key, List.copyOf(tokens), entriesPerContext);
+    }
+    
+    // Replays the answer in its original tokens, spaced by replayInterval (zero sends them at once)
+    public Flux<String> replay(List<String> tokens) {
+        Flux<String> flux = Flux.fromIterable(tokens);
+        return replayInterval.isZero() ? flux : flux.delayElements(replayInterval);
+    }
+    
+    public Mono<Void> setBypass(String username, String sessionId, boolean bypass) {
+        Mono<Void> write = Mono.fromRunnable(() -> sessionState.set(sessionId, bypassFlag(username), bypass));
+        return sessionState.isBlocking() ? write.subscribeOn(Schedulers.boundedElastic()) : write;
+    }
+    
+    private Mono<Boolean> isBypassed(String username, String sessionId) {
+        Mono<Boolean> flag = Mono.fromCallable(() -> sessionState.isSet(sessionId, bypassFlag(username)));
+        if (sessionState.isBlocking()) {
+            flag = flag.subscribeOn(Schedulers.boundedElastic());
+        }
+        return flag.onErrorResume(error -> {
+            // A store outage must not fail the turn: fall back to the cache as if no bypass was set
+            logger.warn("Session state store unavailable, ignoring cache bypass for session {}: {}",
+                sessionId, error.getMessage());
+            return Mono.just(false);
+        });
+    }
+    
+    // Flags may not contain '/', which usernames can
+    private static String bypassFlag(String username) {
+        return BYPASS_FLAG + ":" + URLEncoder.encode(username, StandardCharsets.UTF_8);
+    }
+    
+    // Case, whitespace and trailing punctuation do not change the question
+    static String normalize(String prompt) {
+        String collapsed = prompt.toLowerCase(Locale.ROOT).strip().replaceAll("\\s+", " ");
+        int end = collapsed.length();
+        while (end > 0 && ".?!".indexOf(collapsed.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        return collapsed.substring(0, end);
+    }
+    
+    // Hashed bag of words and word bigrams, L2-normalized. Cheap, local stand-in for a sentence embedding.
+    static float[] vectorize(String normalized) {
+        float[] vector = new float[VECTOR_DIMENSIONS];
+        String[] words = normalized.split("[^\\p{L}\\p{N}]+");
+        String previous = null;
+        for (String word : words) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            addFeature(vector, word);
+            if (previous != null) {
+                addFeature(vector, previous + " " + word);
+            }
+            previous = word;
+        }
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        if (norm > 0) {
+            float scale = (float) (1 / Math.sqrt(norm));
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] *= scale;
+            }
+        }
+        return vector;
+    }
+    
+    private static void addFeature(float[] vector, String feature) {
+        int hash = feature.hashCode() * 0x9E3779B9;
+        vector[Math.floorMod(hash, VECTOR_DIMENSIONS)] += (hash >>> 31) == 0 ? 1 : -1;
+    }
+    
+    private static float dot(float[] a, float[] b) {
+        float sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+    
+    private static void update(MessageDigest digest, String value) {
+        if (value != null) {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+        digest.update((byte) 0);
+    }
+    
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    private static Counter lookups(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("agent.response.cache.lookups").tag("result", result).register(meterRegistry);
+    }
+    
+    public static class Key {
+        private final String context;
+        private final String prompt;
+        private float[] vector;
+        
+        Key(String context, String prompt) {
+            this.context = context;
+            this.prompt = prompt;
+        }
+        
+        float[] vector() {
+            if (vector == null) {
+                vector = vectorize(prompt);
+            }
+            return vector;
+        }
+    }
+    
+    private static class Entry {
+        final List<String> tokens;
+        final float[] vector;
+        final long createdAt;
+        
+        Entry(List<String> tokens, float[] vector) {
+            this.tokens = tokens;
+            this.vector = vector;
+            this.createdAt = System.nanoTime();
+        }
+    }
+    
+    // Answers sharing one context fingerprint, in LRU order
+    private static class ContextBucket {
+        private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        
+        synchronized Entry find(Key key, ResponseCache cache) {
+            long now = System.nanoTime();
+            entries.values().removeIf(entry -> now - entry.createdAt > cache.ttlNanos);
+            
+            Entry exact = entries.get(key.prompt);
+            if (exact != null) {
+                cache.hits.increment();
+                return exact;
+            }
+            if (cache.similarityThreshold >= 1.0) {
+                return null;
+            }
+            
+            Entry best = null;
+            float bestSimilarity = (float) cache.similarityThreshold;
+            for (Map.Entry<String, Entry> candidate : entries.entrySet()) {
+                float similarity = dot(key.vector(), candidate.getValue().vector);
+                if (similarity >= bestSimilarity) {
+                    best = candidate.getValue();
+                    bestSimilarity = similarity;
+                }
+            }
+            if (best != null) {
+                cache.similarHits.increment();
+            }
+            return best;
+        }
+        
+        synchronized void put(Key key, List<String> tokens, int maxEntries) {
+            entries.put(key.prompt, new Entry(tokens, key.vector()));
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (entries.size() > maxEntries && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+    }
+}
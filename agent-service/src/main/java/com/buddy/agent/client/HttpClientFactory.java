@@ -0,0 +1,105 @@
+package com.buddy.agent.client;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.env.Environment;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Shared outbound HTTP layer. Each target (openai, memory, tools, ...) gets its own named connection
+// pool so limits can be tuned independently; settings are read from http.client.<target>.* and fall
+// back to http.client.defaults.*. Pool gauges are published as reactor.netty.connection.provider.*
+// tagged with the target name.
+@Component
+public class HttpClientFactory implements DisposableBean {
+    
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, ConnectionProvider> providers = new ConcurrentHashMap<>();
+    private final Map<String, HttpClient> clients = new ConcurrentHashMap<>();
+    
+    public HttpClientFactory(Environment environment, MeterRegistry meterRegistry) {
+        this.environment = environment;
+        this.meterRegistry = meterRegistry;
+    }
+    
+    public WebClient.Builder webClientBuilder(String target, String baseUrl) {
+        return WebClient.builder()
+            .baseUrl(baseUrl)
+            .clientConnector(new ReactorClientHttpConnector(httpClient(target)));
+    }
+    
+    public HttpClient httpClient(String target) {
+        return clients.computeIfAbsent(target, this::newHttpClient);
+    }
+    
+    public ConnectionProvider connectionProvider(String target) {
+        return providers.computeIfAbsent(target, this::newConnectionProvider);
+    }
+    
+    // Requests currently waiting for a pooled connection to the target, summed over remote addresses
+    public double pendingAcquires(String target) {
+        return meterRegistry.find("reactor.netty.connection.provider.pending.connections")
+            .tag("name", providerName(target))
+            .gauges().stream()
+            .mapToDouble(Gauge::value)
+            .sum();
+    }
+    
+    private HttpClient newHttpClient(String target) {
+        HttpClient client = HttpClient.create(connectionProvider(target))
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) duration(target, "connectTimeout", "PT2S").toMillis())
+            .option(ChannelOption.SO_KEEPALIVE, true)
+            .keepAlive(true)
+            .responseTimeout(duration(target, "responseTimeout", "PT60S"))
+            .compress(setting(target, "compression", Boolean.class, true));
+        if (setting(target, "h2c", Boolean.class, false)) {
+            // Cleartext HTTP/2 for internal services, with an HTTP/1.1 upgrade fallback
+            client = client.protocol(HttpProtocol.H2C, HttpProtocol.HTTP11);
+        }
+        return client;
+    }
+    
+    private ConnectionProvider newConnectionProvider(String target) {
+        return ConnectionProvider.builder(providerName(target))
+            .maxConnections(setting(target, "maxConnections", Integer.class, 100))
+            .pendingAcquireMaxCount(setting(target, "pendingAcquireMaxCount", Integer.class, 500))
+            .pendingAcquireTimeout(duration(target, "pendingAcquireTimeout", "PT5S"))
+            .maxIdleTime(duration(target, "maxIdleTime", "PT30S"))
+            .maxLifeTime(duration(target, "maxLifeTime", "PT5M"))
+            .evictInBackground(duration(target, "evictInBackground", "PT30S"))
+            .metrics(true)
+            .build();
+    }
+    
+    private static String providerName(String target) {
+        return "buddy-" + target;
+    }
+    
+    private Duration duration(String target, String key, String fallback) {
+        return Duration.parse(setting(target, key, String.class, fallback));
+    }
+    
+    private <T> T setting(String target, String key, Class<T> type, T fallback) {
+        T value = environment.getProperty("http.client." + target + "." + key, type);
+        if (value != null) {
+            return value;
+        }
+        return environment.getProperty("http.client.defaults." + key, type, fallback);
+    }
+    
+    @Override
+    public void destroy() {
+        providers.values().forEach(provider -> provider.disposeLater().block(Duration.ofSeconds(5)));
+    }
+}
@@ -12,9 +12,8 @@ public class MemoryClient {
     
     private final WebClient webClient;
     
-    public MemoryClient(@Value("${memory.baseUrl}") String baseUrl) {
-        this.webClient = WebClient.builder()
-            .baseUrl(baseUrl)
+    public MemoryClient(@Value("${memory.baseUrl}") String baseUrl, HttpClientFactory httpClientFactory) {
+        this.webClient = httpClientFactory.webClientBuilder("memory", baseUrl)
             .build();
     }
     
@@ -44,6 +43,21 @@ public class MemoryClient {
             });
     }
     
+    // Persists the user message and fetches the newest context fitting tokenBudget, in one round-trip
+    // and one transaction
+    public Mono<List<Message>> appendTurn(Message message, int tokenBudget) {
+        return webClient.post()
+            .uri("/api/memory/turn")
+            .bodyValue(new TurnRequest(message, tokenBudget))
+            .retrieve()
+            .bodyToMono(new org.springframework.core.ParameterizedTypeReference<List<Message>>() {})
+            .onErrorResume(error -> {
+                // Log error but continue without context
+                System.err.println("Failed to record turn in memory: " + error.getMessage());
+                return Mono.just(List.of());
+            });
+    }
+    
     private static class ContextRequest {
         private String sessionId;
         
@@ -59,4 +73,30 @@ public class MemoryClient {
             this.sessionId = sessionId;
         }
     }
+    
+    private static class TurnRequest {
+        private Message message;
+        private Integer tokenBudget;
+        
+        public TurnRequest(Message message, Integer tokenBudget) {
+            this.message = message;
+            this.tokenBudget = tokenBudget;
+        }
+        
+        public Message getMessage() {
+            return message;
+        }
+        
+        public void setMessage(Message message) {
+            this.message = message;
+        }
+        
+        public Integer getTokenBudget() {
+            return tokenBudget;
+        }
+        
+        public void setTokenBudget(Integer tokenBudget) {
+            this.tokenBudget = tokenBudget;
+        }
+    }
 }
@@ -0,0 +1,111 @@
+package com.buddy.agent.client;
+
+import com.buddy.agent.openai.OpenAiTools;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+// Local copy of the tools-service catalog, already rendered for OpenAI. The first fetch starts when the
+// application is ready; only turns that arrive while it is still running wait for it. After that a
+// stale entry is served while it is revalidated with If-None-Match in the background. A failed fetch
+// is remembered too (as the previous catalog, or no tools at all) and retried after retryBackoff, so
+// turns never wait on a tools-service that is down.
+@Component
+public class ToolCatalogCache {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ToolCatalogCache.class);
+    
+    private final ToolsClient toolsClient;
+    private final long refreshIntervalNanos;
+    private final long retryBackoffNanos;
+    
+    private volatile Entry entry;
+    private volatile Mono<OpenAiTools> inFlight;
+    
+    public ToolCatalogCache(ToolsClient toolsClient,
+                            @Value("${agent.tools.catalogRefresh:PT60S}") Duration refreshInterval,
+                            @Value("${agent.tools.catalogRetryBackoff:PT5S}") Duration retryBackoff) {
+        this.toolsClient = toolsClient;
+        this.refreshIntervalNanos = refreshInterval.toNanos();
+        this.retryBackoffNanos = retryBackoff.toNanos();
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        load().subscribe();
+    }
+    
+    public Mono<OpenAiTools> current() {
+        Entry current = entry;
+        if (current == null) {
+            return load();
+        }
+        if (System.nanoTime() - current.refreshAt > 0) {
+            load().subscribe();
+        }
+        return Mono.just(current.tools);
+    }
+    
+    // ETag of the cached catalog, or null before the first successful fetch
+    public String getVersion() {
+        Entry current = entry;
+        return current != null ? current.etag : null;
+    }
+    
+    // Concurrent callers share one request
+    private Mono<OpenAiTools> load() {
+        Mono<OpenAiTools> pending = inFlight;
+        if (pending == null) {
+            synchronized (this) {
+                if (inFlight == null) {
+                    inFlight = fetch().doFinally(signal -> inFlight = null).cache();
+                }
+                pending = inFlight;
+            }
+        }
+        return pending;
+    }
+    
+    private Mono<OpenAiTools> fetch() {
+        Entry current = entry;
+        return toolsClient.fetchToolSpecs(current != null ? current.etag : null)
+            .map(response -> {
+                Entry updated;
+                if (response.isNotModified() && current != null) {
+                    updated = new Entry(current.etag, current.tools, refreshIntervalNanos);
+                } else {
+                    updated = new Entry(response.getEtag(), OpenAiTools.of(response.getTools()), refreshIntervalNanos);
+                    logger.info("Tool catalog updated to version {} ({} tools)", response.getEtag(), response.getTools().size());
+                }
+                entry = updated;
+                return updated.tools;
+            })
+            .onErrorResume(error -> {
+                // Keep serving what we have; without any catalog the model answers without tools
+                logger.warn("Failed to refresh tool catalog: {}", error.getMessage());
+                Entry failed = current != null
+                    ? new Entry(current.etag, current.tools, retryBackoffNanos)
+                    : new Entry(null, OpenAiTools.NONE, retryBackoffNanos);
+                entry = failed;
+                return Mono.just(failed.tools);
+            });
+    }
+    
+    private static class Entry {
+        private final String etag;
+        private final OpenAiTools tools;
+        private final long refreshAt;
+        
+        Entry(String etag, OpenAiTools tools, long ttlNanos) {
+            this.etag = etag;
+            this.tools = tools;
+            this.refreshAt = System.nanoTime() + ttlNanos;
+        }
+    }
+}
@@ -1,34 +1,90 @@
 package com.buddy.agent.client;
 
 import com.buddy.common.tool.ToolResult;
+import com.buddy.common.tool.ToolSpec;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
+import java.util.List;
 
 @Component
 public class ToolsClient {
     
+    private static final int MAX_ERROR_BODY_CHARS = 500;
+    
     private final WebClient webClient;
+    private final ObjectMapper objectMapper;
     
-    public ToolsClient(@Value("${tools.baseUrl}") String baseUrl) {
-        this.webClient = WebClient.builder()
-            .baseUrl(baseUrl)
+    public ToolsClient(@Value("${tools.baseUrl}") String baseUrl, HttpClientFactory httpClientFactory,
+                       ObjectMapper objectMapper) {
+        this.webClient = httpClientFactory.webClientBuilder("tools", baseUrl)
             .build();
+        this.objectMapper = objectMapper;
     }
     
     public Mono<ToolResult> executeTool(String toolName, String input) {
         return webClient.post()
             .uri("/api/tools/execute/{name}", toolName)
             .bodyValue(new ToolExecutionRequest(input))
-            .retrieve()
-            .bodyToMono(ToolResult.class)
+            .exchangeToMono(response -> {
+                if (!response.statusCode().isError()) {
+                    return response.bodyToMono(ToolResult.class);
+                }
+                return response.bodyToMono(String.class)
+                    .defaultIfEmpty("")
+                    .map(body -> errorResult(toolName, response.statusCode(), body));
+            })
+            .defaultIfEmpty(ToolResult.failure("Tool " + toolName + " returned no result"))
             .onErrorResume(error -> {
                 System.err.println("Failed to execute tool " + toolName + ": " + error.getMessage());
                 return Mono.just(ToolResult.failure("Tool execution failed: " + error.getMessage()));
             });
     }
     
+    // Failed tools answer 400 with their own ToolResult, which is worth more than the status line.
+    // Any other error body (unknown tool, Spring's error page, a proxy) is passed on with its status.
+    private ToolResult errorResult(String toolName, HttpStatusCode status, String body) {
+        try {
+            JsonNode json = objectMapper.readTree(body);
+            if (json != null && json.has("success") && json.path("error").isTextual()) {
+                return objectMapper.treeToValue(json, ToolResult.class);
+            }
+        } catch (JsonProcessingException e) {
+            // not JSON; reported verbatim below
+        }
+        String detail = body.length() > MAX_ERROR_BODY_CHARS ? body.substring(0, MAX_ERROR_BODY_CHARS) + "..." : body;
+        return ToolResult.failure("Tool " + toolName + " failed with HTTP " + status.value()
+            + (detail.isBlank() ? "" : ": " + detail));
+    }
+    
+    // Conditional fetch of the catalog; a 304 yields a response with notModified set
+    public Mono<CatalogResponse> fetchToolSpecs(String etag) {
+        return webClient.get()
+            .uri("/api/tools/spec")
+            .headers(headers -> {
+                if (etag != null) {
+                    headers.setIfNoneMatch(etag);
+                }
+            })
+            .exchangeToMono(response -> {
+                if (response.statusCode().value() == HttpStatus.NOT_MODIFIED.value()) {
+                    return Mono.just(CatalogResponse.notModified(etag));
+                }
+                if (response.statusCode().isError()) {
+                    return response.createError();
+                }
+                String responseEtag = response.headers().asHttpHeaders().getETag();
+                return response.bodyToMono(ToolSpecResponse.class)
+                    .map(body -> CatalogResponse.of(responseEtag, body.getTools() != null ? body.getTools() : List.of()));
+            });
+    }
+    
     private static class ToolExecutionRequest {
         private String input;
         
@@ -44,4 +100,48 @@ public class ToolsClient {
             this.input = input;
         }
     }
+    
+    public static class CatalogResponse {
+        private final boolean notModified;
+        private final String etag;
+        private final List<ToolSpec> tools;
+        
+        private CatalogResponse(boolean notModified, String etag, List<ToolSpec> tools) {
+            this.notModified = notModified;
+            this.etag = etag;
+            this.tools = tools;
+        }
+        
+        public static CatalogResponse of(String etag, List<ToolSpec> tools) {
+            return new CatalogResponse(false, etag, tools);
+        }
+        
+        public static CatalogResponse notModified(String etag) {
+            return new CatalogResponse(true, etag, null);
+        }
+        
+        public boolean isNotModified() {
+            return notModified;
+        }
+        
+        public String getEtag() {
+            return etag;
+        }
+        
+        public List<ToolSpec> getTools() {
+            return tools;
+        }
+    }
+    
+    private static class ToolSpecResponse {
+        private List<ToolSpec> tools;
+        
+        public List<ToolSpec> getTools() {
+            return tools;
+        }
+        
+        public void setTools(List<ToolSpec> tools) {
+            this.tools = tools;
+        }
+    }
 }
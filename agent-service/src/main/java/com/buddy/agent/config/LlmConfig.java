@@ -0,0 +1,58 @@
+package com.buddy.agent.config;
+
+import com.buddy.agent.client.HttpClientFactory;
+import com.buddy.agent.llm.FakeLlmProvider;
+import com.buddy.agent.llm.LlmProvider;
+import com.buddy.agent.llm.LlmRouter;
+import com.buddy.agent.openai.CompletionLatency;
+import com.buddy.agent.openai.OpenAiClient;
+import com.buddy.agent.resilience.ResilienceFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// llm.backends lists the backends the router may use; each is configured under llm.backend.<name>:
+//   type   - openai (OpenAI or any OpenAI-compatible server) or fake (deterministic, in-process)
+//   weight - share of traffic relative to the others; 0 keeps it for failover only
+//   openai: baseUrl, apiKey (optional), model, coalesceRequests
+//   fake:   firstTokenDelay, tokenDelay
+// llm.errorPenalty is the first-token latency a failed call counts as, at the least.
+@Configuration
+public class LlmConfig {
+    
+    @Bean
+    public LlmRouter llmRouter(Environment environment,
+                               HttpClientFactory httpClientFactory,
+                               ResilienceFactory resilienceFactory,
+                               ObjectMapper objectMapper,
+                               CompletionLatency latency,
+                               MeterRegistry meterRegistry) {
+        List<LlmRouter.Backend> backends = new ArrayList<>();
+        Duration errorPenalty = Duration.parse(environment.getProperty("llm.errorPenalty", "PT5S"));
+        for (String name : environment.getProperty("llm.backends", String[].class, new String[] {"openai"})) {
+            String prefix = "llm.backend." + name.strip() + ".";
+            String type = environment.getProperty(prefix + "type", "openai");
+            LlmProvider provider = switch (type) {
+                case "openai" -> new OpenAiClient(name.strip(),
+                    environment.getRequiredProperty(prefix + "baseUrl"),
+                    environment.getProperty(prefix + "apiKey", ""),
+                    environment.getRequiredProperty(prefix + "model"),
+                    environment.getProperty(prefix + "coalesceRequests", Boolean.class, true),
+                    httpClientFactory, resilienceFactory, objectMapper, latency, meterRegistry);
+                case "fake" -> new FakeLlmProvider(name.strip(),
+                    Duration.parse(environment.getProperty(prefix + "firstTokenDelay", "PT0S")),
+                    Duration.parse(environment.getProperty(prefix + "tokenDelay", "PT0S")));
+                default -> throw new IllegalStateException("Unknown type '" + type + "' for LLM backend " + name);
+            };
+            backends.add(new LlmRouter.Backend(provider, environment.getProperty(prefix + "weight", Double.class, 1.0),
+                errorPenalty));
+        }
+        return new LlmRouter(backends, meterRegistry);
+    }
+}
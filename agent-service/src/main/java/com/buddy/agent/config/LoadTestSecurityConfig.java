@@ -0,0 +1,28 @@
+package com.buddy.agent.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+
+// Security chain for the loadtest profile: the load generator authenticates with HTTP basic on every
+// request and has no browser session to carry a CSRF token, so CSRF protection is off. Everything
+// else matches the default chain.
+@Configuration
+@Profile("loadtest")
+public class LoadTestSecurityConfig {
+    
+    @Bean
+    public SecurityWebFilterChain loadTestSecurityWebFilterChain(ServerHttpSecurity http) {
+        return http
+            .csrf(ServerHttpSecurity.CsrfSpec::disable)
+            .authorizeExchange(authz -> authz
+                .pathMatchers("/actuator/**").permitAll()
+                .anyExchange().authenticated()
+            )
+            .httpBasic(httpBasic -> {})
+            .formLogin(ServerHttpSecurity.FormLoginSpec::disable)
+            .build();
+    }
+}
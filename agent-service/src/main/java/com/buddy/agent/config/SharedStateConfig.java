@@ -0,0 +1,97 @@
+package com.buddy.agent.config;
+
+import com.buddy.agent.state.BucketStore;
+import com.buddy.agent.state.InMemoryProxyManager;
+import com.buddy.agent.state.JdbcSessionStateStore;
+import com.buddy.agent.state.LocalBucketStore;
+import com.buddy.agent.state.LocalSessionStateStore;
+import com.buddy.agent.state.PostgresProxyManager;
+import com.buddy.agent.state.SessionStateStore;
+import com.buddy.agent.state.SharedBucketStore;
+import com.buddy.agent.state.StateCleanup;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+// agent.state.store selects where rate-limit buckets and shared session flags live:
+//   local    - in this process (default; limits are per replica)
+//   embedded - buckets behind the shared-store code path, backed by an in-process map
+//   postgres - shared by all replicas through the agent_rate_limit_bucket / agent_session_flag tables
+@Configuration
+public class SharedStateConfig {
+    
+    @Configuration
+    @ConditionalOnProperty(name = "agent.state.store", havingValue = "postgres")
+    static class PostgresStateConfig {
+        
+        @Bean(destroyMethod = "close")
+        public HikariDataSource stateDataSource(@Value("${agent.state.datasource.url}") String url,
+                                                @Value("${agent.state.datasource.username}") String username,
+                                                @Value("${agent.state.datasource.password}") String password,
+                                                @Value("${agent.state.datasource.maxPoolSize:10}") int maxPoolSize) {
+            HikariConfig config = new HikariConfig();
+            config.setPoolName("agent-state");
+            config.setJdbcUrl(url);
+            config.setUsername(username);
+            config.setPassword(password);
+            config.setMaximumPoolSize(maxPoolSize);
+            return new HikariDataSource(config);
+        }
+        
+        @Bean
+        public PostgresProxyManager postgresProxyManager(HikariDataSource stateDataSource) {
+            return new PostgresProxyManager(stateDataSource);
+        }
+        
+        @Bean
+        public BucketStore sharedBucketStore(PostgresProxyManager postgresProxyManager,
+                                             @Value("${agent.state.maxUnsyncedTokens:5}") long maxUnsyncedTokens,
+                                             @Value("${agent.state.maxUnsyncedTimeout:PT0.5S}") Duration maxUnsyncedTimeout,
+                                             @Value("${agent.rateLimit.idleTimeout:PT1H}") Duration idleTimeout) {
+            return new SharedBucketStore(postgresProxyManager, maxUnsyncedTokens, maxUnsyncedTimeout, idleTimeout);
+        }
+        
+        @Bean
+        public JdbcSessionStateStore sharedSessionStateStore(HikariDataSource stateDataSource,
+                                                             @Value("${agent.state.refreshInterval:PT2S}") Duration refreshInterval) {
+            return new JdbcSessionStateStore(stateDataSource, refreshInterval);
+        }
+        
+        // Buckets idle for agent.rateLimit.idleTimeout have refilled (it is longer than any refill period)
+        @Bean
+        public StateCleanup stateCleanup(PostgresProxyManager postgresProxyManager,
+                                         JdbcSessionStateStore sharedSessionStateStore,
+                                         @Value("${agent.rateLimit.idleTimeout:PT1H}") Duration idleTimeout,
+                                         @Value("${agent.state.sessionFlagTtl:P7D}") Duration sessionFlagTtl,
+                                         @Value("${agent.state.cleanupInterval:PT10M}") Duration cleanupInterval) {
+            return new StateCleanup(postgresProxyManager, sharedSessionStateStore, idleTimeout, sessionFlagTtl,
+                cleanupInterval);
+        }
+    }
+    
+    @Bean
+    @ConditionalOnProperty(name = "agent.state.store", havingValue = "embedded")
+    public BucketStore embeddedBucketStore(@Value("${agent.state.maxUnsyncedTokens:5}") long maxUnsyncedTokens,
+                                           @Value("${agent.state.maxUnsyncedTimeout:PT0.5S}") Duration maxUnsyncedTimeout,
+                                           @Value("${agent.rateLimit.idleTimeout:PT1H}") Duration idleTimeout) {
+        return new SharedBucketStore(new InMemoryProxyManager(), maxUnsyncedTokens, maxUnsyncedTimeout, idleTimeout);
+    }
+    
+    @Bean
+    @ConditionalOnMissingBean
+    public BucketStore localBucketStore(@Value("${agent.rateLimit.idleTimeout:PT1H}") Duration idleTimeout) {
+        return new LocalBucketStore(idleTimeout);
+    }
+    
+    @Bean
+    @ConditionalOnMissingBean
+    public SessionStateStore localSessionStateStore() {
+        return new LocalSessionStateStore();
+    }
+}
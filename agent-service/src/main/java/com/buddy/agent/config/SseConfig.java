@@ -0,0 +1,33 @@
+package com.buddy.agent.config;
+
+import com.buddy.agent.sse.ChatEventSseWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+
+import java.time.Duration;
+
+// Registers the ChatEvent SSE writer for the /api/chat streams. Custom typed writers are consulted
+// before Spring's generic ServerSentEventHttpMessageWriter, which still handles every other type.
+@Configuration
+@ConditionalOnProperty(name = "agent.sse.encoder.enabled", havingValue = "true", matchIfMissing = true)
+public class SseConfig implements WebFluxConfigurer {
+    
+    private final ChatEventSseWriter writer;
+    
+    public SseConfig(ObjectMapper objectMapper,
+                     MeterRegistry meterRegistry,
+                     @Value("${agent.sse.coalesceWindow:PT0S}") Duration coalesceWindow,
+                     @Value("${agent.sse.maxCoalescedEvents:64}") int maxCoalescedEvents) {
+        this.writer = new ChatEventSseWriter(objectMapper, coalesceWindow, maxCoalescedEvents, meterRegistry);
+    }
+    
+    @Override
+    public void configureHttpMessageCodecs(ServerCodecConfigurer configurer) {
+        configurer.customCodecs().register(writer);
+    }
+}
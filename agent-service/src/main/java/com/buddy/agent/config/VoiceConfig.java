@@ -0,0 +1,51 @@
+package com.buddy.agent.config;
+
+import com.buddy.agent.service.AgentOrchestrator;
+import com.buddy.agent.voice.SpeechToText;
+import com.buddy.agent.voice.StubSpeechToText;
+import com.buddy.agent.voice.StubTextToSpeech;
+import com.buddy.agent.voice.TextToSpeech;
+import com.buddy.agent.voice.VoicePipeline;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// Off unless agent.voice.enabled is set. Enabling it requires SpeechToText and TextToSpeech beans;
+// the stub engines are only registered when agent.voice.stub.enabled opts in to them.
+@Configuration
+@ConditionalOnProperty(name = "agent.voice.enabled", havingValue = "true")
+public class VoiceConfig {
+    
+    @Bean
+    public VoicePipeline voicePipeline(AgentOrchestrator orchestrator,
+                                       SpeechToText speechToText,
+                                       TextToSpeech textToSpeech,
+                                       @Value("${agent.voice.minSentenceChars:12}") int minSentenceChars,
+                                       @Value("${agent.voice.maxSentenceChars:240}") int maxSentenceChars,
+                                       @Value("${agent.voice.ttsLookahead:2}") int ttsLookahead,
+                                       MeterRegistry meterRegistry) {
+        return new VoicePipeline(orchestrator, speechToText, textToSpeech, minSentenceChars, maxSentenceChars,
+            ttsLookahead, meterRegistry);
+    }
+    
+    // Local engines for development and tests; they treat audio as UTF-8 text
+    @Configuration
+    @ConditionalOnProperty(name = "agent.voice.stub.enabled", havingValue = "true")
+    static class StubEngines {
+        
+        @Bean
+        @ConditionalOnMissingBean
+        public SpeechToText stubSpeechToText() {
+            return new StubSpeechToText();
+        }
+        
+        @Bean
+        @ConditionalOnMissingBean
+        public TextToSpeech stubTextToSpeech(@Value("${agent.voice.stub.chunkBytes:320}") int chunkBytes) {
+            return new StubTextToSpeech(chunkBytes);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.buddy.agent.config;
+
+import com.buddy.agent.ws.ChatWebSocketHandler;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.reactive.handler.SimpleUrlHandlerMapping;
+
+import java.util.Map;
+
+@Configuration
+public class WebSocketConfig {
+    
+    // Ahead of the annotated controllers; the WebSocketHandlerAdapter comes with WebFlux
+    @Bean
+    public HandlerMapping webSocketHandlerMapping(ChatWebSocketHandler handler) {
+        return new SimpleUrlHandlerMapping(Map.of("/ws/chat", handler, "/ws/voice", handler), -1);
+    }
+}
@@ -1,13 +1,20 @@
 package com.buddy.agent.controller;
 
+import com.buddy.agent.cache.ResponseCache;
 import com.buddy.agent.service.AgentOrchestrator;
+import com.buddy.agent.voice.VoicePipeline;
+import com.buddy.common.dto.AudioEvent;
 import com.buddy.common.dto.ChatRequest;
 import com.buddy.common.dto.ChatEvent;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import jakarta.validation.Valid;
 
 @RestController
@@ -16,9 +23,14 @@ import jakarta.validation.Valid;
 public class ChatController {
     
     private final AgentOrchestrator orchestrator;
+    private final ResponseCache responseCache;
+    private final ObjectProvider<VoicePipeline> voicePipeline;
     
-    public ChatController(AgentOrchestrator orchestrator) {
+    public ChatController(AgentOrchestrator orchestrator, ResponseCache responseCache,
+                          ObjectProvider<VoicePipeline> voicePipeline) {
         this.orchestrator = orchestrator;
+        this.responseCache = responseCache;
+        this.voicePipeline = voicePipeline;
     }
     
     @PostMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
@@ -27,10 +39,32 @@ public class ChatController {
         return orchestrator.processChatStream(request, authentication.getName());
     }
     
-    @PostMapping("/voice")
-    public ResponseEntity<String> handleVoiceChat(@Valid @RequestBody ChatRequest request,
-                                                Authentication authentication) {
-        // Voice chat endpoint for future implementation
-        return ResponseEntity.ok("Voice chat endpoint - coming soon!");
+    // Always ask the model for this session, e.g. when the user wants a fresh answer. The setting is
+    // the caller's own: it applies to their turns in the session and to nobody else's.
+    @PutMapping("/sessions/{sessionId}/cache-bypass")
+    public Mono<ResponseEntity<Void>> bypassResponseCache(@PathVariable String sessionId, Authentication authentication) {
+        return responseCache.setBypass(authentication.getName(), sessionId, true)
+            .then(Mono.just(ResponseEntity.noContent().build()));
+    }
+    
+    @DeleteMapping("/sessions/{sessionId}/cache-bypass")
+    public Mono<ResponseEntity<Void>> restoreResponseCache(@PathVariable String sessionId, Authentication authentication) {
+        return responseCache.setBypass(authentication.getName(), sessionId, false)
+            .then(Mono.just(ResponseEntity.noContent().build()));
+    }
+    
+    // Text in, chat events plus synthesized speech out. Audio chunks are streamed as base64 audio
+    // events interleaved with the tokens; /ws/voice takes audio in and sends audio as binary frames.
+    @PostMapping(value = "/voice", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ChatEvent> handleVoiceChat(@Valid @RequestBody ChatRequest request,
+                                           Authentication authentication) {
+        VoicePipeline pipeline = voicePipeline.getIfAvailable();
+        if (pipeline == null) {
+            return Flux.error(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Voice is not available"));
+        }
+        return pipeline.speak(authentication.getName(), request.getSessionId(), request.getMessage())
+            .map(output -> output.isAudio()
+                ? new AudioEvent(request.getSessionId(), output.getAudio())
+                : output.getEvent());
     }
 }
@@ -0,0 +1,66 @@
+package com.buddy.agent.llm;
+
+import com.buddy.agent.openai.ChatMessage;
+import com.buddy.agent.openai.CompletionDelta;
+import com.buddy.agent.openai.OpenAiTools;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// In-process backend with deterministic output, for tests and local runs without a model: it
+// answers "You said: <last user message>" one word per delta, after an optional first-token delay
+// and with an optional delay between words. Never calls tools.
+public class FakeLlmProvider implements LlmProvider {
+    
+    private final String name;
+    private final Duration firstTokenDelay;
+    private final Duration tokenDelay;
+    
+    public FakeLlmProvider(String name, Duration firstTokenDelay, Duration tokenDelay) {
+        this.name = name;
+        this.firstTokenDelay = firstTokenDelay;
+        this.tokenDelay = tokenDelay;
+    }
+    
+    @Override
+    public String getName() {
+        return name;
+    }
+    
+    @Override
+    public Flux<CompletionDelta> streamChatCompletion(List<ChatMessage> messages, OpenAiTools tools) {
+        Flux<CompletionDelta> words = Flux.fromIterable(words("You said: " + lastUserMessage(messages)))
+            .map(CompletionDelta::content);
+        if (!tokenDelay.isZero()) {
+            words = words.delayElements(tokenDelay);
+        }
+        if (!firstTokenDelay.isZero()) {
+            words = words.delaySubscription(firstTokenDelay);
+        }
+        return words.concatWith(Flux.just(CompletionDelta.finish("stop")));
+    }
+    
+    private static String lastUserMessage(List<ChatMessage> messages) {
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            if ("user".equals(messages.get(i).getRole())) {
+                return messages.get(i).getContent();
+            }
+        }
+        return "";
+    }
+    
+    // Each word keeps the space in front of it, so the deltas concatenate back to the text
+    private static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        int start = 0;
+        for (int i = 1; i <= text.length(); i++) {
+            if (i == text.length() || text.charAt(i) == ' ') {
+                words.add(text.substring(start, i));
+                start = i;
+            }
+        }
+        return words;
+    }
+}
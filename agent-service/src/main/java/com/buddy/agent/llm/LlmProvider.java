@@ -0,0 +1,34 @@
+package com.buddy.agent.llm;
+
+import com.buddy.agent.openai.ChatMessage;
+import com.buddy.agent.openai.CompletionDelta;
+import com.buddy.agent.openai.OpenAiTools;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+// A chat model backend. Messages, tools and deltas use the OpenAI chat format, which every backend
+// speaks or is adapted to. Backends report failures as errors; LlmRouter decides whether to fail
+// over and what the user sees when nothing is left to try.
+public interface LlmProvider {
+    
+    String getName();
+    
+    // The model behind this backend, e.g. "openai/gpt-4o-mini"; answers are only reused for the same model
+    default String getModel() {
+        return getName();
+    }
+    
+    // The provider to use for one turn. A single backend is its own choice; LlmRouter routes now, so
+    // getModel() names the backend that will answer, and keeps failing over from it as usual.
+    default LlmProvider select() {
+        return this;
+    }
+    
+    Flux<CompletionDelta> streamChatCompletion(List<ChatMessage> messages, OpenAiTools tools);
+    
+    // False while the backend is known to be down, e.g. its circuit is open
+    default boolean isAvailable() {
+        return true;
+    }
+}
@@ -0,0 +1,271 @@
+package com.buddy.agent.llm;
+
+import com.buddy.agent.openai.ChatMessage;
+import com.buddy.agent.openai.CompletionDelta;
+import com.buddy.agent.openai.OpenAiTools;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Spreads completions over the configured backends. Each backend keeps a rolling (EWMA) first-token
+// latency and error rate and its in-flight count; its cost is
+//     latency * (inFlight + 1) / (1 - errorRate) / weight
+// The first choice is the cheaper of two backends sampled by weight, so traffic shifts away from a
+// slow or failing backend without every request stampeding to the current best one. If that backend
+// fails before its first delta, the remaining backends are tried cheapest first. When all of them
+// have failed the stream ends with an apology and finish reason "error", as a single backend did.
+// A failed call counts as at least errorPenalty of latency, so a backend that fails fast does not
+// look like the fastest one.
+public class LlmRouter implements LlmProvider {
+    
+    private static final Logger logger = LoggerFactory.getLogger(LlmRouter.class);
+    
+    private static final double ALPHA = 0.2;
+    // Stands in for the latency of a backend that has not answered yet, so it gets tried early
+    private static final long MIN_LATENCY_NANOS = 1_000_000;
+    private static final Duration DEFAULT_ERROR_PENALTY = Duration.ofSeconds(5);
+    
+    private final List<Backend> backends;
+    private final Counter failovers;
+    
+    public LlmRouter(List<Backend> backends, MeterRegistry meterRegistry) {
+        if (backends.isEmpty()) {
+            throw new IllegalArgumentException("At least one LLM backend is required");
+        }
+        this.backends = List.copyOf(backends);
+        this.failovers = Counter.builder("llm.router.failovers")
+            .description("Completions retried on another backend after a failure")
+            .register(meterRegistry);
+        for (Backend backend : this.backends) {
+            backend.register(meterRegistry);
+        }
+    }
+    
+    @Override
+    public String getName() {
+        return "router";
+    }
+    
+    @Override
+    public Flux<CompletionDelta> streamChatCompletion(List<ChatMessage> messages, OpenAiTools tools) {
+        return Flux.defer(() -> select().streamChatCompletion(messages, tools));
+    }
+    
+    @Override
+    public LlmProvider select() {
+        return new Selection(route());
+    }
+    
+    @Override
+    public boolean isAvailable() {
+        return backends.stream().anyMatch(backend -> backend.provider.isAvailable());
+    }
+    
+    public List<Backend> getBackends() {
+        return backends;
+    }
+    
+    private Flux<CompletionDelta> call(Selection selection, int index, List<ChatMessage> messages, OpenAiTools tools) {
+        List<Backend> order = selection.order;
+        Backend backend = order.get(index);
+        selection.serving = backend;
+        AtomicBoolean started = new AtomicBoolean();
+        return backend.stream(messages, tools)
+            .doOnNext(delta -> started.lazySet(true))
+            .onErrorResume(error -> {
+                // Deltas already sent cannot be taken back, so only a silent failure fails over
+                if (started.get() || index + 1 >= order.size()) {
+                    return Flux.error(error);
+                }
+                failovers.increment();
+                logger.warn("LLM backend {} failed, trying {}: {}", backend.getName(), order.get(index + 1).getName(),
+                    error.toString());
+                return call(selection, index + 1, messages, tools);
+            });
+    }
+    
+    // Backends in the order to try them: a weighted power-of-two-choices pick among those with a
+    // weight, then everything else cheapest first (weight 0 backends come last and only serve failover)
+    List<Backend> route() {
+        List<Backend> order = new ArrayList<>(backends.size());
+        for (Backend backend : backends) {
+            if (backend.provider.isAvailable()) {
+                order.add(backend);
+            }
+        }
+        if (order.isEmpty()) {
+            // Nothing looks healthy: try everything and let the backends' own breakers decide
+            order.addAll(backends);
+        }
+        order.sort(Comparator.comparingDouble(Backend::cost));
+        
+        List<Backend> weighted = order.stream().filter(backend -> backend.weight > 0).toList();
+        if (weighted.size() > 1) {
+            Backend first = sample(weighted);
+            Backend second = sample(weighted);
+            Backend chosen = first.cost() <= second.cost() ? first : second;
+            order.remove(chosen);
+            order.add(0, chosen);
+        }
+        return order;
+    }
+    
+    private static Backend sample(List<Backend> candidates) {
+        double total = 0;
+        for (Backend backend : candidates) {
+            total += backend.weight;
+        }
+        double point = ThreadLocalRandom.current().nextDouble() * total;
+        for (Backend backend : candidates) {
+            point -= backend.weight;
+            if (point < 0) {
+                return backend;
+            }
+        }
+        return candidates.get(candidates.size() - 1);
+    }
+    
+    // One routing decision, reused for every call it makes. getModel() starts as the chosen backend's
+    // and follows failovers, so a caller can tell that an answer came from another model.
+    private class Selection implements LlmProvider {
+        
+        private final List<Backend> order;
+        private volatile Backend serving;
+        
+        Selection(List<Backend> order) {
+            this.order = order;
+            this.serving = order.get(0);
+        }
+        
+        @Override
+        public String getName() {
+            return LlmRouter.this.getName();
+        }
+        
+        @Override
+        public String getModel() {
+            return serving.provider.getModel();
+        }
+        
+        @Override
+        public Flux<CompletionDelta> streamChatCompletion(List<ChatMessage> messages, OpenAiTools tools) {
+            return Flux.defer(() -> call(this, 0, messages, tools))
+                .onErrorResume(error -> {
+                    logger.error("All LLM backends failed", error);
+                    return Flux.just(CompletionDelta.content(
+                        "I apologize, but I'm experiencing technical difficulties. Please try again later."),
+                        CompletionDelta.finish("error"));
+                });
+        }
+        
+        @Override
+        public boolean isAvailable() {
+            return LlmRouter.this.isAvailable();
+        }
+    }
+    
+    // One routable backend with its rolling statistics
+    public static class Backend {
+        
+        private final LlmProvider provider;
+        private final double weight;
+        private final long errorPenaltyNanos;
+        private final AtomicLong latencyBits = new AtomicLong(Double.doubleToLongBits(0));
+        private final AtomicLong errorRateBits = new AtomicLong(Double.doubleToLongBits(0));
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private Counter selected;
+        
+        public Backend(LlmProvider provider, double weight) {
+            this(provider, weight, DEFAULT_ERROR_PENALTY);
+        }
+        
+        public Backend(LlmProvider provider, double weight, Duration errorPenalty) {
+            this.provider = provider;
+            this.weight = weight;
+            this.errorPenaltyNanos = errorPenalty.toNanos();
+        }
+        
+        public String getName() {
+            return provider.getName();
+        }
+        
+        public double getWeight() {
+            return weight;
+        }
+        
+        public double getLatencyNanos() {
+            return Double.longBitsToDouble(latencyBits.get());
+        }
+        
+        public double getErrorRate() {
+            return Double.longBitsToDouble(errorRateBits.get());
+        }
+        
+        public int getInFlight() {
+            return inFlight.get();
+        }
+        
+        double cost() {
+            double latency = Math.max(getLatencyNanos(), MIN_LATENCY_NANOS);
+            double healthy = Math.max(1 - getErrorRate(), 0.01);
+            return latency * (inFlight.get() + 1) / healthy / Math.max(weight, 1e-6);
+        }
+        
+        Flux<CompletionDelta> stream(List<ChatMessage> messages, OpenAiTools tools) {
+            return Flux.defer(() -> {
+                selected.increment();
+                inFlight.incrementAndGet();
+                long start = System.nanoTime();
+                AtomicBoolean settled = new AtomicBoolean();
+                return provider.streamChatCompletion(messages, tools)
+                    .doOnEach(signal -> {
+                        if (settled.get() || !settled.compareAndSet(false, true)) {
+                            return;
+                        }
+                        if (signal.isOnError()) {
+                            update(errorRateBits, 1, false);
+                            update(latencyBits, Math.max(System.nanoTime() - start, errorPenaltyNanos), true);
+                        } else {
+                            update(errorRateBits, 0, false);
+                            update(latencyBits, System.nanoTime() - start, true);
+                        }
+                    })
+                    .doFinally(signal -> inFlight.decrementAndGet());
+            });
+        }
+        
+        private void register(MeterRegistry meterRegistry) {
+            String name = provider.getName();
+            this.selected = Counter.builder("llm.backend.requests").tag("backend", name).register(meterRegistry);
+            Gauge.builder("llm.backend.first.token.ewma", this, b -> b.getLatencyNanos() / 1e6)
+                .baseUnit("milliseconds")
+                .tag("backend", name)
+                .register(meterRegistry);
+            Gauge.builder("llm.backend.error.rate", this, Backend::getErrorRate).tag("backend", name).register(meterRegistry);
+            Gauge.builder("llm.backend.inflight", this, Backend::getInFlight).tag("backend", name).register(meterRegistry);
+        }
+        
+        // Latency starts at its first sample; the error rate starts at zero
+        private static void update(AtomicLong bits, double sample, boolean seed) {
+            long current;
+            long next;
+            do {
+                current = bits.get();
+                double ewma = Double.longBitsToDouble(current);
+                next = Double.doubleToLongBits(seed && ewma == 0 ? sample : ewma + ALPHA * (sample - ewma));
+            } while (!bits.compareAndSet(current, next));
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.buddy.agent.openai;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+// A message in the OpenAI chat completions wire format
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ChatMessage {
+    private String role;
+    private String content;
+    @JsonProperty("tool_calls")
+    private List<ToolCall> toolCalls;
+    @JsonProperty("tool_call_id")
+    private String toolCallId;
+    
+    public ChatMessage() {}
+    
+    public ChatMessage(String role, String content) {
+        this.role = role;
+        this.content = content;
+    }
+    
+    public static ChatMessage system(String content) {
+        return new ChatMessage("system", content);
+    }
+    
+    public static ChatMessage user(String content) {
+        return new ChatMessage("user", content);
+    }
+    
+    public static ChatMessage assistant(String content) {
+        return new ChatMessage("assistant", content);
+    }
+    
+    public static ChatMessage assistantToolCalls(String content, List<ToolCall> toolCalls) {
+        ChatMessage message = new ChatMessage("assistant", content == null || content.isEmpty() ? null : content);
+        message.setToolCalls(toolCalls);
+        return message;
+    }
+    
+    public static ChatMessage toolResult(String toolCallId, String content) {
+        ChatMessage message = new ChatMessage("tool", content);
+        message.setToolCallId(toolCallId);
+        return message;
+    }
+    
+    // Getters and Setters
+    public String getRole() { return role; }
+    public void setRole(String role) { this.role = role; }
+    public String getContent() { return content; }
+    public void setContent(String content) { this.content = content; }
+    public List<ToolCall> getToolCalls() { return toolCalls; }
+    public void setToolCalls(List<ToolCall> toolCalls) { this.toolCalls = toolCalls; }
+    public String getToolCallId() { return toolCallId; }
+    public void setToolCallId(String toolCallId) { this.toolCallId = toolCallId; }
+}
@@ -0,0 +1,66 @@
+package com.buddy.agent.openai;
+
+// One piece of information pulled out of a streamed chat.completion.chunk
+public class CompletionDelta {
+    
+    public enum Kind {
+        CONTENT,
+        TOOL_CALL,
+        FINISH
+    }
+    
+    private final Kind kind;
+    private final String content;
+    private final int toolCallIndex;
+    private final String toolCallId;
+    private final String toolName;
+    private final String finishReason;
+    
+    private CompletionDelta(Kind kind, String content, int toolCallIndex, String toolCallId,
+                            String toolName, String finishReason) {
+        this.kind = kind;
+        this.content = content;
+        this.toolCallIndex = toolCallIndex;
+        this.toolCallId = toolCallId;
+        this.toolName = toolName;
+        this.finishReason = finishReason;
+    }
+    
+    public static CompletionDelta content(String content) {
+        return new CompletionDelta(Kind.CONTENT, content, -1, null, null, null);
+    }
+    
+    // id and name are only present on the first fragment of a call; arguments arrive in pieces
+    public static CompletionDelta toolCall(int index, String id, String name, String argumentsFragment) {
+        return new CompletionDelta(Kind.TOOL_CALL, argumentsFragment, index, id, name, null);
+    }
+    
+    public static CompletionDelta finish(String finishReason) {
+        return new CompletionDelta(Kind.FINISH, null, -1, null, null, finishReason);
+    }
+    
+    public Kind getKind() {
+        return kind;
+    }
+    
+    // Text for CONTENT, the arguments fragment for TOOL_CALL
+    public String getContent() {
+        return content;
+    }
+    
+    public int getToolCallIndex() {
+        return toolCallIndex;
+    }
+    
+    public String getToolCallId() {
+        return toolCallId;
+    }
+    
+    public String getToolName() {
+        return toolName;
+    }
+    
+    public String getFinishReason() {
+        return finishReason;
+    }
+}
@@ -0,0 +1,54 @@
+package com.buddy.agent.openai;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Time until an LLM backend sends the first delta of a completion (or fails). Recorded as the
+// openai.completions.first.token timer, and kept as an exponentially weighted moving average that
+// admission control can read cheaply on every request. Covers every backend; each OpenAiClient also
+// keeps a p95 of its own to set its hedging delay.
+@Component
+public class CompletionLatency {
+    
+    private static final double ALPHA = 0.2;
+    
+    private final Timer firstToken;
+    private final AtomicLong ewmaBits = new AtomicLong(Double.doubleToLongBits(0));
+    
+    public CompletionLatency(MeterRegistry meterRegistry) {
+        this.firstToken = Timer.builder("openai.completions.first.token")
+            .description("Time until the first streamed delta of a chat completion")
+            .register(meterRegistry);
+    }
+    
+    public void record(long nanos) {
+        firstToken.record(nanos, TimeUnit.NANOSECONDS);
+        long current;
+        long next;
+        do {
+            current = ewmaBits.get();
+            double ewma = Double.longBitsToDouble(current);
+            next = Double.doubleToLongBits(ewma == 0 ? nanos : ewma + ALPHA * (nanos - ewma));
+        } while (!ewmaBits.compareAndSet(current, next));
+    }
+    
+    public Duration current() {
+        return Duration.ofNanos((long) Double.longBitsToDouble(ewmaBits.get()));
+    }
+    
+    // For timers registered with publishPercentiles(0.95); zero until there are samples
+    public static Duration p95(Timer timer) {
+        for (ValueAtPercentile value : timer.takeSnapshot().percentileValues()) {
+            if (value.percentile() == 0.95) {
+                return Duration.ofNanos((long) value.value(TimeUnit.NANOSECONDS));
+            }
+        }
+        return Duration.ZERO;
+    }
+}
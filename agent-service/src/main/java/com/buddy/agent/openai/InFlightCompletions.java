@@ -0,0 +1,55 @@
+package com.buddy.agent.openai;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Flux;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+// Single-flight for streamed completions: concurrent callers with the same key share one upstream
+// stream. Late joiners first receive the deltas already emitted. The upstream is cancelled only when
+// its last subscriber cancels, and the key is released as soon as the upstream terminates, so a
+// request arriving after that starts a fresh call.
+public class InFlightCompletions {
+    
+    private final Map<String, Flux<CompletionDelta>> inFlight = new ConcurrentHashMap<>();
+    private final Counter joined;
+    
+    public InFlightCompletions(String backend, MeterRegistry meterRegistry) {
+        Gauge.builder("openai.completions.inflight", inFlight, Map::size)
+            .tag("backend", backend)
+            .register(meterRegistry);
+        this.joined = Counter.builder("openai.completions.coalesced")
+            .description("Completion requests served by an identical in-flight stream")
+            .tag("backend", backend)
+            .register(meterRegistry);
+    }
+    
+    public Flux<CompletionDelta> join(String key, Supplier<Flux<CompletionDelta>> upstream) {
+        return Flux.defer(() -> {
+            boolean[] created = new boolean[1];
+            Flux<CompletionDelta> shared = inFlight.computeIfAbsent(key, k -> {
+                created[0] = true;
+                return share(k, upstream.get());
+            });
+            if (!created[0]) {
+                joined.increment();
+            }
+            return shared;
+        });
+    }
+    
+    private Flux<CompletionDelta> share(String key, Flux<CompletionDelta> upstream) {
+        AtomicReference<Flux<CompletionDelta>> self = new AtomicReference<>();
+        Flux<CompletionDelta> shared = upstream
+            .doFinally(signal -> inFlight.remove(key, self.get()))
+            .replay()
+            .refCount();
+        self.set(shared);
+        return shared;
+    }
+}
@@ -1,103 +1,171 @@
 package com.buddy.agent.openai;
 
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.stereotype.Component;
+import com.buddy.agent.client.HttpClientFactory;
+import com.buddy.agent.llm.LlmProvider;
+import com.buddy.agent.resilience.CircuitBreaker;
+import com.buddy.agent.resilience.ResilienceFactory;
+import com.buddy.agent.resilience.UpstreamResilience;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.RawValue;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.MediaType;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Flux;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
-@Component
-public class OpenAiClient {
-    
-    private static final Logger logger = LoggerFactory.getLogger(OpenAiClient.class);
+// Backend for OpenAI and for OpenAI-compatible servers (vLLM, llama.cpp, Ollama, ...). The backend name
+// selects the http.client.<name> pool and the resilience.<name> policy.
+public class OpenAiClient implements LlmProvider {
     
+    private final String name;
     private final WebClient webClient;
-    private final String apiKey;
     private final String chatModel;
+    private final ObjectMapper objectMapper;
+    private final InFlightCompletions inFlight;
+    private final CompletionLatency latency;
+    private final Timer attemptLatency;
+    private final UpstreamResilience resilience;
     
-    public OpenAiClient(@Value("${openai.apiKey}") String apiKey,
-                       @Value("${openai.chatModel}") String chatModel) {
-        this.apiKey = apiKey;
+    public OpenAiClient(String name,
+                       String baseUrl,
+                       String apiKey,
+                       String chatModel,
+                       boolean coalesceRequests,
+                       HttpClientFactory httpClientFactory,
+                       ResilienceFactory resilienceFactory,
+                       ObjectMapper objectMapper,
+                       CompletionLatency latency,
+                       MeterRegistry meterRegistry) {
+        this.name = name;
         this.chatModel = chatModel;
-        this.webClient = WebClient.builder()
-            .baseUrl("https://api.openai.com/v1")
-            .defaultHeader("Authorization", "Bearer " + apiKey)
-            .defaultHeader("Content-Type", "application/json")
-            .build();
+        this.objectMapper = objectMapper;
+        this.latency = latency;
+        this.attemptLatency = Timer.builder("llm.backend.attempt.first.token")
+            .description("Time until the first streamed delta of one request to this backend")
+            .tag("backend", name)
+            .publishPercentiles(0.95)
+            .register(meterRegistry);
+        this.inFlight = coalesceRequests ? new InFlightCompletions(name, meterRegistry) : null;
+        this.resilience = resilienceFactory.forTarget(name, () -> CompletionLatency.p95(attemptLatency));
+        WebClient.Builder builder = httpClientFactory.webClientBuilder(name, baseUrl)
+            .defaultHeader("Content-Type", "application/json");
+        if (apiKey != null && !apiKey.isBlank()) {
+            // Local servers usually run without a key
+            builder.defaultHeader("Authorization", "Bearer " + apiKey);
+        }
+        this.webClient = builder.build();
     }
     
-    public Flux<String> streamChatCompletion(String conversationHistory, String userMessage) {
-        String systemPrompt = "You are Buddy, a helpful AI assistant. Be concise, friendly, and helpful.";
-        
+    @Override
+    public String getName() {
+        return name;
+    }
+    
+    @Override
+    public String getModel() {
+        return name + "/" + chatModel;
+    }
+    
+    @Override
+    public boolean isAvailable() {
+        return resilience.getCircuitState() != CircuitBreaker.State.OPEN;
+    }
+    
+    // Streams content, tool call and finish deltas. Until the first delta arrives the call is guarded by
+    // the resilience.<name> policy (first-token timeout, hedging, budgeted retries, circuit breaker);
+    // failures that remain are passed on for the router to fail over. Byte-identical requests in
+    // flight at the same time share one upstream stream.
+    @Override
+    public Flux<CompletionDelta> streamChatCompletion(List<ChatMessage> messages, OpenAiTools tools) {
         ChatCompletionRequest request = new ChatCompletionRequest();
         request.setModel(chatModel);
         request.setStream(true);
-        request.setMessages(List.of(
-            new Message("system", systemPrompt),
-            new Message("user", conversationHistory + "\n\nUser: " + userMessage)
-        ));
+        request.setMessages(messages);
+        request.setTools(tools.getJson());
         
-        return webClient.post()
-            .uri("/chat/completions")
-            .bodyValue(request)
-            .retrieve()
-            .bodyToFlux(String.class)
-            .filter(chunk -> chunk.contains("\"delta\""))
-            .map(this::extractTokenFromChunk)
-            .filter(token -> token != null && !token.isEmpty())
-            .onErrorResume(error -> {
-                logger.error("Error calling OpenAI API", error);
-                return Flux.just("I apologize, but I'm experiencing technical difficulties. Please try again later.");
-            });
+        // Serialized once: the same bytes are the coalescing key and the request body
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(request);
+        } catch (JsonProcessingException e) {
+            return Flux.error(e);
+        }
+        if (inFlight == null) {
+            return stream(body);
+        }
+        return inFlight.join(sha256(body), () -> stream(body));
     }
     
-    private String extractTokenFromChunk(String chunk) {
+    private Flux<CompletionDelta> stream(byte[] body) {
+        return resilience.execute(() -> attempt(body));
+    }
+    
+    private Flux<CompletionDelta> attempt(byte[] body) {
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            boolean[] recorded = new boolean[1];
+            return webClient.post()
+                .uri("/chat/completions")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(body)
+                .retrieve()
+                .bodyToFlux(DataBuffer.class)
+                .transform(SseCompletionDecoder::decode)
+                // Time to the first delta (or failure) is the upstream latency signal for admission control
+                // and hedging. An attempt cancelled before that (timed out, or lost a hedge race) was at
+                // least this slow, so its elapsed time is recorded too.
+                .doOnEach(signal -> {
+                    if (!recorded[0] && (signal.isOnNext() || signal.isOnError())) {
+                        recorded[0] = true;
+                        record(System.nanoTime() - start);
+                    }
+                })
+                .doOnCancel(() -> {
+                    if (!recorded[0]) {
+                        recorded[0] = true;
+                        record(System.nanoTime() - start);
+                    }
+                });
+        });
+    }
+    
+    private void record(long nanos) {
+        latency.record(nanos);
+        attemptLatency.record(nanos, TimeUnit.NANOSECONDS);
+    }
+    
+    private static String sha256(byte[] bytes) {
         try {
-            // Simple extraction - in production, use proper JSON parsing
-            if (chunk.contains("\"content\"")) {
-                int start = chunk.indexOf("\"content\":") + 11;
-                int end = chunk.indexOf("\"", start);
-                if (end > start) {
-                    return chunk.substring(start, end);
-                }
-            }
-            return null;
-        } catch (Exception e) {
-            logger.warn("Failed to extract token from chunk", e);
-            return null;
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
         }
     }
     
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private static class ChatCompletionRequest {
         private String model;
         private boolean stream;
-        private List<Message> messages;
+        private List<ChatMessage> messages;
+        private RawValue tools;
         
         // Getters and Setters
         public String getModel() { return model; }
         public void setModel(String model) { this.model = model; }
         public boolean isStream() { return stream; }
         public void setStream(boolean stream) { this.stream = stream; }
-        public List<Message> getMessages() { return messages; }
-        public void setMessages(List<Message> messages) { this.messages = messages; }
-    }
-    
-    private static class Message {
-        private String role;
-        private String content;
-        
-        public Message(String role, String content) {
-            this.role = role;
-            this.content = content;
-        }
-        
-        // Getters and Setters
-        public String getRole() { return role; }
-        public void setRole(String role) { this.role = role; }
-        public String getContent() { return content; }
-        public void setContent(String content) { this.content = content; }
+        public List<ChatMessage> getMessages() { return messages; }
+        public void setMessages(List<ChatMessage> messages) { this.messages = messages; }
+        public RawValue getTools() { return tools; }
+        public void setTools(RawValue tools) { this.tools = tools; }
     }
 }
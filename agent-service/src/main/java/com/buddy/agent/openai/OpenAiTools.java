@@ -0,0 +1,69 @@
+package com.buddy.agent.openai;
+
+import com.buddy.common.tool.ToolSpec;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.RawValue;
+
+import java.util.List;
+import java.util.Map;
+
+// A tool catalog rendered once into the OpenAI "tools" array. SerializedString caches its UTF-8
+// bytes, so every completion request writes the same bytes without re-serializing the catalog.
+public class OpenAiTools {
+    
+    public static final OpenAiTools NONE = new OpenAiTools(List.of(), null);
+    
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    
+    private final List<ToolSpec> specs;
+    private final RawValue json;
+    
+    private OpenAiTools(List<ToolSpec> specs, RawValue json) {
+        this.specs = specs;
+        this.json = json;
+    }
+    
+    public static OpenAiTools of(List<ToolSpec> specs) {
+        if (specs.isEmpty()) {
+            return NONE;
+        }
+        try {
+            String json = MAPPER.writeValueAsString(specs.stream().map(OpenAiTools::toFunctionTool).toList());
+            return new OpenAiTools(List.copyOf(specs), new RawValue(new SerializedString(json)));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize tool definitions", e);
+        }
+    }
+    
+    public boolean isEmpty() {
+        return specs.isEmpty();
+    }
+    
+    public List<ToolSpec> getSpecs() {
+        return specs;
+    }
+    
+    // Written verbatim by Jackson; null when there are no tools
+    public RawValue getJson() {
+        return json;
+    }
+    
+    // Buddy tools take a single free-form string, described by the tool's inputSchema
+    private static Map<String, Object> toFunctionTool(ToolSpec tool) {
+        Map<String, Object> parameters = Map.of(
+            "type", "object",
+            "properties", Map.of("input", Map.of("type", "string", "description", tool.getInputSchema())),
+            "required", List.of("input")
+        );
+        return Map.of(
+            "type", "function",
+            "function", Map.of(
+                "name", tool.getName(),
+                "description", tool.getDescription(),
+                "parameters", parameters
+            )
+        );
+    }
+}
@@ -0,0 +1,252 @@
+package com.buddy.agent.openai;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+// Incremental decoder for OpenAI's streamed chat completions. SSE lines are framed byte by byte
+// across network buffers, and the payload of each "data:" line is fed straight into a non-blocking
+// Jackson parser, so neither frames nor JSON documents are copied into intermediate Strings.
+// One instance per response stream; not thread-safe.
+public class SseCompletionDecoder {
+    
+    private static final Logger logger = LoggerFactory.getLogger(SseCompletionDecoder.class);
+    
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final byte[] DATA_FIELD = {'d', 'a', 't', 'a', ':'};
+    
+    private enum LineState {
+        FIELD,      // matching "data:" at the start of a line
+        LEADING,    // after "data:", before the first payload byte
+        PAYLOAD,    // streaming payload bytes into the JSON parser
+        SKIP        // comment, other field, [DONE] or a line we gave up on
+    }
+    
+    private JsonParser parser;
+    private LineState lineState = LineState.FIELD;
+    private int fieldMatched;
+    private boolean lastWasCarriageReturn;
+    private boolean done;
+    
+    // Fields of the tool call object currently being parsed
+    private int toolCallIndex;
+    private String toolCallId;
+    private String toolName;
+    private String toolArguments;
+    
+    public SseCompletionDecoder() {
+        this.parser = newParser();
+    }
+    
+    public static Flux<CompletionDelta> decode(Flux<DataBuffer> body) {
+        return Flux.defer(() -> {
+            SseCompletionDecoder decoder = new SseCompletionDecoder();
+            return body
+                .concatMapIterable(buffer -> {
+                    try {
+                        return decoder.decode(buffer);
+                    } finally {
+                        DataBufferUtils.release(buffer);
+                    }
+                })
+                .doFinally(signal -> decoder.close());
+        });
+    }
+    
+    public List<CompletionDelta> decode(DataBuffer buffer) {
+        List<CompletionDelta> out = new ArrayList<>(4);
+        try (DataBuffer.ByteBufferIterator iterator = buffer.readableByteBuffers()) {
+            while (iterator.hasNext()) {
+                decode(iterator.next(), out);
+            }
+        }
+        return out;
+    }
+    
+    public void decode(ByteBuffer in, List<CompletionDelta> out) {
+        int limit = in.limit();
+        int payloadStart = lineState == LineState.PAYLOAD ? in.position() : -1;
+        
+        for (int i = in.position(); i < limit && !done; i++) {
+            byte b = in.get(i);
+            
+            if (b == '\n' || b == '\r') {
+                if (b == '\n' && lastWasCarriageReturn) {
+                    lastWasCarriageReturn = false;
+                    continue;
+                }
+                lastWasCarriageReturn = b == '\r';
+                if (payloadStart >= 0) {
+                    feed(in, payloadStart, i, out);
+                    payloadStart = -1;
+                }
+                endLine();
+                continue;
+            }
+            lastWasCarriageReturn = false;
+            
+            switch (lineState) {
+                case FIELD -> {
+                    if (b == DATA_FIELD[fieldMatched]) {
+                        if (++fieldMatched == DATA_FIELD.length) {
+                            lineState = LineState.LEADING;
+                        }
+                    } else {
+                        lineState = LineState.SKIP;
+                    }
+                }
+                case LEADING -> {
+                    if (b == '[') {
+                        // "data: [DONE]" is the only non-object payload OpenAI sends
+                        done = true;
+                    } else if (b != ' ') {
+                        lineState = LineState.PAYLOAD;
+                        payloadStart = i;
+                    }
+                }
+                default -> {
+                    // PAYLOAD bytes are fed in bulk; SKIP bytes are ignored
+                }
+            }
+        }
+        
+        if (payloadStart >= 0 && !done) {
+            feed(in, payloadStart, limit, out);
+        }
+        in.position(limit);
+    }
+    
+    public boolean isDone() {
+        return done;
+    }
+    
+    public void close() {
+        try {
+            parser.close();
+        } catch (IOException e) {
+            // nothing to release beyond the parser's own buffers
+        }
+    }
+    
+    private void endLine() {
+        if (lineState == LineState.FIELD && fieldMatched == 0 && parser.getParsingContext().inObject()) {
+            // Blank line ends the event; a document still open here is truncated
+            logger.warn("Discarding incomplete JSON at end of SSE event");
+            resetParser();
+        }
+        lineState = LineState.FIELD;
+        fieldMatched = 0;
+    }
+    
+    private void feed(ByteBuffer in, int from, int to, List<CompletionDelta> out) {
+        if (from >= to) {
+            return;
+        }
+        try {
+            ((ByteBufferFeeder) parser.getNonBlockingInputFeeder()).feedInput(in.duplicate().limit(to).position(from));
+            JsonToken token;
+            while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                onToken(token, out);
+            }
+        } catch (IOException e) {
+            logger.warn("Skipping malformed completion chunk: {}", e.getMessage());
+            resetParser();
+            lineState = LineState.SKIP;
+        }
+    }
+    
+    private void onToken(JsonToken token, List<CompletionDelta> out) throws IOException {
+        JsonStreamContext ctx = parser.getParsingContext();
+        switch (token) {
+            case VALUE_STRING -> {
+                String field = ctx.getCurrentName();
+                if ("content".equals(field) && isDelta(ctx)) {
+                    out.add(CompletionDelta.content(parser.getText()));
+                } else if ("finish_reason".equals(field) && isChoice(ctx)) {
+                    out.add(CompletionDelta.finish(parser.getText()));
+                } else if ("id".equals(field) && isToolCall(ctx)) {
+                    toolCallId = parser.getText();
+                } else if (isToolFunction(ctx)) {
+                    if ("name".equals(field)) {
+                        toolName = parser.getText();
+                    } else if ("arguments".equals(field)) {
+                        toolArguments = parser.getText();
+                    }
+                }
+            }
+            case VALUE_NUMBER_INT -> {
+                if ("index".equals(ctx.getCurrentName()) && isToolCall(ctx)) {
+                    toolCallIndex = parser.getIntValue();
+                }
+            }
+            case END_OBJECT -> {
+                // The context is already back on the enclosing tool_calls array
+                if (ctx.inArray() && ctx.getParent() != null && "tool_calls".equals(ctx.getParent().getCurrentName())
+                        && isDelta(ctx.getParent())) {
+                    out.add(CompletionDelta.toolCall(toolCallIndex, toolCallId, toolName, toolArguments));
+                    toolCallIndex = 0;
+                    toolCallId = null;
+                    toolName = null;
+                    toolArguments = null;
+                }
+            }
+            default -> {
+            }
+        }
+    }
+    
+    // {"choices": [ <ctx> ]} at the document root
+    private static boolean isChoice(JsonStreamContext ctx) {
+        JsonStreamContext array = ctx.getParent();
+        if (!ctx.inObject() || array == null || !array.inArray()) {
+            return false;
+        }
+        JsonStreamContext root = array.getParent();
+        return root != null && root.inObject() && "choices".equals(root.getCurrentName())
+            && root.getParent() != null && root.getParent().inRoot();
+    }
+    
+    // choices[].delta
+    private static boolean isDelta(JsonStreamContext ctx) {
+        JsonStreamContext choice = ctx.getParent();
+        return ctx.inObject() && choice != null && "delta".equals(choice.getCurrentName()) && isChoice(choice);
+    }
+    
+    // choices[].delta.tool_calls[]
+    private static boolean isToolCall(JsonStreamContext ctx) {
+        JsonStreamContext array = ctx.getParent();
+        return ctx.inObject() && array != null && array.inArray() && array.getParent() != null
+            && "tool_calls".equals(array.getParent().getCurrentName()) && isDelta(array.getParent());
+    }
+    
+    // choices[].delta.tool_calls[].function
+    private static boolean isToolFunction(JsonStreamContext ctx) {
+        JsonStreamContext call = ctx.getParent();
+        return ctx.inObject() && call != null && "function".equals(call.getCurrentName()) && isToolCall(call);
+    }
+    
+    private void resetParser() {
+        close();
+        parser = newParser();
+    }
+    
+    private static JsonParser newParser() {
+        try {
+            return JSON_FACTORY.createNonBlockingByteBufferParser();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot create non-blocking JSON parser", e);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.buddy.agent.openai;
+
+// A function call requested by the model, as echoed back in the assistant message
+public class ToolCall {
+    private String id;
+    private String type = "function";
+    private Function function;
+    
+    public ToolCall() {}
+    
+    public ToolCall(String id, String name, String arguments) {
+        this.id = id;
+        this.function = new Function(name, arguments);
+    }
+    
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+    public Function getFunction() { return function; }
+    public void setFunction(Function function) { this.function = function; }
+    
+    public static class Function {
+        private String name;
+        private String arguments;
+        
+        public Function() {}
+        
+        public Function(String name, String arguments) {
+            this.name = name;
+            this.arguments = arguments;
+        }
+        
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+        public String getArguments() { return arguments; }
+        public void setArguments(String arguments) { this.arguments = arguments; }
+    }
+}
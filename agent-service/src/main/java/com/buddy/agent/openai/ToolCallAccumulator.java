@@ -0,0 +1,42 @@
+package com.buddy.agent.openai;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Reassembles tool calls from the TOOL_CALL fragments of one streamed completion
+public class ToolCallAccumulator {
+    
+    private final Map<Integer, Builder> calls = new TreeMap<>();
+    
+    public void add(CompletionDelta delta) {
+        Builder builder = calls.computeIfAbsent(delta.getToolCallIndex(), index -> new Builder());
+        if (delta.getToolCallId() != null) {
+            builder.id = delta.getToolCallId();
+        }
+        if (delta.getToolName() != null) {
+            builder.name = delta.getToolName();
+        }
+        if (delta.getContent() != null) {
+            builder.arguments.append(delta.getContent());
+        }
+    }
+    
+    public boolean isEmpty() {
+        return calls.isEmpty();
+    }
+    
+    // In index order, as the model listed them
+    public List<ToolCall> build() {
+        List<ToolCall> result = new ArrayList<>(calls.size());
+        calls.values().forEach(builder -> result.add(new ToolCall(builder.id, builder.name, builder.arguments.toString())));
+        return result;
+    }
+    
+    private static class Builder {
+        private String id;
+        private String name;
+        private final StringBuilder arguments = new StringBuilder();
+    }
+}
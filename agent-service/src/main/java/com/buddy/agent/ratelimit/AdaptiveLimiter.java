@@ -0,0 +1,93 @@
+package com.buddy.agent.ratelimit;
+
+import com.buddy.agent.client.HttpClientFactory;
+import com.buddy.agent.openai.CompletionLatency;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Global cap on concurrent chat streams that adapts to upstream health (AIMD). At most once per
+// sampleInterval the OpenAI first-token latency average and the number of requests waiting for an
+// OpenAI connection are compared with their thresholds: when either is over, the limit is cut by a
+// quarter (down to minStreams), otherwise it grows back by 2% of maxStreams. New streams beyond the
+// current limit are shed, so a slow upstream sheds load instead of queueing it.
+@Component
+public class AdaptiveLimiter {
+    
+    private final int maxStreams;
+    private final int minStreams;
+    private final int increase;
+    private final long latencyThresholdNanos;
+    private final double pendingThreshold;
+    private final long sampleIntervalNanos;
+    private final Duration retryAfter;
+    private final CompletionLatency latency;
+    private final HttpClientFactory httpClientFactory;
+    
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong nextSample = new AtomicLong(System.nanoTime());
+    private volatile int limit;
+    
+    public AdaptiveLimiter(@Value("${agent.rateLimit.adaptive.maxStreams:500}") int maxStreams,
+                           @Value("${agent.rateLimit.adaptive.minStreams:20}") int minStreams,
+                           @Value("${agent.rateLimit.adaptive.latencyThreshold:PT5S}") Duration latencyThreshold,
+                           @Value("${agent.rateLimit.adaptive.pendingThreshold:200}") double pendingThreshold,
+                           @Value("${agent.rateLimit.adaptive.sampleInterval:PT1S}") Duration sampleInterval,
+                           @Value("${agent.rateLimit.retryAfter:PT5S}") Duration retryAfter,
+                           CompletionLatency latency,
+                           HttpClientFactory httpClientFactory,
+                           MeterRegistry meterRegistry) {
+        this.maxStreams = maxStreams;
+        this.minStreams = Math.min(minStreams, maxStreams);
+        this.increase = Math.max(1, maxStreams / 50);
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.pendingThreshold = pendingThreshold;
+        this.sampleIntervalNanos = sampleInterval.toNanos();
+        this.retryAfter = retryAfter;
+        this.latency = latency;
+        this.httpClientFactory = httpClientFactory;
+        this.limit = maxStreams;
+        
+        Gauge.builder("agent.admission.limit", this, AdaptiveLimiter::getLimit).register(meterRegistry);
+        Gauge.builder("agent.admission.streams", inFlight, AtomicInteger::get).register(meterRegistry);
+    }
+    
+    public Admission tryAcquire() {
+        adjust();
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= limit) {
+                return Admission.rejected("overload", retryAfter);
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return Admission.ALLOWED;
+    }
+    
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+    
+    public int getLimit() {
+        return limit;
+    }
+    
+    private void adjust() {
+        long now = System.nanoTime();
+        long due = nextSample.get();
+        // One caller per interval re-evaluates; everyone else uses the current limit
+        if (now - due < 0 || !nextSample.compareAndSet(due, now + sampleIntervalNanos)) {
+            return;
+        }
+        boolean overloaded = latency.current().toNanos() > latencyThresholdNanos
+            || httpClientFactory.pendingAcquires("openai") > pendingThreshold;
+        limit = overloaded
+            ? Math.max(minStreams, limit - limit / 4)
+            : Math.min(maxStreams, limit + increase);
+    }
+}
@@ -0,0 +1,34 @@
+package com.buddy.agent.ratelimit;
+
+import java.time.Duration;
+
+// Outcome of an admission check; rejections carry the reason (used as a metric tag) and how long
+// the client should wait before retrying
+public final class Admission {
+    
+    public static final Admission ALLOWED = new Admission(null, Duration.ZERO);
+    
+    private final String reason;
+    private final Duration retryAfter;
+    
+    private Admission(String reason, Duration retryAfter) {
+        this.reason = reason;
+        this.retryAfter = retryAfter;
+    }
+    
+    public static Admission rejected(String reason, Duration retryAfter) {
+        return new Admission(reason, retryAfter);
+    }
+    
+    public boolean isAllowed() {
+        return reason == null;
+    }
+    
+    public String getReason() {
+        return reason;
+    }
+    
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
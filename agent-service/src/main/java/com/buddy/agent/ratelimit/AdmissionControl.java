@@ -0,0 +1,108 @@
+package com.buddy.agent.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Admission decisions shared by every chat transport (HTTP and WebSocket). A request spends a token
+// from the caller's user bucket and, when the session is known, from the session's bucket. A stream
+// (one chat turn) additionally needs a slot under the per-user stream cap and under the adaptive
+// global limit; an admitted stream holds both until release(). Rejections are counted as
+// agent.ratelimit.rejections{reason=user|session|streams|overload}.
+@Component
+public class AdmissionControl {
+    
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionControl.class);
+    
+    private final boolean enabled;
+    private final RateLimiter rateLimiter;
+    private final AdaptiveLimiter adaptiveLimiter;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Counter> rejections = new ConcurrentHashMap<>();
+    
+    public AdmissionControl(@Value("${agent.rateLimit.enabled:true}") boolean enabled,
+                            RateLimiter rateLimiter,
+                            AdaptiveLimiter adaptiveLimiter,
+                            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.rateLimiter = rateLimiter;
+        this.adaptiveLimiter = adaptiveLimiter;
+        this.meterRegistry = meterRegistry;
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    public Mono<Admission> admitRequest(String user, String sessionId) {
+        if (!enabled) {
+            return Mono.just(Admission.ALLOWED);
+        }
+        return consume(user, sessionId).doOnNext(this::count);
+    }
+    
+    // Slots are taken on subscription; an allowed stream must be handed back with release(user) once it ends
+    public Mono<Admission> admitStream(String user, String sessionId) {
+        if (!enabled) {
+            return Mono.just(Admission.ALLOWED);
+        }
+        return Mono.defer(() -> {
+            // Slots are checked before tokens so a rejected stream does not also use up the rate
+            Admission global = adaptiveLimiter.tryAcquire();
+            if (!global.isAllowed()) {
+                count(global);
+                return Mono.just(global);
+            }
+            Admission perUser = rateLimiter.tryOpenStream(user);
+            if (!perUser.isAllowed()) {
+                adaptiveLimiter.release();
+                count(perUser);
+                return Mono.just(perUser);
+            }
+            return consume(user, sessionId)
+                .doOnNext(admission -> {
+                    if (!admission.isAllowed()) {
+                        release(user);
+                        count(admission);
+                    }
+                })
+                // Caller gave up before the decision arrived, so nobody will release the slots
+                .doOnCancel(() -> release(user));
+        });
+    }
+    
+    public void release(String user) {
+        if (enabled) {
+            rateLimiter.closeStream(user);
+            adaptiveLimiter.release();
+        }
+    }
+    
+    private Mono<Admission> consume(String user, String sessionId) {
+        Mono<Admission> rate = Mono.fromCallable(() -> rateLimiter.tryConsume(user, sessionId));
+        if (rateLimiter.isBlocking()) {
+            rate = rate.subscribeOn(Schedulers.boundedElastic());
+        }
+        return rate.onErrorResume(error -> {
+            // A shared store outage must not take chat down with it: fail open, keep the stream caps
+            logger.warn("Rate-limit store unavailable, admitting request: {}", error.getMessage());
+            return Mono.just(Admission.ALLOWED);
+        });
+    }
+    
+    private void count(Admission admission) {
+        if (!admission.isAllowed()) {
+            rejections.computeIfAbsent(admission.getReason(), reason -> Counter.builder("agent.ratelimit.rejections")
+                .tag("reason", reason)
+                .register(meterRegistry)).increment();
+        }
+    }
+}
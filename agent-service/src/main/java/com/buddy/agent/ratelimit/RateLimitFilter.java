@@ -0,0 +1,172 @@
+package com.buddy.agent.ratelimit;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.security.Principal;
+import java.util.Set;
+
+// Applies AdmissionControl to /api/chat/**: POST /api/chat/stream and /api/chat/voice are admitted as
+// streams whose slots are held until the response completes or the client goes away, everything else
+// as a plain request.
+// Rejections are 429 with Retry-After.
+//
+// The caller is the authenticated principal, or the client address for anonymous requests. The
+// session comes from the X-Session-Id header, a /sessions/{id} path segment, or the sessionId field
+// of a JSON body; a body that has to be read for that is buffered and handed on unchanged.
+@Component
+public class RateLimitFilter implements WebFilter, Ordered {
+    
+    static final String SESSION_HEADER = "X-Session-Id";
+    
+    private static final String CHAT_PATH = "/api/chat/";
+    private static final Set<String> STREAM_PATHS = Set.of("/api/chat/stream", "/api/chat/voice");
+    private static final String SESSIONS_SEGMENT = "sessions/";
+    private static final int MAX_BODY_BYTES = 256 * 1024;
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    
+    private final AdmissionControl admissionControl;
+    
+    public RateLimitFilter(AdmissionControl admissionControl) {
+        this.admissionControl = admissionControl;
+    }
+    
+    // After Spring Security's filter chain (-100), so the principal is available
+    @Override
+    public int getOrder() {
+        return 0;
+    }
+    
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (!admissionControl.isEnabled() || !exchange.getRequest().getPath().value().startsWith(CHAT_PATH)) {
+            return chain.filter(exchange);
+        }
+        return exchange.getPrincipal()
+            .map(Principal::getName)
+            .defaultIfEmpty(clientAddress(exchange.getRequest()))
+            .flatMap(user -> withSessionId(exchange, (scoped, sessionId) -> admit(scoped, chain, user, sessionId)));
+    }
+    
+    private Mono<Void> admit(ServerWebExchange exchange, WebFilterChain chain, String user, String sessionId) {
+        ServerHttpRequest request = exchange.getRequest();
+        boolean stream = request.getMethod() == HttpMethod.POST && STREAM_PATHS.contains(request.getPath().value());
+        
+        if (!stream) {
+            return admissionControl.admitRequest(user, sessionId)
+                .flatMap(admission -> admission.isAllowed() ? chain.filter(exchange) : reject(exchange, admission));
+        }
+        return admissionControl.admitStream(user, sessionId)
+            .flatMap(admission -> {
+                if (!admission.isAllowed()) {
+                    return reject(exchange, admission);
+                }
+                return chain.filter(exchange).doFinally(signal -> admissionControl.release(user));
+            });
+    }
+    
+    private Mono<Void> reject(ServerWebExchange exchange, Admission admission) {
+        long seconds = Math.max(1, (admission.getRetryAfter().toMillis() + 999) / 1000);
+        exchange.getResponse().setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(seconds));
+        return exchange.getResponse().setComplete();
+    }
+    
+    @FunctionalInterface
+    private interface SessionScoped {
+        Mono<Void> apply(ServerWebExchange exchange, String sessionId);
+    }
+    
+    private Mono<Void> withSessionId(ServerWebExchange exchange, SessionScoped next) {
+        ServerHttpRequest request = exchange.getRequest();
+        String sessionId = request.getHeaders().getFirst(SESSION_HEADER);
+        if (sessionId == null) {
+            sessionId = fromPath(request.getPath().value());
+        }
+        if (sessionId != null || !hasJsonBody(request)) {
+            return next.apply(exchange, sessionId);
+        }
+        
+        return DataBufferUtils.join(request.getBody(), MAX_BODY_BYTES)
+            .map(buffer -> {
+                byte[] body = new byte[buffer.readableByteCount()];
+                buffer.read(body);
+                DataBufferUtils.release(buffer);
+                return body;
+            })
+            .defaultIfEmpty(new byte[0])
+            .onErrorMap(DataBufferLimitException.class,
+                error -> new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, error.getMessage()))
+            .flatMap(body -> {
+                ServerHttpRequest replayable = new ServerHttpRequestDecorator(request) {
+                    @Override
+                    public Flux<DataBuffer> getBody() {
+                        return Flux.defer(() -> Flux.just(exchange.getResponse().bufferFactory().wrap(body)));
+                    }
+                };
+                return next.apply(exchange.mutate().request(replayable).build(), fromJson(body));
+            });
+    }
+    
+    private static boolean hasJsonBody(ServerHttpRequest request) {
+        MediaType contentType = request.getHeaders().getContentType();
+        return request.getMethod() == HttpMethod.POST && contentType != null
+            && contentType.isCompatibleWith(MediaType.APPLICATION_JSON);
+    }
+    
+    static String fromPath(String path) {
+        int start = path.indexOf(SESSIONS_SEGMENT);
+        if (start < 0) {
+            return null;
+        }
+        start += SESSIONS_SEGMENT.length();
+        int end = path.indexOf('/', start);
+        String id = end < 0 ? path.substring(start) : path.substring(start, end);
+        return id.isEmpty() ? null : id;
+    }
+    
+    // Top-level "sessionId" string of a JSON object, without binding the whole document
+    static String fromJson(byte[] body) {
+        try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("sessionId".equals(field) && value == JsonToken.VALUE_STRING) {
+                    return parser.getText();
+                }
+                parser.skipChildren();
+            }
+        } catch (IOException e) {
+            // Malformed bodies are rejected by the controller; only the user bucket applies here
+        }
+        return null;
+    }
+    
+    private static String clientAddress(ServerHttpRequest request) {
+        InetSocketAddress address = request.getRemoteAddress();
+        return address == null ? "anonymous" : address.getHostString();
+    }
+}
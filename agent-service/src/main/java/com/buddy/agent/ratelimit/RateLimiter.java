@@ -0,0 +1,94 @@
+package com.buddy.agent.ratelimit;
+
+import com.buddy.agent.state.BucketStore;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConsumptionProbe;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Per-user and per-session token buckets plus a cap on each user's open chat streams. Buckets come
+// from the configured BucketStore (local to this node or shared by all replicas); the stream cap is
+// always per node, since a stream is tied to the node holding its connection.
+@Component
+public class RateLimiter {
+    
+    private final BucketStore bucketStore;
+    private final BucketConfiguration userLimit;
+    private final BucketConfiguration sessionLimit;
+    private final int maxStreamsPerUser;
+    private final Duration streamRetryAfter;
+    
+    private final Map<String, Integer> openStreams = new ConcurrentHashMap<>();
+    
+    public RateLimiter(BucketStore bucketStore,
+                       @Value("${agent.rateLimit.user.capacity:30}") long userCapacity,
+                       @Value("${agent.rateLimit.user.refillPeriod:PT1M}") Duration userRefillPeriod,
+                       @Value("${agent.rateLimit.session.capacity:10}") long sessionCapacity,
+                       @Value("${agent.rateLimit.session.refillPeriod:PT1M}") Duration sessionRefillPeriod,
+                       @Value("${agent.rateLimit.maxStreamsPerUser:3}") int maxStreamsPerUser,
+                       @Value("${agent.rateLimit.retryAfter:PT5S}") Duration streamRetryAfter) {
+        this.bucketStore = bucketStore;
+        this.userLimit = limit(userCapacity, userRefillPeriod);
+        this.sessionLimit = limit(sessionCapacity, sessionRefillPeriod);
+        this.maxStreamsPerUser = maxStreamsPerUser;
+        this.streamRetryAfter = streamRetryAfter;
+    }
+    
+    private static BucketConfiguration limit(long capacity, Duration refillPeriod) {
+        return BucketConfiguration.builder()
+            .addLimit(Bandwidth.builder().capacity(capacity).refillGreedy(capacity, refillPeriod).build())
+            .build();
+    }
+    
+    // Takes one token from the user's bucket and, when sessionId is known, one from the session's.
+    // A session rejection hands the user token back so it only counts against the session.
+    public Admission tryConsume(String user, String sessionId) {
+        Bucket userBucket = bucketStore.bucket("user:" + user, userLimit);
+        ConsumptionProbe probe = userBucket.tryConsumeAndReturnRemaining(1);
+        if (!probe.isConsumed()) {
+            return Admission.rejected("user", Duration.ofNanos(probe.getNanosToWaitForRefill()));
+        }
+        if (sessionId == null) {
+            return Admission.ALLOWED;
+        }
+        Bucket sessionBucket = bucketStore.bucket("session:" + user + "/" + sessionId, sessionLimit);
+        probe = sessionBucket.tryConsumeAndReturnRemaining(1);
+        if (!probe.isConsumed()) {
+            userBucket.addTokens(1);
+            return Admission.rejected("session", Duration.ofNanos(probe.getNanosToWaitForRefill()));
+        }
+        return Admission.ALLOWED;
+    }
+    
+    // True when tryConsume may wait on a shared store
+    public boolean isBlocking() {
+        return bucketStore.isBlocking();
+    }
+    
+    public Admission tryOpenStream(String user) {
+        boolean[] opened = new boolean[1];
+        openStreams.compute(user, (key, open) -> {
+            int current = open == null ? 0 : open;
+            if (current >= maxStreamsPerUser) {
+                return open;
+            }
+            opened[0] = true;
+            return current + 1;
+        });
+        return opened[0] ? Admission.ALLOWED : Admission.rejected("streams", streamRetryAfter);
+    }
+    
+    public void closeStream(String user) {
+        openStreams.computeIfPresent(user, (key, open) -> open <= 1 ? null : open - 1);
+    }
+    
+    public int openStreams(String user) {
+        return openStreams.getOrDefault(user, 0);
+    }
+}
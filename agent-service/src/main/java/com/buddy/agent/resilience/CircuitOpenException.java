@@ -0,0 +1,9 @@
+package com.buddy.agent.resilience;
+
+// Raised without calling the upstream while its circuit is open
+public class CircuitOpenException extends RuntimeException {
+    
+    public CircuitOpenException(String target) {
+        super("Circuit open for " + target);
+    }
+}
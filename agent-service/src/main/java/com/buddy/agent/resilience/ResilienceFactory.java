@@ -0,0 +1,63 @@
+package com.buddy.agent.resilience;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+// One UpstreamResilience per target, so each upstream has its own breaker and retry budget. Settings
+// are read from resilience.<target>.* and fall back to resilience.defaults.*, like the HTTP client
+// pools. Metrics are published as upstream.* tagged with the target name.
+@Component
+public class ResilienceFactory {
+    
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, UpstreamResilience> policies = new ConcurrentHashMap<>();
+    
+    public ResilienceFactory(Environment environment, MeterRegistry meterRegistry) {
+        this.environment = environment;
+        this.meterRegistry = meterRegistry;
+    }
+    
+    // latencyP95 is the target's recent p95 time to first item, used as the hedging delay
+    public UpstreamResilience forTarget(String target, Supplier<Duration> latencyP95) {
+        return policies.computeIfAbsent(target, name -> newPolicy(name, latencyP95));
+    }
+    
+    private UpstreamResilience newPolicy(String target, Supplier<Duration> latencyP95) {
+        RetryBudget budget = new RetryBudget(
+            setting(target, "retryBudgetRatio", Double.class, 0.1),
+            setting(target, "retryBudgetMinPerSecond", Double.class, 1.0));
+        CircuitBreaker breaker = new CircuitBreaker(
+            setting(target, "breakerWindowSize", Integer.class, 50),
+            setting(target, "breakerMinimumCalls", Integer.class, 20),
+            setting(target, "breakerFailureRate", Double.class, 0.5),
+            duration(target, "breakerOpenDuration", "PT30S"),
+            setting(target, "breakerHalfOpenProbes", Integer.class, 3));
+        return new UpstreamResilience(target,
+            duration(target, "firstTokenTimeout", "PT10S"),
+            setting(target, "hedge", Boolean.class, false),
+            duration(target, "hedgeMinDelay", "PT1S"),
+            latencyP95,
+            setting(target, "maxRetries", Integer.class, 2),
+            duration(target, "retryBackoff", "PT0.2S"),
+            budget, breaker, meterRegistry);
+    }
+    
+    private Duration duration(String target, String key, String fallback) {
+        return Duration.parse(setting(target, key, String.class, fallback));
+    }
+    
+    private <T> T setting(String target, String key, Class<T> type, T fallback) {
+        T value = environment.getProperty("resilience." + target + "." + key, type);
+        if (value != null) {
+            return value;
+        }
+        return environment.getProperty("resilience.defaults." + key, type, fallback);
+    }
+}
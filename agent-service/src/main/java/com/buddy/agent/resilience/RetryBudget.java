@@ -0,0 +1,52 @@
+package com.buddy.agent.resilience;
+
+import java.util.function.LongSupplier;
+
+// Caps the extra load retries and hedges put on an upstream. Every first attempt deposits ratio
+// tokens (up to a small reserve) and every retry or hedge withdraws one, so they stay within ratio of
+// the real traffic however many callers retry at once. minPerSecond keeps a low-traffic service
+// able to retry at all.
+public class RetryBudget {
+    
+    private final double ratio;
+    private final double maxBalance;
+    private final double minPerSecond;
+    private final LongSupplier nanoClock;
+    
+    private double balance;
+    private double floor;
+    private long lastRefill;
+    
+    public RetryBudget(double ratio, double minPerSecond) {
+        this(ratio, minPerSecond, System::nanoTime);
+    }
+    
+    RetryBudget(double ratio, double minPerSecond, LongSupplier nanoClock) {
+        this.ratio = ratio;
+        this.minPerSecond = minPerSecond;
+        // About ten seconds' worth of the floor, or a hundred requests' worth of deposits
+        this.maxBalance = Math.max(1, Math.max(ratio * 100, minPerSecond * 10));
+        this.nanoClock = nanoClock;
+        this.lastRefill = nanoClock.getAsLong();
+        this.floor = minPerSecond;
+    }
+    
+    public synchronized void onRequest() {
+        balance = Math.min(maxBalance, balance + ratio);
+    }
+    
+    public synchronized boolean tryWithdraw() {
+        long now = nanoClock.getAsLong();
+        floor = Math.min(minPerSecond, floor + (now - lastRefill) / 1e9 * minPerSecond);
+        lastRefill = now;
+        if (balance >= 1) {
+            balance -= 1;
+            return true;
+        }
+        if (floor >= 1) {
+            floor -= 1;
+            return true;
+        }
+        return false;
+    }
+}
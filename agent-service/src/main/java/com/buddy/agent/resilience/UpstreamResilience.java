@@ -0,0 +1,170 @@
+package com.buddy.agent.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// Policy around one streaming upstream call, applied until the stream has produced its first item:
+//  - each attempt must produce its first item within firstTokenTimeout;
+//  - with hedging on, a second attempt starts once the first has been silent for the upstream's p95
+//    first-item latency (never less than hedgeMinDelay); whichever emits first is kept and the
+//    other is cancelled, which closes its connection;
+//  - failed attempts are retried with backoff while the retry budget allows;
+//  - the circuit breaker rejects attempts outright while the upstream keeps failing.
+// Once an item has been passed on the stream is never retried, since that would repeat output.
+public class UpstreamResilience {
+    
+    private final String target;
+    private final Duration firstTokenTimeout;
+    private final boolean hedge;
+    private final Duration hedgeMinDelay;
+    private final Supplier<Duration> latencyP95;
+    private final int maxRetries;
+    private final Duration retryBackoff;
+    private final RetryBudget budget;
+    private final CircuitBreaker breaker;
+    
+    private final Counter retries;
+    private final Counter hedges;
+    private final Counter hedgeWins;
+    private final Counter rejected;
+    
+    public UpstreamResilience(String target, Duration firstTokenTimeout, boolean hedge, Duration hedgeMinDelay,
+                              Supplier<Duration> latencyP95, int maxRetries, Duration retryBackoff,
+                              RetryBudget budget, CircuitBreaker breaker, MeterRegistry meterRegistry) {
+        this.target = target;
+        this.firstTokenTimeout = firstTokenTimeout;
+        this.hedge = hedge;
+        this.hedgeMinDelay = hedgeMinDelay;
+        this.latencyP95 = latencyP95;
+        this.maxRetries = maxRetries;
+        this.retryBackoff = retryBackoff;
+        this.budget = budget;
+        this.breaker = breaker;
+        
+        this.retries = Counter.builder("upstream.retries").tag("target", target).register(meterRegistry);
+        this.hedges = Counter.builder("upstream.hedges").tag("target", target).register(meterRegistry);
+        this.hedgeWins = Counter.builder("upstream.hedge.wins").tag("target", target).register(meterRegistry);
+        this.rejected = Counter.builder("upstream.circuit.rejected").tag("target", target).register(meterRegistry);
+        Gauge.builder("upstream.circuit.state", breaker, b -> b.getState().ordinal())
+            .description("0 closed, 1 open, 2 half-open")
+            .tag("target", target)
+            .register(meterRegistry);
+    }
+    
+    public <T> Flux<T> execute(Supplier<Flux<T>> call) {
+        return Flux.defer(() -> {
+            budget.onRequest();
+            AtomicBoolean started = new AtomicBoolean();
+            AtomicInteger retried = new AtomicInteger();
+            
+            return (hedge ? hedged(call) : attempt(call))
+                .doOnNext(item -> started.lazySet(true))
+                .retryWhen(Retry.backoff(maxRetries, retryBackoff)
+                    .filter(error -> !started.get() && isRetryable(error) && retried.get() < maxRetries
+                        && budget.tryWithdraw())
+                    .doBeforeRetry(signal -> {
+                        retried.incrementAndGet();
+                        retries.increment();
+                    })
+                    .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+        });
+    }
+    
+    public CircuitBreaker.State getCircuitState() {
+        return breaker.getState();
+    }
+    
+    private <T> Flux<T> hedged(Supplier<Flux<T>> call) {
+        return Flux.defer(() -> {
+            Duration delay = hedgeDelay();
+            if (delay.compareTo(firstTokenTimeout) >= 0) {
+                return attempt(call);
+            }
+            Flux<T> second = Mono.delay(delay).flatMapMany(tick -> {
+                // Hedges draw on the retry budget and are not sent to an upstream that is struggling
+                if (breaker.getState() != CircuitBreaker.State.CLOSED || !budget.tryWithdraw()) {
+                    return Flux.never();
+                }
+                hedges.increment();
+                AtomicBoolean won = new AtomicBoolean();
+                return attempt(call)
+                    .doOnNext(item -> {
+                        if (won.compareAndSet(false, true)) {
+                            hedgeWins.increment();
+                        }
+                    })
+                    // A failed hedge just drops out; the first attempt carries on
+                    .onErrorResume(error -> Flux.never());
+            });
+            // The first signal decides: an item from either attempt, or a failure of the first one
+            return Flux.firstWithSignal(attempt(call), second);
+        });
+    }
+    
+    private Duration hedgeDelay() {
+        Duration p95 = latencyP95.get();
+        return p95.compareTo(hedgeMinDelay) > 0 ? p95 : hedgeMinDelay;
+    }
+    
+    private <T> Flux<T> attempt(Supplier<Flux<T>> call) {
+        return Flux.defer(() -> {
+            if (!breaker.tryAcquire()) {
+                rejected.increment();
+                return Flux.error(new CircuitOpenException(target));
+            }
+            AtomicBoolean settled = new AtomicBoolean();
+            return call.get()
+                .timeout(Mono.delay(firstTokenTimeout), item -> Mono.never())
+                .doOnEach(signal -> {
+                    // The first signal settles the attempt for the breaker
+                    if (settled.get() || !settled.compareAndSet(false, true)) {
+                        return;
+                    }
+                    if (!signal.isOnError()) {
+                        breaker.onSuccess();
+                    } else if (isRetryable(signal.getThrowable()) || isUpstreamFault(signal.getThrowable())) {
+                        breaker.onFailure();
+                    } else {
+                        breaker.release();
+                    }
+                })
+                .doOnCancel(() -> {
+                    if (settled.compareAndSet(false, true)) {
+                        breaker.release();
+                    }
+                });
+        });
+    }
+    
+    // Timeouts, connection failures, 5xx and 429; other 4xx would fail the same way again
+    static boolean isRetryable(Throwable error) {
+        if (error instanceof WebClientResponseException response) {
+            return response.getStatusCode().is5xxServerError() || response.getStatusCode().value() == 429;
+        }
+        return error instanceof TimeoutException || error instanceof WebClientRequestException
+            || error instanceof IOException;
+    }
+    
+    // 401, 403 and 404 say the upstream is misconfigured (key, permissions, model or URL) rather than
+    // that this request is bad, so they count against the breaker though they are not retried
+    static boolean isUpstreamFault(Throwable error) {
+        if (error instanceof WebClientResponseException response) {
+            int status = response.getStatusCode().value();
+            return status == 401 || status == 403 || status == 404;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,56 @@
+package com.buddy.agent.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Accounting for chat streams cut short by the client. The model's answer length is only known for
+// streams that finish, so the tokens a cancellation saved are estimated against an exponentially
+// weighted moving average of completed answers (in streamed content deltas, about one token each).
+@Component
+public class StreamCancellations {
+    
+    private static final double ALPHA = 0.1;
+    
+    private final Counter cancelledStreams;
+    private final Counter tokensSaved;
+    private final Counter cancelledToolCalls;
+    private final AtomicLong ewmaBits = new AtomicLong(Double.doubleToLongBits(0));
+    
+    public StreamCancellations(MeterRegistry meterRegistry) {
+        this.cancelledStreams = Counter.builder("agent.stream.cancelled")
+            .description("Chat streams cancelled before the answer was complete")
+            .register(meterRegistry);
+        this.tokensSaved = Counter.builder("agent.stream.cancelled.tokens.saved")
+            .description("Estimated completion tokens not generated because the stream was cancelled")
+            .register(meterRegistry);
+        this.cancelledToolCalls = Counter.builder("agent.tools.cancelled")
+            .description("Tool calls abandoned because their chat stream was cancelled")
+            .register(meterRegistry);
+    }
+    
+    public void completed(int tokens) {
+        long current;
+        long next;
+        do {
+            current = ewmaBits.get();
+            double ewma = Double.longBitsToDouble(current);
+            next = Double.doubleToLongBits(ewma == 0 ? tokens : ewma + ALPHA * (tokens - ewma));
+        } while (!ewmaBits.compareAndSet(current, next));
+    }
+    
+    public void cancelled(int tokensReceived) {
+        cancelledStreams.increment();
+        tokensSaved.increment(Math.max(0, Math.round(expectedTokens() - tokensReceived)));
+    }
+    
+    public void toolCallCancelled() {
+        cancelledToolCalls.increment();
+    }
+    
+    public double expectedTokens() {
+        return Double.longBitsToDouble(ewmaBits.get());
+    }
+}
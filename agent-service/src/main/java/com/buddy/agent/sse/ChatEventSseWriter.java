@@ -0,0 +1,225 @@
+package com.buddy.agent.sse;
+
+import com.buddy.common.dto.ChatEvent;
+import com.buddy.common.dto.TokenEvent;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.http.ReactiveHttpOutputMessage;
+import org.springframework.http.codec.HttpMessageWriter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+// text/event-stream writer for ChatEvent streams, used instead of the generic SSE writer. Token events
+// are encoded by hand from pre-encoded fragments straight into one pooled buffer per flush; the rarer
+// event types go through Jackson into the same buffer. With a coalescing window, events arriving within
+// it share a flush, and consecutive tokens are merged into a single token frame.
+public class ChatEventSseWriter implements HttpMessageWriter<ChatEvent> {
+    
+    private static final MediaType DEFAULT_MEDIA_TYPE = new MediaType("text", "event-stream", StandardCharsets.UTF_8);
+    
+    // Same fields as Jackson's {"type":"token","sessionId":..,"timestamp":..,"token":..}, minus the
+    // repeated "type" it adds from getType()
+    private static final byte[] TOKEN_START = ascii("data:{\"type\":\"token\",\"sessionId\":");
+    private static final byte[] TIMESTAMP_FIELD = ascii(",\"timestamp\":");
+    private static final byte[] TOKEN_FIELD = ascii(",\"token\":\"");
+    private static final byte[] TOKEN_END = ascii("\"}\n\n");
+    private static final byte[] DATA_FIELD = ascii("data:");
+    private static final byte[] EVENT_END = ascii("\n\n");
+    private static final byte[] NULL = ascii("null");
+    private static final byte[] HEX = ascii("0123456789ABCDEF");
+    
+    private final ObjectWriter fallbackWriter;
+    private final Duration coalesceWindow;
+    private final int maxCoalescedEvents;
+    private final DistributionSummary eventsPerFlush;
+    
+    public ChatEventSseWriter(ObjectMapper objectMapper, Duration coalesceWindow, int maxCoalescedEvents,
+                              MeterRegistry meterRegistry) {
+        this.fallbackWriter = objectMapper.writerFor(ChatEvent.class).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.coalesceWindow = coalesceWindow;
+        this.maxCoalescedEvents = maxCoalescedEvents;
+        this.eventsPerFlush = DistributionSummary.builder("agent.sse.events.per.flush")
+            .description("Chat events written per flushed SSE buffer")
+            .register(meterRegistry);
+    }
+    
+    @Override
+    public List<MediaType> getWritableMediaTypes() {
+        return List.of(MediaType.TEXT_EVENT_STREAM);
+    }
+    
+    @Override
+    public boolean canWrite(ResolvableType elementType, MediaType mediaType) {
+        return ChatEvent.class.isAssignableFrom(elementType.toClass())
+            && (mediaType == null || MediaType.TEXT_EVENT_STREAM.includes(mediaType));
+    }
+    
+    @Override
+    public Mono<Void> write(Publisher<? extends ChatEvent> input, ResolvableType elementType, MediaType mediaType,
+                            ReactiveHttpOutputMessage message, Map<String, Object> hints) {
+        message.getHeaders().setContentType(mediaType != null && mediaType.getCharset() != null
+            ? mediaType : DEFAULT_MEDIA_TYPE);
+        DataBufferFactory bufferFactory = message.bufferFactory();
+        
+        // Fair backpressure: a window closing while a slow client has no demand left keeps its batch (and
+        // then stops requesting events) instead of failing the stream with an overflow
+        Flux<List<ChatEvent>> batches = coalesceWindow.isZero()
+            ? Flux.from(input).map(List::<ChatEvent>of)
+            : Flux.from(input).<ChatEvent>cast(ChatEvent.class).bufferTimeout(maxCoalescedEvents, coalesceWindow, true);
+        // One buffer and one flush per batch; a buffer still unwritten when the client goes away is released
+        return message.writeAndFlushWith(batches.map(batch -> Mono.fromCallable(() -> encode(batch, bufferFactory))
+            .doOnDiscard(DataBuffer.class, DataBufferUtils::release)));
+    }
+    
+    DataBuffer encode(List<ChatEvent> events, DataBufferFactory bufferFactory) throws IOException {
+        DataBuffer buffer = bufferFactory.allocateBuffer(128 * events.size());
+        try {
+            TokenEvent openToken = null;
+            for (ChatEvent event : events) {
+                if (event instanceof TokenEvent token) {
+                    if (openToken != null && sameSession(openToken, token)) {
+                        writeStringContent(buffer, token.getToken());
+                        continue;
+                    }
+                    if (openToken != null) {
+                        buffer.write(TOKEN_END);
+                    }
+                    startToken(buffer, token);
+                    openToken = token;
+                } else {
+                    if (openToken != null) {
+                        buffer.write(TOKEN_END);
+                        openToken = null;
+                    }
+                    buffer.write(DATA_FIELD);
+                    fallbackWriter.writeValue(buffer.asOutputStream(), event);
+                    buffer.write(EVENT_END);
+                }
+            }
+            if (openToken != null) {
+                buffer.write(TOKEN_END);
+            }
+        } catch (IOException | RuntimeException e) {
+            DataBufferUtils.release(buffer);
+            throw e;
+        }
+        eventsPerFlush.record(events.size());
+        return buffer;
+    }
+    
+    private static void startToken(DataBuffer buffer, TokenEvent token) {
+        buffer.write(TOKEN_START);
+        if (token.getSessionId() == null) {
+            buffer.write(NULL);
+        } else {
+            buffer.write((byte) '"');
+            writeStringContent(buffer, token.getSessionId());
+            buffer.write((byte) '"');
+        }
+        buffer.write(TIMESTAMP_FIELD);
+        writeLong(buffer, token.getTimestamp());
+        buffer.write(TOKEN_FIELD);
+        writeStringContent(buffer, token.getToken());
+    }
+    
+    private static boolean sameSession(TokenEvent a, TokenEvent b) {
+        return a.getSessionId() == null ? b.getSessionId() == null : a.getSessionId().equals(b.getSessionId());
+    }
+    
+    // JSON string body as UTF-8, escaped the way Jackson does by default
+    private static void writeStringContent(DataBuffer buffer, String value) {
+        if (value == null) {
+            return;
+        }
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (c == '"' || c == '\\') {
+                    buffer.write((byte) '\\');
+                    buffer.write((byte) c);
+                } else if (c < 0x20) {
+                    writeControl(buffer, c);
+                } else {
+                    buffer.write((byte) c);
+                }
+            } else if (c < 0x800) {
+                buffer.write((byte) (0xC0 | (c >> 6)));
+                buffer.write((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer.write((byte) (0xF0 | (codePoint >> 18)));
+                buffer.write((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                buffer.write((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                buffer.write((byte) (0x80 | (codePoint & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired surrogate (a token boundary can split a pair): escaped, so the output stays valid UTF-8
+                writeUnicodeEscape(buffer, c);
+            } else {
+                buffer.write((byte) (0xE0 | (c >> 12)));
+                buffer.write((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.write((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+    
+    private static void writeControl(DataBuffer buffer, char c) {
+        char escape = switch (c) {
+            case '\n' -> 'n';
+            case '\r' -> 'r';
+            case '\t' -> 't';
+            case '\b' -> 'b';
+            case '\f' -> 'f';
+            default -> 0;
+        };
+        if (escape == 0) {
+            writeUnicodeEscape(buffer, c);
+        } else {
+            buffer.write((byte) '\\');
+            buffer.write((byte) escape);
+        }
+    }
+    
+    private static void writeUnicodeEscape(DataBuffer buffer, char c) {
+        buffer.write((byte) '\\');
+        buffer.write((byte) 'u');
+        buffer.write(HEX[(c >> 12) & 0xF]);
+        buffer.write(HEX[(c >> 8) & 0xF]);
+        buffer.write(HEX[(c >> 4) & 0xF]);
+        buffer.write(HEX[c & 0xF]);
+    }
+    
+    // Decimal digits without going through Long.toString
+    private static void writeLong(DataBuffer buffer, long value) {
+        if (value < 0) {
+            buffer.write(ascii(Long.toString(value)));
+            return;
+        }
+        long divisor = 1;
+        while (divisor <= value / 10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            buffer.write((byte) ('0' + (value / divisor) % 10));
+        }
+    }
+    
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
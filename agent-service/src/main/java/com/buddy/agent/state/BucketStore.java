@@ -0,0 +1,15 @@
+package com.buddy.agent.state;
+
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+
+// Where rate-limit buckets live: in this process, or shared by all agent-service replicas
+public interface BucketStore {
+    
+    Bucket bucket(String key, BucketConfiguration configuration);
+    
+    // Whether bucket calls may wait on I/O and so have to stay off event-loop threads
+    default boolean isBlocking() {
+        return false;
+    }
+}
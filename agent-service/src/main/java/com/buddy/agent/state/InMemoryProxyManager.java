@@ -0,0 +1,80 @@
+package com.buddy.agent.state;
+
+import io.github.bucket4j.distributed.proxy.ClientSideConfig;
+import io.github.bucket4j.distributed.proxy.generic.compare_and_swap.AbstractCompareAndSwapBasedProxyManager;
+import io.github.bucket4j.distributed.proxy.generic.compare_and_swap.AsyncCompareAndSwapOperation;
+import io.github.bucket4j.distributed.proxy.generic.compare_and_swap.CompareAndSwapOperation;
+import io.github.bucket4j.distributed.remote.RemoteBucketState;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+// In-process stand-in for a shared bucket store: serialized bucket state in a map, updated by
+// compare-and-swap. Lets a single node (or a test simulating several) run the distributed code path.
+public class InMemoryProxyManager extends AbstractCompareAndSwapBasedProxyManager<String> {
+    
+    private final Map<String, byte[]> states = new ConcurrentHashMap<>();
+    
+    public InMemoryProxyManager() {
+        super(ClientSideConfig.getDefault());
+    }
+    
+    @Override
+    protected CompareAndSwapOperation beginCompareAndSwapOperation(String key) {
+        return new CompareAndSwapOperation() {
+            @Override
+            public Optional<byte[]> getStateData() {
+                return Optional.ofNullable(states.get(key));
+            }
+            
+            @Override
+            public boolean compareAndSwap(byte[] originalData, byte[] newData, RemoteBucketState newState) {
+                if (originalData == null) {
+                    return states.putIfAbsent(key, newData) == null;
+                }
+                boolean[] swapped = new boolean[1];
+                states.computeIfPresent(key, (k, current) -> {
+                    swapped[0] = Arrays.equals(current, originalData);
+                    return swapped[0] ? newData : current;
+                });
+                return swapped[0];
+            }
+        };
+    }
+    
+    @Override
+    protected AsyncCompareAndSwapOperation beginAsyncCompareAndSwapOperation(String key) {
+        CompareAndSwapOperation operation = beginCompareAndSwapOperation(key);
+        return new AsyncCompareAndSwapOperation() {
+            @Override
+            public CompletableFuture<Optional<byte[]>> getStateData() {
+                return CompletableFuture.completedFuture(operation.getStateData());
+            }
+            
+            @Override
+            public CompletableFuture<Boolean> compareAndSwap(byte[] originalData, byte[] newData,
+                                                             RemoteBucketState newState) {
+                return CompletableFuture.completedFuture(operation.compareAndSwap(originalData, newData, newState));
+            }
+        };
+    }
+    
+    @Override
+    public void removeProxy(String key) {
+        states.remove(key);
+    }
+    
+    @Override
+    protected CompletableFuture<Void> removeAsync(String key) {
+        states.remove(key);
+        return CompletableFuture.completedFuture(null);
+    }
+    
+    @Override
+    public boolean isAsyncModeSupported() {
+        return true;
+    }
+}
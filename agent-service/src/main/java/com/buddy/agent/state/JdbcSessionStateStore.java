@@ -0,0 +1,90 @@
+package com.buddy.agent.state;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+
+// Flags in the agent_session_flag table, read through a near cache. A node sees a change made on
+// another node within refreshInterval; reads after the first are refreshed in the background, so
+// only a session's first lookup on a node waits for the database. Writes go straight through.
+// A flag not set again within the flag TTL is deleted by StateCleanup, which clears it everywhere
+// once the near caches refresh.
+public class JdbcSessionStateStore implements SessionStateStore {
+    
+    private static final String SELECT = "SELECT 1 FROM agent_session_flag WHERE session_id = ? AND flag = ?";
+    private static final String UPSERT = "INSERT INTO agent_session_flag (session_id, flag, updated_at) VALUES (?, ?, now()) "
+        + "ON CONFLICT (session_id, flag) DO UPDATE SET updated_at = now()";
+    private static final String DELETE = "DELETE FROM agent_session_flag WHERE session_id = ? AND flag = ?";
+    private static final String DELETE_EXPIRED =
+        "DELETE FROM agent_session_flag WHERE updated_at < now() - ? * interval '1 second'";
+    
+    private final DataSource dataSource;
+    private final LoadingCache<String, Boolean> nearCache;
+    
+    public JdbcSessionStateStore(DataSource dataSource, Duration refreshInterval) {
+        this.dataSource = dataSource;
+        this.nearCache = Caffeine.newBuilder()
+            .maximumSize(100_000)
+            .refreshAfterWrite(refreshInterval)
+            .expireAfterAccess(Duration.ofHours(1))
+            .build(this::load);
+    }
+    
+    @Override
+    public boolean isSet(String sessionId, String flag) {
+        return nearCache.get(key(sessionId, flag));
+    }
+    
+    @Override
+    public void set(String sessionId, String flag, boolean value) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(value ? UPSERT : DELETE)) {
+            statement.setString(1, sessionId);
+            statement.setString(2, flag);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Cannot update session flag " + flag, e);
+        }
+        nearCache.put(key(sessionId, flag), value);
+    }
+    
+    // Deletes flags last set more than ttl ago; returns how many
+    public int removeExpired(Duration ttl) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement delete = connection.prepareStatement(DELETE_EXPIRED)) {
+            delete.setLong(1, ttl.toSeconds());
+            return delete.executeUpdate();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Cannot remove expired session flags", e);
+        }
+    }
+    
+    // A near-cache miss or a write goes to the database
+    @Override
+    public boolean isBlocking() {
+        return true;
+    }
+    
+    // Flags never contain '/', so the last one separates them from the session id
+    private Boolean load(String key) throws SQLException {
+        int separator = key.lastIndexOf('/');
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement select = connection.prepareStatement(SELECT)) {
+            select.setString(1, key.substring(0, separator));
+            select.setString(2, key.substring(separator + 1));
+            try (ResultSet rs = select.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+    
+    private static String key(String sessionId, String flag) {
+        return sessionId + "/" + flag;
+    }
+}
@@ -0,0 +1,32 @@
+package com.buddy.agent.state;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.local.LocalBucketBuilder;
+
+import java.time.Duration;
+
+// bucket4j's lock-free local buckets, created on first use and dropped after idleTimeout.
+// Limits are per node.
+public class LocalBucketStore implements BucketStore {
+    
+    private final Cache<String, Bucket> buckets;
+    
+    public LocalBucketStore(Duration idleTimeout) {
+        this.buckets = Caffeine.newBuilder().expireAfterAccess(idleTimeout).build();
+    }
+    
+    @Override
+    public Bucket bucket(String key, BucketConfiguration configuration) {
+        return buckets.get(key, k -> {
+            LocalBucketBuilder builder = Bucket.builder();
+            for (Bandwidth bandwidth : configuration.getBandwidths()) {
+                builder.addLimit(bandwidth);
+            }
+            return builder.build();
+        });
+    }
+}
@@ -0,0 +1,33 @@
+package com.buddy.agent.state;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+
+// Flags held in this process only; forgotten a day after their last use
+public class LocalSessionStateStore implements SessionStateStore {
+    
+    private final Cache<String, Boolean> flags = Caffeine.newBuilder()
+        .maximumSize(100_000)
+        .expireAfterAccess(Duration.ofDays(1))
+        .build();
+    
+    @Override
+    public boolean isSet(String sessionId, String flag) {
+        return flags.getIfPresent(key(sessionId, flag)) != null;
+    }
+    
+    @Override
+    public void set(String sessionId, String flag, boolean value) {
+        if (value) {
+            flags.put(key(sessionId, flag), Boolean.TRUE);
+        } else {
+            flags.invalidate(key(sessionId, flag));
+        }
+    }
+    
+    private static String key(String sessionId, String flag) {
+        return sessionId + "/" + flag;
+    }
+}
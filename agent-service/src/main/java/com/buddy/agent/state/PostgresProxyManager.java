@@ -0,0 +1,137 @@
+package com.buddy.agent.state;
+
+import io.github.bucket4j.distributed.proxy.ClientSideConfig;
+import io.github.bucket4j.distributed.proxy.generic.select_for_update.AbstractSelectForUpdateBasedProxyManager;
+import io.github.bucket4j.distributed.proxy.generic.select_for_update.LockAndGetResult;
+import io.github.bucket4j.distributed.proxy.generic.select_for_update.SelectForUpdateBasedTransaction;
+import io.github.bucket4j.distributed.remote.RemoteBucketState;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+
+// Bucket state in the agent_rate_limit_bucket table. Each sync locks the bucket's row with
+// SELECT ... FOR UPDATE, so replicas serialize on a single bucket but never on each other's.
+// Rows untouched for longer than the idle timeout are deleted by StateCleanup; such a bucket has
+// refilled completely, so recreating it empty on its next use changes nothing.
+public class PostgresProxyManager extends AbstractSelectForUpdateBasedProxyManager<String> {
+    
+    private static final String SELECT_FOR_UPDATE = "SELECT state FROM agent_rate_limit_bucket WHERE id = ? FOR UPDATE";
+    private static final String INSERT_EMPTY =
+        "INSERT INTO agent_rate_limit_bucket (id, state, updated_at) VALUES (?, NULL, now()) ON CONFLICT (id) DO NOTHING";
+    private static final String UPDATE = "UPDATE agent_rate_limit_bucket SET state = ?, updated_at = now() WHERE id = ?";
+    private static final String DELETE = "DELETE FROM agent_rate_limit_bucket WHERE id = ?";
+    private static final String DELETE_IDLE =
+        "DELETE FROM agent_rate_limit_bucket WHERE updated_at < now() - ? * interval '1 second'";
+    
+    private final DataSource dataSource;
+    
+    public PostgresProxyManager(DataSource dataSource) {
+        super(ClientSideConfig.getDefault());
+        this.dataSource = dataSource;
+    }
+    
+    @Override
+    protected SelectForUpdateBasedTransaction allocateTransaction(String key) {
+        Connection connection;
+        try {
+            connection = dataSource.getConnection();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Cannot open connection for rate-limit bucket " + key, e);
+        }
+        return new SelectForUpdateBasedTransaction() {
+            @Override
+            public void begin() {
+                run(() -> connection.setAutoCommit(false));
+            }
+            
+            @Override
+            public void rollback() {
+                run(connection::rollback);
+            }
+            
+            @Override
+            public void commit() {
+                run(connection::commit);
+            }
+            
+            @Override
+            public LockAndGetResult tryLockAndGet() {
+                try (PreparedStatement select = connection.prepareStatement(SELECT_FOR_UPDATE)) {
+                    select.setString(1, key);
+                    try (ResultSet rs = select.executeQuery()) {
+                        return rs.next() ? LockAndGetResult.locked(rs.getBytes(1)) : LockAndGetResult.notLocked();
+                    }
+                } catch (SQLException e) {
+                    throw new IllegalStateException("Cannot lock rate-limit bucket " + key, e);
+                }
+            }
+            
+            // A concurrent insert by another node is fine: bucket4j retries the lock afterwards
+            @Override
+            public boolean tryInsertEmptyData() {
+                try (PreparedStatement insert = connection.prepareStatement(INSERT_EMPTY)) {
+                    insert.setString(1, key);
+                    insert.executeUpdate();
+                    return true;
+                } catch (SQLException e) {
+                    throw new IllegalStateException("Cannot create rate-limit bucket " + key, e);
+                }
+            }
+            
+            @Override
+            public void update(byte[] data, RemoteBucketState newState) {
+                try (PreparedStatement update = connection.prepareStatement(UPDATE)) {
+                    update.setBytes(1, data);
+                    update.setString(2, key);
+                    update.executeUpdate();
+                } catch (SQLException e) {
+                    throw new IllegalStateException("Cannot update rate-limit bucket " + key, e);
+                }
+            }
+            
+            @Override
+            public void release() {
+                run(connection::close);
+            }
+        };
+    }
+    
+    @Override
+    public void removeProxy(String key) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement delete = connection.prepareStatement(DELETE)) {
+            delete.setString(1, key);
+            delete.executeUpdate();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Cannot remove rate-limit bucket " + key, e);
+        }
+    }
+    
+    // Deletes buckets not synced for idleTimeout; returns how many
+    public int removeIdle(Duration idleTimeout) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement delete = connection.prepareStatement(DELETE_IDLE)) {
+            delete.setLong(1, idleTimeout.toSeconds());
+            return delete.executeUpdate();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Cannot remove idle rate-limit buckets", e);
+        }
+    }
+    
+    @FunctionalInterface
+    private interface SqlAction {
+        void run() throws SQLException;
+    }
+    
+    private static void run(SqlAction action) {
+        try {
+            action.run();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Rate-limit bucket transaction failed", e);
+        }
+    }
+}
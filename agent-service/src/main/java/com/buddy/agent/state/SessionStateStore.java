@@ -0,0 +1,15 @@
+package com.buddy.agent.state;
+
+// Per-session flags that have to agree across agent-service replicas, such as the response-cache
+// bypass a user switched on through one node and expects on the next turn wherever it lands
+public interface SessionStateStore {
+    
+    boolean isSet(String sessionId, String flag);
+    
+    void set(String sessionId, String flag, boolean value);
+    
+    // Whether reads and writes may wait on I/O and so have to stay off event-loop threads
+    default boolean isBlocking() {
+        return false;
+    }
+}
@@ -0,0 +1,42 @@
+package com.buddy.agent.state;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.distributed.proxy.ProxyManager;
+import io.github.bucket4j.distributed.proxy.optimization.DelayParameters;
+import io.github.bucket4j.distributed.proxy.optimization.Optimizations;
+
+import java.time.Duration;
+
+// Buckets whose state lives in a shared store, fronted by a per-node near cache. Each proxy uses
+// bucket4j's delaying optimization: consumption is served from a local copy of the bucket and only
+// written back once maxUnsyncedTokens have been taken or maxUnsyncedTimeout has passed, so most
+// requests never touch the store. Across N nodes a limit can be overshot by at most
+// N * maxUnsyncedTokens within one sync window.
+public class SharedBucketStore implements BucketStore {
+    
+    private final ProxyManager<String> proxyManager;
+    private final DelayParameters delay;
+    private final Cache<String, Bucket> nearCache;
+    
+    public SharedBucketStore(ProxyManager<String> proxyManager, long maxUnsyncedTokens,
+                             Duration maxUnsyncedTimeout, Duration idleTimeout) {
+        this.proxyManager = proxyManager;
+        this.delay = new DelayParameters(maxUnsyncedTokens, maxUnsyncedTimeout);
+        this.nearCache = Caffeine.newBuilder().expireAfterAccess(idleTimeout).build();
+    }
+    
+    @Override
+    public Bucket bucket(String key, BucketConfiguration configuration) {
+        return nearCache.get(key, k -> proxyManager.builder()
+            .withOptimization(Optimizations.delaying(delay))
+            .build(k, () -> configuration));
+    }
+    
+    @Override
+    public boolean isBlocking() {
+        return true;
+    }
+}
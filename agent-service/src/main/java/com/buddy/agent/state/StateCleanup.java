@@ -0,0 +1,72 @@
+package com.buddy.agent.state;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Periodic delete of shared-state rows nobody uses any more: rate-limit buckets idle for longer than
+// bucketIdleTimeout and session flags not set again within flagTtl. Every replica runs it; the
+// deletes are idempotent, so overlapping runs only repeat work.
+public class StateCleanup implements SmartLifecycle {
+    
+    private static final Logger logger = LoggerFactory.getLogger(StateCleanup.class);
+    
+    private final PostgresProxyManager buckets;
+    private final JdbcSessionStateStore flags;
+    private final Duration bucketIdleTimeout;
+    private final Duration flagTtl;
+    private final Duration interval;
+    
+    private volatile boolean running;
+    private ScheduledExecutorService executor;
+    
+    public StateCleanup(PostgresProxyManager buckets, JdbcSessionStateStore flags, Duration bucketIdleTimeout,
+                        Duration flagTtl, Duration interval) {
+        this.buckets = buckets;
+        this.flags = flags;
+        this.bucketIdleTimeout = bucketIdleTimeout;
+        this.flagTtl = flagTtl;
+        this.interval = interval;
+    }
+    
+    // One table failing does not keep the other from being cleaned
+    void cleanUp() {
+        try {
+            int removed = buckets.removeIdle(bucketIdleTimeout);
+            logger.debug("Removed {} idle rate-limit buckets", removed);
+        } catch (RuntimeException e) {
+            logger.warn("Removing idle rate-limit buckets failed: {}", e.getMessage());
+        }
+        try {
+            int removed = flags.removeExpired(flagTtl);
+            logger.debug("Removed {} expired session flags", removed);
+        } catch (RuntimeException e) {
+            logger.warn("Removing expired session flags failed: {}", e.getMessage());
+        }
+    }
+    
+    @Override
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("agent-state-cleanup").daemon(true).factory());
+        executor.scheduleWithFixedDelay(this::cleanUp, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+        running = true;
+    }
+    
+    @Override
+    public void stop() {
+        running = false;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+    
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
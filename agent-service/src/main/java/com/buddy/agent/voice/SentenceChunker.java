@@ -0,0 +1,74 @@
+package com.buddy.agent.voice;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Cuts a token stream into sentences for speech synthesis, so the first sentence can be spoken while
+// the model is still writing the rest. A sentence ends at '.', '!' or '?' followed by whitespace, or
+// at a line break. Fragments shorter than minChars are held back and joined with what follows (short
+// utterances sound choppy), and text running past maxChars without an ending is cut at the last
+// space. One instance per stream; not thread-safe.
+public class SentenceChunker {
+    
+    private final int minChars;
+    private final int maxChars;
+    private final StringBuilder pending = new StringBuilder();
+    
+    public SentenceChunker(int minChars, int maxChars) {
+        this.minChars = minChars;
+        this.maxChars = maxChars;
+    }
+    
+    public static Flux<String> sentences(Flux<String> tokens, int minChars, int maxChars) {
+        return Flux.defer(() -> {
+            SentenceChunker chunker = new SentenceChunker(minChars, maxChars);
+            return tokens
+                .concatMapIterable(chunker::add)
+                .concatWith(Mono.fromSupplier(chunker::flush).filter(rest -> !rest.isEmpty()));
+        });
+    }
+    
+    public List<String> add(String token) {
+        int scanFrom = Math.max(0, pending.length() - 1);
+        pending.append(token);
+        List<String> out = new ArrayList<>(1);
+        
+        int start = 0;
+        for (int i = scanFrom; i < pending.length(); i++) {
+            char c = pending.charAt(i);
+            boolean end = c == '\n'
+                || ((c == '.' || c == '!' || c == '?') && i + 1 < pending.length()
+                    && Character.isWhitespace(pending.charAt(i + 1)));
+            if (end && i + 1 - start >= minChars) {
+                emit(out, start, i + 1);
+                start = i + 1;
+            }
+        }
+        
+        while (pending.length() - start > maxChars) {
+            int cut = pending.lastIndexOf(" ", start + maxChars);
+            cut = cut > start ? cut : start + maxChars;
+            emit(out, start, cut);
+            start = cut;
+        }
+        pending.delete(0, start);
+        return out;
+    }
+    
+    // Whatever is left once the stream has ended
+    public String flush() {
+        String rest = pending.toString().strip();
+        pending.setLength(0);
+        return rest;
+    }
+    
+    private void emit(List<String> out, int from, int to) {
+        String sentence = pending.substring(from, to).strip();
+        if (!sentence.isEmpty()) {
+            out.add(sentence);
+        }
+    }
+}
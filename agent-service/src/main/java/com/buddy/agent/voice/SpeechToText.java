@@ -0,0 +1,10 @@
+package com.buddy.agent.voice;
+
+import reactor.core.publisher.Flux;
+
+// Streaming recognizer: consumes audio chunks as they arrive and emits partial transcripts along the
+// way, then one final transcript, at the latest when the audio ends
+public interface SpeechToText {
+    
+    Flux<Transcript> transcribe(Flux<byte[]> audio);
+}
@@ -0,0 +1,59 @@
+package com.buddy.agent.voice;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+// Local stand-in for a recognizer: the "audio" is UTF-8 text. Every chunk yields the transcript so
+// far as a partial, and the end of the audio yields the final transcript. Chunks are decoded as one
+// stream, so a character split across two chunks comes out whole.
+public class StubSpeechToText implements SpeechToText {
+    
+    @Override
+    public Flux<Transcript> transcribe(Flux<byte[]> audio) {
+        return Flux.defer(() -> {
+            Utf8Stream heard = new Utf8Stream();
+            return audio
+                .map(chunk -> Transcript.partial(heard.append(chunk)))
+                .concatWith(Mono.fromSupplier(() -> Transcript.complete(heard.finish().strip())));
+        });
+    }
+    
+    // Decodes across chunk boundaries, holding back the bytes of an incomplete trailing character
+    private static class Utf8Stream {
+        
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private final StringBuilder text = new StringBuilder();
+        private byte[] carry = new byte[0];
+        
+        String append(byte[] chunk) {
+            decode(chunk, false);
+            return text.toString();
+        }
+        
+        String finish() {
+            decode(new byte[0], true);
+            return text.toString();
+        }
+        
+        private void decode(byte[] chunk, boolean endOfInput) {
+            ByteBuffer in = ByteBuffer.allocate(carry.length + chunk.length).put(carry).put(chunk).flip();
+            // UTF-8 never decodes to more chars than it has bytes
+            CharBuffer out = CharBuffer.allocate(in.remaining() + 1);
+            decoder.decode(in, out, endOfInput);
+            if (endOfInput) {
+                decoder.flush(out);
+            }
+            text.append(out.flip());
+            carry = new byte[in.remaining()];
+            in.get(carry);
+        }
+    }
+}
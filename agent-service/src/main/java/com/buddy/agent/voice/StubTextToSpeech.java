@@ -0,0 +1,25 @@
+package com.buddy.agent.voice;
+
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Local stand-in for a synthesizer: the "audio" for a sentence is its UTF-8 bytes, cut into
+// chunkBytes-sized chunks
+public class StubTextToSpeech implements TextToSpeech {
+    
+    private final int chunkBytes;
+    
+    public StubTextToSpeech(int chunkBytes) {
+        this.chunkBytes = chunkBytes;
+    }
+    
+    @Override
+    public Flux<byte[]> synthesize(String sentence) {
+        byte[] audio = sentence.getBytes(StandardCharsets.UTF_8);
+        int chunks = (audio.length + chunkBytes - 1) / chunkBytes;
+        return Flux.range(0, chunks)
+            .map(i -> Arrays.copyOfRange(audio, i * chunkBytes, Math.min(audio.length, (i + 1) * chunkBytes)));
+    }
+}
@@ -0,0 +1,9 @@
+package com.buddy.agent.voice;
+
+import reactor.core.publisher.Flux;
+
+// Streaming synthesizer: audio chunks for one sentence, the first as early as the engine can
+public interface TextToSpeech {
+    
+    Flux<byte[]> synthesize(String sentence);
+}
@@ -0,0 +1,30 @@
+package com.buddy.agent.voice;
+
+// Speech recognized so far. Partial transcripts are revised as more audio arrives; the final one
+// closes the utterance.
+public class Transcript {
+    
+    private final String text;
+    private final boolean finalTranscript;
+    
+    private Transcript(String text, boolean finalTranscript) {
+        this.text = text;
+        this.finalTranscript = finalTranscript;
+    }
+    
+    public static Transcript partial(String text) {
+        return new Transcript(text, false);
+    }
+    
+    public static Transcript complete(String text) {
+        return new Transcript(text, true);
+    }
+    
+    public String getText() {
+        return text;
+    }
+    
+    public boolean isFinal() {
+        return finalTranscript;
+    }
+}
@@ -0,0 +1,162 @@
+package com.buddy.agent.voice;
+
+import com.buddy.agent.service.AgentOrchestrator;
+import com.buddy.agent.ws.TurnOutput;
+import com.buddy.agent.ws.VoiceTurnProcessor;
+import com.buddy.common.dto.ChatEvent;
+import com.buddy.common.dto.ChatRequest;
+import com.buddy.common.dto.TokenEvent;
+import com.buddy.common.dto.TranscriptEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Full-duplex voice turn: audio in -> STT -> agent -> sentence chunking -> TTS -> audio out. Every
+// stage streams into the next, so recognition runs while the user is still speaking, the agent
+// starts on the final transcript, the first sentence goes to TTS as soon as it is complete while
+// the model keeps writing, and up to ttsLookahead sentences are synthesized ahead of playback.
+//
+// Per-stage latencies are recorded as voice.stage.latency{stage=stt|agent|sentence|tts}: end of
+// speech to final transcript, final transcript to first token, first token to first sentence,
+// first sentence to first audio. voice.turn.latency covers end of speech to first audio out.
+public class VoicePipeline implements VoiceTurnProcessor {
+    
+    private final AgentOrchestrator orchestrator;
+    private final SpeechToText speechToText;
+    private final TextToSpeech textToSpeech;
+    private final int minSentenceChars;
+    private final int maxSentenceChars;
+    private final int ttsLookahead;
+    
+    private final Timer sttLatency;
+    private final Timer agentLatency;
+    private final Timer sentenceLatency;
+    private final Timer ttsLatency;
+    private final Timer turnLatency;
+    
+    public VoicePipeline(AgentOrchestrator orchestrator, SpeechToText speechToText, TextToSpeech textToSpeech,
+                         int minSentenceChars, int maxSentenceChars, int ttsLookahead, MeterRegistry meterRegistry) {
+        this.orchestrator = orchestrator;
+        this.speechToText = speechToText;
+        this.textToSpeech = textToSpeech;
+        this.minSentenceChars = minSentenceChars;
+        this.maxSentenceChars = maxSentenceChars;
+        this.ttsLookahead = ttsLookahead;
+        this.sttLatency = stage(meterRegistry, "stt");
+        this.agentLatency = stage(meterRegistry, "agent");
+        this.sentenceLatency = stage(meterRegistry, "sentence");
+        this.ttsLatency = stage(meterRegistry, "tts");
+        this.turnLatency = Timer.builder("voice.turn.latency")
+            .description("End of speech to first synthesized audio")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    }
+    
+    private static Timer stage(MeterRegistry meterRegistry, String stage) {
+        return Timer.builder("voice.stage.latency")
+            .tag("stage", stage)
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    }
+    
+    @Override
+    public Flux<TurnOutput> process(String username, String sessionId, Flux<byte[]> audio) {
+        return Flux.defer(() -> {
+            TurnClock clock = new TurnClock();
+            Flux<byte[]> speech = audio.doOnComplete(clock.speechEnded::mark);
+            
+            return speechToText.transcribe(speech).publish(transcripts -> Flux.merge(
+                transcripts
+                    .filter(transcript -> !transcript.isFinal())
+                    .map(transcript -> TurnOutput.event(new TranscriptEvent(sessionId, transcript.getText(), false))),
+                transcripts
+                    .filter(Transcript::isFinal)
+                    .next()
+                    .flatMapMany(transcript -> {
+                        clock.transcribed.mark();
+                        record(sttLatency, clock.speechEnded, clock.transcribed);
+                        Flux<TurnOutput> answer = transcript.getText().isEmpty()
+                            ? Flux.empty()
+                            : respond(username, sessionId, transcript.getText(), clock);
+                        return Flux.concat(
+                            Mono.just(TurnOutput.event(new TranscriptEvent(sessionId, transcript.getText(), true))),
+                            answer);
+                    })));
+        });
+    }
+    
+    // Text in, voice out: the second half of a voice turn, also used when the user typed
+    public Flux<TurnOutput> speak(String username, String sessionId, String text) {
+        return Flux.defer(() -> {
+            TurnClock clock = new TurnClock();
+            clock.transcribed.mark();
+            return respond(username, sessionId, text, clock);
+        });
+    }
+    
+    private Flux<TurnOutput> respond(String username, String sessionId, String text, TurnClock clock) {
+        Flux<ChatEvent> events = orchestrator.processChatStream(new ChatRequest(text, sessionId), username);
+        
+        return events.publish(shared -> Flux.merge(
+            shared.map(TurnOutput::event),
+            SentenceChunker.sentences(
+                    shared.ofType(TokenEvent.class)
+                        .map(TokenEvent::getToken)
+                        .doOnNext(token -> {
+                            if (clock.firstToken.mark()) {
+                                record(agentLatency, clock.transcribed, clock.firstToken);
+                            }
+                        }),
+                    minSentenceChars, maxSentenceChars)
+                .doOnNext(sentence -> {
+                    if (clock.firstSentence.mark()) {
+                        record(sentenceLatency, clock.firstToken, clock.firstSentence);
+                    }
+                })
+                // Later sentences are synthesized while earlier ones play; output stays in order
+                .flatMapSequential(textToSpeech::synthesize, ttsLookahead)
+                .doOnNext(chunk -> {
+                    if (clock.firstAudio.mark()) {
+                        record(ttsLatency, clock.firstSentence, clock.firstAudio);
+                        record(turnLatency, clock.speechEnded.isSet() ? clock.speechEnded : clock.transcribed,
+                            clock.firstAudio);
+                    }
+                })
+                .map(TurnOutput::audio)));
+    }
+    
+    private static void record(Timer timer, Mark from, Mark to) {
+        if (from.isSet() && to.isSet()) {
+            timer.record(to.nanos() - from.nanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+    
+    private static class TurnClock {
+        final Mark speechEnded = new Mark();
+        final Mark transcribed = new Mark();
+        final Mark firstToken = new Mark();
+        final Mark firstSentence = new Mark();
+        final Mark firstAudio = new Mark();
+    }
+    
+    // First time something happened in a turn; later marks are ignored
+    private static class Mark {
+        private final AtomicLong nanos = new AtomicLong();
+        
+        boolean mark() {
+            return nanos.compareAndSet(0, System.nanoTime());
+        }
+        
+        boolean isSet() {
+            return nanos.get() != 0;
+        }
+        
+        long nanos() {
+            return nanos.get();
+        }
+    }
+}
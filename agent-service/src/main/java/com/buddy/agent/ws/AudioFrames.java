@@ -0,0 +1,39 @@
+package com.buddy.agent.ws;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Binary WebSocket frames carry audio in both directions, tagged with their turn:
+//   [1 byte: length n of the turn id][n bytes: turn id, UTF-8][audio bytes]
+// The header is a few bytes, so chunks need no base64 or JSON wrapping.
+public final class AudioFrames {
+    
+    private AudioFrames() {
+    }
+    
+    public static byte[] encode(String turnId, byte[] audio) {
+        byte[] id = turnId.getBytes(StandardCharsets.UTF_8);
+        if (id.length == 0 || id.length > 255) {
+            throw new IllegalArgumentException("Turn id must be 1-255 bytes: " + turnId);
+        }
+        byte[] frame = new byte[1 + id.length + audio.length];
+        frame[0] = (byte) id.length;
+        System.arraycopy(id, 0, frame, 1, id.length);
+        System.arraycopy(audio, 0, frame, 1 + id.length, audio.length);
+        return frame;
+    }
+    
+    // Turn id of a frame; the buffer is left positioned at the first audio byte
+    public static String readTurnId(ByteBuffer frame) {
+        if (!frame.hasRemaining()) {
+            throw new IllegalArgumentException("Empty audio frame");
+        }
+        int length = frame.get() & 0xFF;
+        if (length == 0 || length > frame.remaining()) {
+            throw new IllegalArgumentException("Malformed audio frame header");
+        }
+        byte[] id = new byte[length];
+        frame.get(id);
+        return new String(id, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,256 @@
+package com.buddy.agent.ws;
+
+import com.buddy.agent.ratelimit.Admission;
+import com.buddy.agent.ratelimit.AdmissionControl;
+import com.buddy.agent.service.AgentOrchestrator;
+import com.buddy.common.dto.ChatRequest;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.socket.CloseStatus;
+import org.springframework.web.reactive.socket.WebSocketHandler;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.security.Principal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Long-lived chat transport for /ws/chat and /ws/voice. One connection carries any number of turns,
+// across any number of sessions, without a new request or handshake per turn. Each turn runs as its
+// own stream; their frames are merged onto the socket with at most maxConcurrentTurns running, and
+// the merge only pulls as fast as the socket writes, so a slow client slows its own turns down
+// instead of buffering them. A cancel frame, or the connection closing, cancels the turn's stream
+// and with it the upstream model call. Turns pass through the same AdmissionControl as HTTP streams.
+//
+// Everything a connection can queue is bounded: at most maxQueuedTurns turns (running or waiting for
+// a slot), and at most maxControlFrames replies that the client has not read yet; a client that lets
+// its replies pile up past that is disconnected.
+@Component
+public class ChatWebSocketHandler implements WebSocketHandler {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ChatWebSocketHandler.class);
+    
+    private final AgentOrchestrator orchestrator;
+    private final AdmissionControl admissionControl;
+    private final ObjectProvider<VoiceTurnProcessor> voiceProcessor;
+    private final ObjectMapper objectMapper;
+    private final int maxConcurrentTurns;
+    private final int maxBufferedAudioChunks;
+    private final int maxQueuedTurns;
+    private final int maxControlFrames;
+    
+    public ChatWebSocketHandler(AgentOrchestrator orchestrator,
+                                AdmissionControl admissionControl,
+                                ObjectProvider<VoiceTurnProcessor> voiceProcessor,
+                                ObjectMapper objectMapper,
+                                @Value("${agent.websocket.maxConcurrentTurns:8}") int maxConcurrentTurns,
+                                @Value("${agent.websocket.maxBufferedAudioChunks:256}") int maxBufferedAudioChunks,
+                                @Value("${agent.websocket.maxQueuedTurns:32}") int maxQueuedTurns,
+                                @Value("${agent.websocket.maxControlFrames:64}") int maxControlFrames) {
+        this.orchestrator = orchestrator;
+        this.admissionControl = admissionControl;
+        this.voiceProcessor = voiceProcessor;
+        this.objectMapper = objectMapper;
+        this.maxConcurrentTurns = maxConcurrentTurns;
+        this.maxBufferedAudioChunks = maxBufferedAudioChunks;
+        this.maxQueuedTurns = maxQueuedTurns;
+        this.maxControlFrames = maxControlFrames;
+    }
+    
+    @Override
+    public Mono<Void> handle(WebSocketSession session) {
+        return session.getHandshakeInfo().getPrincipal()
+            .map(Principal::getName)
+            .defaultIfEmpty(clientAddress(session.getHandshakeInfo().getRemoteAddress()))
+            .flatMap(user -> new Connection(session, user).run());
+    }
+    
+    private static String clientAddress(InetSocketAddress address) {
+        return address == null ? "anonymous" : address.getHostString();
+    }
+    
+    private class Connection {
+        
+        private final WebSocketSession session;
+        private final String user;
+        private final Map<String, Turn> turns = new ConcurrentHashMap<>();
+        // Both written only from the receive loop, which is serial. outbound holds one entry per turn,
+        // so the turn cap bounds it too.
+        private final Sinks.Many<Flux<WebSocketMessage>> outbound = Sinks.many().unicast().onBackpressureBuffer();
+        private final Sinks.Many<WebSocketMessage> control = Sinks.many().unicast()
+            .onBackpressureBuffer(Queues.<WebSocketMessage>get(maxControlFrames).get());
+        
+        Connection(WebSocketSession session, String user) {
+            this.session = session;
+            this.user = user;
+        }
+        
+        Mono<Void> run() {
+            Mono<Void> input = session.receive()
+                .doOnNext(this::onMessage)
+                .doFinally(signal -> {
+                    turns.values().forEach(Turn::cancel);
+                    outbound.tryEmitComplete();
+                    control.tryEmitComplete();
+                })
+                .then();
+            Mono<Void> output = session.send(Flux.merge(control.asFlux(), Flux.merge(outbound.asFlux(), maxConcurrentTurns)));
+            return Mono.zip(input, output).then();
+        }
+        
+        private void onMessage(WebSocketMessage message) {
+            try {
+                if (message.getType() == WebSocketMessage.Type.TEXT) {
+                    onFrame(objectMapper.readValue(message.getPayloadAsText(), ClientFrame.class));
+                } else if (message.getType() == WebSocketMessage.Type.BINARY) {
+                    DataBuffer payload = message.getPayload();
+                    ByteBuffer frame = ByteBuffer.allocate(payload.readableByteCount());
+                    payload.toByteBuffer(frame);
+                    onAudio(frame);
+                }
+            } catch (JsonProcessingException | IllegalArgumentException e) {
+                send(TurnFrame.error(null, "Malformed frame: " + e.getMessage()));
+            }
+        }
+        
+        private void onFrame(ClientFrame frame) {
+            String turnId = frame.getTurnId();
+            if (turnId == null || turnId.isEmpty()) {
+                send(TurnFrame.error(null, "turnId is required"));
+                return;
+            }
+            switch (frame.getType() == null ? "" : frame.getType()) {
+                case ClientFrame.CHAT, ClientFrame.VOICE -> start(frame);
+                case ClientFrame.AUDIO_END -> {
+                    Turn turn = turns.get(turnId);
+                    if (turn != null && turn.audio != null) {
+                        turn.audio.tryEmitComplete();
+                    }
+                }
+                case ClientFrame.CANCEL -> {
+                    Turn turn = turns.get(turnId);
+                    if (turn != null) {
+                        turn.cancel();
+                    }
+                }
+                default -> send(TurnFrame.error(turnId, "Unknown frame type: " + frame.getType()));
+            }
+        }
+        
+        private void start(ClientFrame frame) {
+            String turnId = frame.getTurnId();
+            boolean voice = ClientFrame.VOICE.equals(frame.getType());
+            if (frame.getSessionId() == null || (!voice && (frame.getMessage() == null || frame.getMessage().isBlank()))) {
+                send(TurnFrame.error(turnId, voice ? "sessionId is required" : "sessionId and message are required"));
+                return;
+            }
+            VoiceTurnProcessor processor = voice ? voiceProcessor.getIfAvailable() : null;
+            if (voice && processor == null) {
+                send(TurnFrame.error(turnId, "Voice is not available"));
+                return;
+            }
+            if (turns.size() >= maxQueuedTurns) {
+                send(TurnFrame.error(turnId, "Too many turns on this connection"));
+                return;
+            }
+            Turn turn = new Turn(voice ? Sinks.many().unicast()
+                .onBackpressureBuffer(Queues.<byte[]>get(maxBufferedAudioChunks).get()) : null);
+            if (turns.putIfAbsent(turnId, turn) != null) {
+                send(TurnFrame.error(turnId, "Turn already running"));
+                return;
+            }
+            
+            Flux<TurnOutput> outputs = voice
+                ? processor.process(user, frame.getSessionId(), turn.audio.asFlux())
+                : orchestrator.processChatStream(new ChatRequest(frame.getMessage(), frame.getSessionId()), user)
+                    .map(TurnOutput::event);
+            
+            Flux<WebSocketMessage> frames = admissionControl.admitStream(user, frame.getSessionId())
+                .flatMapMany(admission -> admission.isAllowed()
+                    ? run(turnId, turn, outputs)
+                    : Flux.just(text(rejected(turnId, admission))))
+                .doFinally(signal -> turns.remove(turnId, turn));
+            outbound.tryEmitNext(frames);
+        }
+        
+        private Flux<WebSocketMessage> run(String turnId, Turn turn, Flux<TurnOutput> outputs) {
+            return outputs
+                .takeUntilOther(turn.cancelled.asMono())
+                .map(output -> output.isAudio()
+                    ? session.binaryMessage(factory -> factory.wrap(AudioFrames.encode(turnId, output.getAudio())))
+                    : text(TurnFrame.event(turnId, output.getEvent())))
+                .concatWith(Mono.fromSupplier(() ->
+                    text(TurnFrame.end(turnId, turn.isCancelled ? TurnFrame.CANCELLED : TurnFrame.COMPLETED))))
+                .onErrorResume(error -> {
+                    logger.error("WebSocket turn {} failed", turnId, error);
+                    return Mono.just(text(TurnFrame.error(turnId, error.getMessage())));
+                })
+                .doFinally(signal -> admissionControl.release(user));
+        }
+        
+        private void onAudio(ByteBuffer frame) {
+            String turnId = AudioFrames.readTurnId(frame);
+            Turn turn = turns.get(turnId);
+            if (turn == null || turn.audio == null) {
+                send(TurnFrame.error(turnId, "No voice turn is running"));
+                return;
+            }
+            byte[] chunk = new byte[frame.remaining()];
+            frame.get(chunk);
+            if (turn.audio.tryEmitNext(chunk).isFailure()) {
+                // The pipeline fell behind by more than maxBufferedAudioChunks
+                turn.audio.tryEmitError(new IllegalStateException("Audio input overflow"));
+            }
+        }
+        
+        // Replies to malformed or unexpected frames, sent without waiting for a turn slot
+        private void send(TurnFrame frame) {
+            if (control.tryEmitNext(text(frame)) == Sinks.EmitResult.FAIL_OVERFLOW) {
+                // The client sends frames but stopped reading the replies
+                logger.warn("Closing WebSocket for {}: {} unread control frames", user, maxControlFrames);
+                control.tryEmitComplete();
+                session.close(CloseStatus.POLICY_VIOLATION).subscribe();
+            }
+        }
+        
+        private WebSocketMessage text(TurnFrame frame) {
+            try {
+                return session.textMessage(objectMapper.writeValueAsString(frame));
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Cannot serialize turn frame", e);
+            }
+        }
+    }
+    
+    private static TurnFrame rejected(String turnId, Admission admission) {
+        return TurnFrame.rejected(turnId, Math.max(1, (admission.getRetryAfter().toMillis() + 999) / 1000));
+    }
+    
+    private static class Turn {
+        
+        private final Sinks.Many<byte[]> audio;
+        private final Sinks.One<Boolean> cancelled = Sinks.one();
+        private volatile boolean isCancelled;
+        
+        Turn(Sinks.Many<byte[]> audio) {
+            this.audio = audio;
+        }
+        
+        void cancel() {
+            isCancelled = true;
+            cancelled.tryEmitValue(Boolean.TRUE);
+        }
+    }
+}
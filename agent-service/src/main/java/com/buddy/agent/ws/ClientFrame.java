@@ -0,0 +1,39 @@
+package com.buddy.agent.ws;
+
+// Text frame sent by a WebSocket client:
+//   {"type": "chat", "turnId": "t1", "sessionId": "s1", "message": "Hello"}  starts a chat turn
+//   {"type": "voice", "turnId": "t2", "sessionId": "s1"}                     starts a voice turn
+//   {"type": "audio_end", "turnId": "t2"}                                      no more audio for the turn
+//   {"type": "cancel", "turnId": "t1"}                                         stops the turn
+// Audio for a voice turn travels in binary frames, see AudioFrames.
+public class ClientFrame {
+    
+    public static final String CHAT = "chat";
+    public static final String VOICE = "voice";
+    public static final String AUDIO_END = "audio_end";
+    public static final String CANCEL = "cancel";
+    
+    private String type;
+    private String turnId;
+    private String sessionId;
+    private String message;
+    
+    public ClientFrame() {}
+    
+    public ClientFrame(String type, String turnId, String sessionId, String message) {
+        this.type = type;
+        this.turnId = turnId;
+        this.sessionId = sessionId;
+        this.message = message;
+    }
+    
+    // Getters and Setters
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+    public String getTurnId() { return turnId; }
+    public void setTurnId(String turnId) { this.turnId = turnId; }
+    public String getSessionId() { return sessionId; }
+    public void setSessionId(String sessionId) { this.sessionId = sessionId; }
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+}
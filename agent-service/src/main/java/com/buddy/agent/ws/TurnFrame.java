@@ -0,0 +1,66 @@
+package com.buddy.agent.ws;
+
+import com.buddy.common.dto.ChatEvent;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// Text frame sent to a WebSocket client. Every frame names its turn, so events of concurrent turns
+// can be interleaved on one connection. A turn produces any number of event frames and then exactly
+// one end frame: completed, cancelled, rejected (with retryAfter seconds) or error.
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TurnFrame {
+    
+    public static final String COMPLETED = "completed";
+    public static final String CANCELLED = "cancelled";
+    public static final String REJECTED = "rejected";
+    public static final String ERROR = "error";
+    
+    private final String turnId;
+    private final ChatEvent event;
+    private final String end;
+    private final Long retryAfter;
+    private final String error;
+    
+    private TurnFrame(String turnId, ChatEvent event, String end, Long retryAfter, String error) {
+        this.turnId = turnId;
+        this.event = event;
+        this.end = end;
+        this.retryAfter = retryAfter;
+        this.error = error;
+    }
+    
+    public static TurnFrame event(String turnId, ChatEvent event) {
+        return new TurnFrame(turnId, event, null, null, null);
+    }
+    
+    public static TurnFrame end(String turnId, String end) {
+        return new TurnFrame(turnId, null, end, null, null);
+    }
+    
+    public static TurnFrame rejected(String turnId, long retryAfterSeconds) {
+        return new TurnFrame(turnId, null, REJECTED, retryAfterSeconds, null);
+    }
+    
+    public static TurnFrame error(String turnId, String error) {
+        return new TurnFrame(turnId, null, ERROR, null, error);
+    }
+    
+    public String getTurnId() {
+        return turnId;
+    }
+    
+    public ChatEvent getEvent() {
+        return event;
+    }
+    
+    public String getEnd() {
+        return end;
+    }
+    
+    public Long getRetryAfter() {
+        return retryAfter;
+    }
+    
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,35 @@
+package com.buddy.agent.ws;
+
+import com.buddy.common.dto.ChatEvent;
+
+// One item a turn sends back: a chat event (text frame) or a chunk of audio (binary frame)
+public final class TurnOutput {
+    
+    private final ChatEvent event;
+    private final byte[] audio;
+    
+    private TurnOutput(ChatEvent event, byte[] audio) {
+        this.event = event;
+        this.audio = audio;
+    }
+    
+    public static TurnOutput event(ChatEvent event) {
+        return new TurnOutput(event, null);
+    }
+    
+    public static TurnOutput audio(byte[] audio) {
+        return new TurnOutput(null, audio);
+    }
+    
+    public boolean isAudio() {
+        return audio != null;
+    }
+    
+    public ChatEvent getEvent() {
+        return event;
+    }
+    
+    public byte[] getAudio() {
+        return audio;
+    }
+}
@@ -0,0 +1,10 @@
+package com.buddy.agent.ws;
+
+import reactor.core.publisher.Flux;
+
+// Runs one voice turn: audio chunks from the client in, events and synthesized audio chunks out.
+// Cancelling the returned Flux must stop all work for the turn.
+public interface VoiceTurnProcessor {
+    
+    Flux<TurnOutput> process(String username, String sessionId, Flux<byte[]> audio);
+}
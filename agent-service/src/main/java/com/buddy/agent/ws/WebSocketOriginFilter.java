@@ -0,0 +1,50 @@
+package com.buddy.agent.ws;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.cors.reactive.CorsUtils;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Set;
+
+// Origin check for the /ws/** handshakes. Browsers attach cookies to a cross-site WebSocket handshake
+// and the socket is not subject to CORS, so the global CORS config (any origin, with credentials)
+// would let any page drive a logged-in user's socket. A handshake from another origin is refused with
+// 403 unless it is listed in agent.websocket.allowedOrigins. Same-origin handshakes, and clients that
+// send no Origin (non-browser clients, which carry no ambient credentials), pass.
+@Component
+public class WebSocketOriginFilter implements WebFilter, Ordered {
+    
+    private static final String WS_PATH = "/ws/";
+    
+    private final Set<String> allowedOrigins;
+    
+    public WebSocketOriginFilter(@Value("${agent.websocket.allowedOrigins:}") List<String> allowedOrigins) {
+        this.allowedOrigins = Set.copyOf(allowedOrigins);
+    }
+    
+    // Before everything else, CorsWebFilter included, so a refused handshake does no other work
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+    
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (!request.getPath().value().startsWith(WS_PATH)
+            || !CorsUtils.isCorsRequest(request)
+            || allowedOrigins.contains(request.getHeaders().getOrigin())) {
+            return chain.filter(exchange);
+        }
+        exchange.getResponse().setStatusCode(HttpStatus.FORBIDDEN);
+        return exchange.getResponse().setComplete();
+    }
+}
@@ -0,0 +1,22 @@
+-- Shared agent-service state, only used with agent.state.store=postgres
+
+-- Serialized bucket4j state per rate-limit key (user:<name> or session:<name>/<sessionId>)
+CREATE TABLE agent_rate_limit_bucket (
+  id TEXT PRIMARY KEY,
+  state BYTEA,
+  updated_at TIMESTAMPTZ DEFAULT now()
+);
+
+-- Idle buckets are deleted by updated_at
+CREATE INDEX idx_agent_rate_limit_bucket_updated_at ON agent_rate_limit_bucket(updated_at);
+
+-- Per-session flags such as the response-cache bypass; a row means the flag is set
+CREATE TABLE agent_session_flag (
+  session_id TEXT NOT NULL,
+  flag TEXT NOT NULL,
+  updated_at TIMESTAMPTZ DEFAULT now(),
+  PRIMARY KEY (session_id, flag)
+);
+
+-- Expired flags are deleted by updated_at
+CREATE INDEX idx_agent_session_flag_updated_at ON agent_session_flag(updated_at);
@@ -0,0 +1,132 @@
+package com.buddy.agent.cache;
+
+import com.buddy.agent.openai.ChatMessage;
+import com.buddy.agent.state.LocalSessionStateStore;
+import com.buddy.agent.state.SessionStateStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+class ResponseCacheTest {
+    
+    private static final List<String> ANSWER = List.of("I can ", "take notes.");
+    
+    @Test
+    void testNormalizedPromptHits() {
+        ResponseCache cache = cache(1.0);
+        cache.put(key(cache, "s1", "What can you do?"), ANSWER);
+        
+        assertEquals(ANSWER, cache.get(key(cache, "s2", "  what CAN you   do")));
+    }
+    
+    @Test
+    void testDifferentContextMisses() {
+        ResponseCache cache = cache(1.0);
+        cache.put(key(cache, "s1", "What can you do?"), ANSWER);
+        
+        ResponseCache.Key otherHistory = cache.keyFor("alice", "s1", "openai/gpt-4o-mini", List.of(
+            ChatMessage.system("prompt"), ChatMessage.user("Hi"), ChatMessage.assistant("Hello!"),
+            ChatMessage.user("What can you do?")), "v1").block();
+        ResponseCache.Key otherTools = cache.keyFor("alice", "s1", "openai/gpt-4o-mini",
+            conversation("What can you do?"), "v2").block();
+        ResponseCache.Key otherModel = cache.keyFor("alice", "s1", "local/llama3.1",
+            conversation("What can you do?"), "v1").block();
+        
+        assertNull(cache.get(otherHistory));
+        assertNull(cache.get(otherTools));
+        assertNull(cache.get(otherModel));
+    }
+    
+    @Test
+    void testSimilarPromptHitsOnlyWithThreshold() {
+        ResponseCache exact = cache(1.0);
+        ResponseCache similar = cache(0.6);
+        exact.put(key(exact, "s1", "what can you do for me"), ANSWER);
+        similar.put(key(similar, "s1", "what can you do for me"), ANSWER);
+        
+        assertNull(exact.get(key(exact, "s1", "what can you do for me today")));
+        assertEquals(ANSWER, similar.get(key(similar, "s1", "what can you do for me today")));
+        assertNull(similar.get(key(similar, "s1", "summarize my notes from yesterday")));
+    }
+    
+    @Test
+    void testBypassedSessionGetsNoKey() {
+        ResponseCache cache = cache(1.0);
+        
+        cache.setBypass("alice", "s1", true).block();
+        assertNull(key(cache, "s1", "What can you do?"));
+        cache.setBypass("alice", "s1", false).block();
+        assertNotNull(key(cache, "s1", "What can you do?"));
+    }
+    
+    @Test
+    void testBypassOnlyAppliesToTheUserWhoSetIt() {
+        ResponseCache cache = cache(1.0);
+        
+        cache.setBypass("mallory/x", "s1", true).block();
+        
+        assertNotNull(key(cache, "s1", "What can you do?"));
+        assertNull(cache.keyFor("mallory/x", "s1", "openai/gpt-4o-mini", conversation("What can you do?"), "v1").block());
+    }
+    
+    @Test
+    void testBlockingStoreIsReadOffTheCallingThread() {
+        List<String> readers = new CopyOnWriteArrayList<>();
+        ResponseCache cache = cache(1.0, new LocalSessionStateStore() {
+            @Override
+            public boolean isSet(String sessionId, String flag) {
+                readers.add(Thread.currentThread().getName());
+                return super.isSet(sessionId, flag);
+            }
+            
+            @Override
+            public boolean isBlocking() {
+                return true;
+            }
+        });
+        
+        assertNotNull(key(cache, "s1", "What can you do?"));
+        assertEquals(1, readers.size());
+        assertTrue(readers.get(0).startsWith("boundedElastic"), readers.get(0));
+    }
+    
+    @Test
+    void testUnreadableBypassFlagCountsAsUnset() {
+        ResponseCache cache = cache(1.0, new LocalSessionStateStore() {
+            @Override
+            public boolean isSet(String sessionId, String flag) {
+                throw new IllegalStateException("store down");
+            }
+        });
+        
+        assertNotNull(key(cache, "s1", "What can you do?"));
+    }
+    
+    @Test
+    void testReplayKeepsTokens() {
+        ResponseCache cache = cache(1.0);
+        
+        assertEquals(ANSWER, cache.replay(ANSWER).collectList().block(Duration.ofSeconds(1)));
+    }
+    
+    private static ResponseCache cache(double similarityThreshold) {
+        return cache(similarityThreshold, new LocalSessionStateStore());
+    }
+    
+    private static ResponseCache cache(double similarityThreshold, SessionStateStore sessionState) {
+        return new ResponseCache(true, Duration.ofMinutes(5), 100, 16, similarityThreshold,
+            Duration.ZERO, sessionState, new SimpleMeterRegistry());
+    }
+    
+    private static ResponseCache.Key key(ResponseCache cache, String sessionId, String prompt) {
+        return cache.keyFor("alice", sessionId, "openai/gpt-4o-mini", conversation(prompt), "v1").block();
+    }
+    
+    private static List<ChatMessage> conversation(String prompt) {
+        return List.of(ChatMessage.system("prompt"), ChatMessage.user(prompt));
+    }
+}
@@ -0,0 +1,51 @@
+package com.buddy.agent.client;
+
+import com.buddy.agent.openai.OpenAiTools;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+
+class ToolCatalogCacheTest {
+    
+    @Test
+    void testFailedFirstFetchIsCachedUntilTheRetryBackoff() throws InterruptedException {
+        ToolsClient toolsClient = mock(ToolsClient.class);
+        when(toolsClient.fetchToolSpecs(any())).thenReturn(Mono.error(new IOException("connection refused")));
+        ToolCatalogCache cache = new ToolCatalogCache(toolsClient, Duration.ofMinutes(1), Duration.ofMillis(50));
+        
+        assertSame(OpenAiTools.NONE, cache.current().block());
+        assertSame(OpenAiTools.NONE, cache.current().block());
+        assertSame(OpenAiTools.NONE, cache.current().block());
+        verify(toolsClient, times(1)).fetchToolSpecs(any());
+        
+        when(toolsClient.fetchToolSpecs(any())).thenReturn(Mono.just(ToolsClient.CatalogResponse.of("\"v1\"", List.of())));
+        Thread.sleep(60);
+        cache.current().block();
+        
+        verify(toolsClient, times(2)).fetchToolSpecs(any());
+        assertEquals("\"v1\"", cache.getVersion());
+    }
+    
+    @Test
+    void testFailedRefreshKeepsTheCatalogAndBacksOff() throws InterruptedException {
+        ToolsClient toolsClient = mock(ToolsClient.class);
+        when(toolsClient.fetchToolSpecs(any())).thenReturn(Mono.just(ToolsClient.CatalogResponse.of("\"v1\"", List.of())));
+        ToolCatalogCache cache = new ToolCatalogCache(toolsClient, Duration.ofMillis(10), Duration.ofMinutes(1));
+        OpenAiTools tools = cache.current().block();
+        
+        when(toolsClient.fetchToolSpecs(any())).thenReturn(Mono.error(new IOException("connection refused")));
+        Thread.sleep(20);
+        for (int i = 0; i < 3; i++) {
+            assertSame(tools, cache.current().block());
+        }
+        
+        verify(toolsClient, times(2)).fetchToolSpecs(any());
+        assertEquals("\"v1\"", cache.getVersion());
+    }
+}
@@ -0,0 +1,75 @@
+package com.buddy.agent.client;
+
+import com.buddy.common.tool.ToolResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+
+// Runs the client against a local server answering every execute call with one status and body
+class ToolsClientTest {
+    
+    private DisposableServer server;
+    private HttpClientFactory httpClientFactory;
+    
+    @AfterEach
+    void tearDown() {
+        httpClientFactory.destroy();
+        server.disposeNow();
+    }
+    
+    @Test
+    void testSuccessfulResultIsPassedOn() {
+        ToolResult result = execute(200, "{\"success\":true,\"result\":\"Note saved\"}");
+        
+        assertTrue(result.isSuccess());
+        assertEquals("Note saved", result.getResult());
+    }
+    
+    @Test
+    void testToolFailureKeepsTheToolsOwnError() {
+        ToolResult result = execute(400, "{\"success\":false,\"result\":null,\"error\":\"Note not found: x\"}");
+        
+        assertFalse(result.isSuccess());
+        assertEquals("Note not found: x", result.getError());
+    }
+    
+    @Test
+    void testServerErrorCarriesStatusAndBody() {
+        ToolResult result = execute(500, "{\"timestamp\":\"2024-06-10T09:30:00Z\",\"status\":500,"
+            + "\"error\":\"Internal Server Error\",\"path\":\"/api/tools/execute/notes\"}");
+        
+        assertFalse(result.isSuccess());
+        assertTrue(result.getError().startsWith("Tool notes failed with HTTP 500: "), result.getError());
+        assertTrue(result.getError().contains("/api/tools/execute/notes"));
+    }
+    
+    @Test
+    void testErrorWithoutBodyCarriesStatus() {
+        ToolResult result = execute(404, "");
+        
+        assertFalse(result.isSuccess());
+        assertEquals("Tool notes failed with HTTP 404", result.getError());
+    }
+    
+    private ToolResult execute(int status, String body) {
+        server = HttpServer.create()
+            .host("127.0.0.1")
+            .port(0)
+            .route(routes -> routes.post("/api/tools/execute/{name}", (request, response) -> response
+                .status(status)
+                .header("Content-Type", "application/json")
+                .sendString(body.isEmpty() ? Mono.empty() : Mono.just(body))))
+            .bindNow();
+        httpClientFactory = new HttpClientFactory(new MockEnvironment(), new SimpleMeterRegistry());
+        ToolsClient client = new ToolsClient("http://127.0.0.1:" + server.port(), httpClientFactory, new ObjectMapper());
+        return client.executeTool("notes", "get: x").block(Duration.ofSeconds(5));
+    }
+}
@@ -0,0 +1,187 @@
+package com.buddy.agent.llm;
+
+import com.buddy.agent.openai.ChatMessage;
+import com.buddy.agent.openai.CompletionDelta;
+import com.buddy.agent.openai.OpenAiTools;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+class LlmRouterTest {
+    
+    private static final List<ChatMessage> MESSAGES = List.of(ChatMessage.user("Hello there"));
+    
+    private SimpleMeterRegistry meterRegistry;
+    
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+    
+    @Test
+    void testFakeBackendIsDeterministic() {
+        LlmRouter router = new LlmRouter(List.of(
+            new LlmRouter.Backend(new FakeLlmProvider("fake", Duration.ZERO, Duration.ZERO), 1)), meterRegistry);
+        
+        assertEquals(List.of("You", " said:", " Hello", " there"), content(router));
+        assertEquals(List.of("You", " said:", " Hello", " there"), content(router));
+    }
+    
+    @Test
+    void testFasterBackendIsPreferred() {
+        LlmRouter.Backend slow = new LlmRouter.Backend(new FakeLlmProvider("slow", Duration.ofMillis(40), Duration.ZERO), 1);
+        LlmRouter.Backend fast = new LlmRouter.Backend(new FakeLlmProvider("fast", Duration.ZERO, Duration.ZERO), 1);
+        LlmRouter router = new LlmRouter(List.of(slow, fast), meterRegistry);
+        slow.stream(MESSAGES, OpenAiTools.NONE).blockLast();
+        fast.stream(MESSAGES, OpenAiTools.NONE).blockLast();
+        
+        int fastFirst = 0;
+        for (int i = 0; i < 200; i++) {
+            if (router.route().get(0) == fast) {
+                fastFirst++;
+            }
+        }
+        
+        // Two weighted samples, the cheaper one wins: the fast backend leads about 3 times in 4
+        assertTrue(fastFirst > 110, "fast backend first " + fastFirst + " times");
+    }
+    
+    @Test
+    void testFailsOverWhenBackendFailsBeforeFirstDelta() {
+        ScriptedProvider broken = new ScriptedProvider("broken", () -> Flux.error(new IllegalStateException("down")));
+        LlmRouter router = new LlmRouter(List.of(
+            new LlmRouter.Backend(broken, 1),
+            new LlmRouter.Backend(new FakeLlmProvider("standby", Duration.ZERO, Duration.ZERO), 0)), meterRegistry);
+        
+        assertEquals(List.of("You", " said:", " Hello", " there"), content(router));
+        assertEquals(1, broken.calls.get());
+        assertEquals(1, meterRegistry.get("llm.router.failovers").counter().count());
+        assertEquals(0.2, router.getBackends().get(0).getErrorRate(), 1e-9);
+    }
+    
+    @Test
+    void testSelectionNamesTheModelThatAnswered() {
+        ScriptedProvider broken = new ScriptedProvider("broken", () -> Flux.error(new IllegalStateException("down")));
+        LlmRouter router = new LlmRouter(List.of(
+            new LlmRouter.Backend(broken, 1),
+            new LlmRouter.Backend(new FakeLlmProvider("standby", Duration.ZERO, Duration.ZERO), 0)), meterRegistry);
+        
+        LlmProvider selected = router.select();
+        assertEquals("broken", selected.getModel());
+        
+        content(selected);
+        assertEquals("standby", selected.getModel());
+    }
+    
+    @Test
+    void testNoFailoverOnceDeltasWereSent() {
+        ScriptedProvider flaky = new ScriptedProvider("flaky",
+            () -> Flux.concat(Flux.just(CompletionDelta.content("Par")), Flux.error(new IllegalStateException("reset"))));
+        ScriptedProvider standby = new ScriptedProvider("standby", () -> Flux.just(CompletionDelta.content("Other")));
+        LlmRouter router = new LlmRouter(List.of(new LlmRouter.Backend(flaky, 1), new LlmRouter.Backend(standby, 0)),
+            meterRegistry);
+        
+        List<CompletionDelta> deltas = router.streamChatCompletion(MESSAGES, OpenAiTools.NONE).collectList().block();
+        
+        assertEquals("Par", deltas.get(0).getContent());
+        assertEquals("error", deltas.get(deltas.size() - 1).getFinishReason());
+        assertEquals(0, standby.calls.get());
+    }
+    
+    @Test
+    void testUnavailableBackendIsSkipped() {
+        ScriptedProvider open = new ScriptedProvider("open", () -> Flux.just(CompletionDelta.content("Open")));
+        open.available = false;
+        LlmRouter router = new LlmRouter(List.of(
+            new LlmRouter.Backend(open, 1),
+            new LlmRouter.Backend(new FakeLlmProvider("closed", Duration.ZERO, Duration.ZERO), 1)), meterRegistry);
+        
+        for (int i = 0; i < 20; i++) {
+            assertEquals("closed", router.route().get(0).getName());
+        }
+        assertEquals(1, router.route().size());
+    }
+    
+    @Test
+    void testBackendThatAlwaysFailsFastIsNotPreferred() {
+        ScriptedProvider broken = new ScriptedProvider("broken", () -> Flux.error(new IllegalStateException("401")));
+        LlmRouter.Backend failing = new LlmRouter.Backend(broken, 1, Duration.ofSeconds(1));
+        LlmRouter.Backend healthy = new LlmRouter.Backend(
+            new FakeLlmProvider("healthy", Duration.ofMillis(40), Duration.ZERO), 1, Duration.ofSeconds(1));
+        LlmRouter router = new LlmRouter(List.of(failing, healthy), meterRegistry);
+        
+        for (int i = 0; i < 5; i++) {
+            assertEquals(List.of("You", " said:", " Hello", " there"), content(router));
+        }
+        assertTrue(broken.calls.get() > 0);
+        assertTrue(failing.getLatencyNanos() >= Duration.ofSeconds(1).toNanos());
+        
+        int healthyFirst = 0;
+        for (int i = 0; i < 200; i++) {
+            if (router.route().get(0) == healthy) {
+                healthyFirst++;
+            }
+        }
+        
+        // Without the penalty its instant failures would make it look like the fastest backend
+        assertTrue(healthyFirst > 110, "healthy backend first " + healthyFirst + " times");
+    }
+    
+    @Test
+    void testAllBackendsFailingEndsWithApology() {
+        LlmRouter router = new LlmRouter(List.of(
+            new LlmRouter.Backend(new ScriptedProvider("a", () -> Flux.error(new IllegalStateException("a"))), 1),
+            new LlmRouter.Backend(new ScriptedProvider("b", () -> Flux.error(new IllegalStateException("b"))), 1)),
+            meterRegistry);
+        
+        List<CompletionDelta> deltas = router.streamChatCompletion(MESSAGES, OpenAiTools.NONE).collectList().block();
+        
+        assertEquals(2, deltas.size());
+        assertTrue(deltas.get(0).getContent().startsWith("I apologize"));
+        assertEquals("error", deltas.get(1).getFinishReason());
+    }
+    
+    private static List<String> content(LlmProvider provider) {
+        return provider.streamChatCompletion(MESSAGES, OpenAiTools.NONE)
+            .filter(delta -> delta.getKind() == CompletionDelta.Kind.CONTENT)
+            .map(CompletionDelta::getContent)
+            .collectList()
+            .block(Duration.ofSeconds(5));
+    }
+    
+    private static class ScriptedProvider implements LlmProvider {
+        
+        private final String name;
+        private final Supplier<Flux<CompletionDelta>> script;
+        private final AtomicInteger calls = new AtomicInteger();
+        private volatile boolean available = true;
+        
+        ScriptedProvider(String name, Supplier<Flux<CompletionDelta>> script) {
+            this.name = name;
+            this.script = script;
+        }
+        
+        @Override
+        public String getName() {
+            return name;
+        }
+        
+        @Override
+        public Flux<CompletionDelta> streamChatCompletion(List<ChatMessage> messages, OpenAiTools tools) {
+            calls.incrementAndGet();
+            return script.get();
+        }
+        
+        @Override
+        public boolean isAvailable() {
+            return available;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.buddy.agent.openai;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class InFlightCompletionsTest {
+    
+    private SimpleMeterRegistry meterRegistry;
+    private InFlightCompletions inFlight;
+    private Sinks.Many<CompletionDelta> upstream;
+    private final AtomicInteger subscriptions = new AtomicInteger();
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        inFlight = new InFlightCompletions("openai", meterRegistry);
+        upstream = Sinks.many().unicast().onBackpressureBuffer();
+    }
+    
+    @Test
+    void testLateJoinerReceivesEarlierTokensFromTheSameUpstream() {
+        List<String> first = new CopyOnWriteArrayList<>();
+        List<String> second = new CopyOnWriteArrayList<>();
+        
+        join().subscribe(delta -> first.add(delta.getContent()));
+        upstream.tryEmitNext(CompletionDelta.content("Hello"));
+        join().subscribe(delta -> second.add(delta.getContent()));
+        upstream.tryEmitNext(CompletionDelta.content(" there"));
+        upstream.tryEmitComplete();
+        
+        assertEquals(List.of("Hello", " there"), first);
+        assertEquals(List.of("Hello", " there"), second);
+        assertEquals(1, subscriptions.get());
+        assertEquals(1.0, meterRegistry.counter("openai.completions.coalesced", "backend", "openai").count());
+    }
+    
+    @Test
+    void testUpstreamIsCancelledOnlyWhenTheLastSubscriberLeaves() {
+        Disposable first = join().subscribe();
+        Disposable second = join().subscribe();
+        
+        first.dispose();
+        assertFalse(cancelled.get());
+        second.dispose();
+        
+        assertTrue(cancelled.get());
+    }
+    
+    @Test
+    void testKeyIsReleasedWhenUpstreamCompletes() {
+        join().subscribe();
+        upstream.tryEmitComplete();
+        
+        upstream = Sinks.many().unicast().onBackpressureBuffer();
+        join().subscribe();
+        
+        assertEquals(2, subscriptions.get());
+    }
+    
+    @Test
+    void testKeyIsReleasedWhenAllSubscribersCancel() {
+        join().subscribe().dispose();
+        
+        upstream = Sinks.many().unicast().onBackpressureBuffer();
+        upstream.tryEmitNext(CompletionDelta.content("fresh"));
+        upstream.tryEmitComplete();
+        
+        assertEquals("fresh", join().blockFirst(Duration.ofSeconds(1)).getContent());
+        assertEquals(2, subscriptions.get());
+    }
+    
+    private Flux<CompletionDelta> join() {
+        return inFlight.join("key", () -> upstream.asFlux()
+            .doOnSubscribe(s -> subscriptions.incrementAndGet())
+            .doOnCancel(() -> cancelled.set(true)));
+    }
+}
@@ -0,0 +1,195 @@
+package com.buddy.agent.openai;
+
+import com.buddy.agent.client.HttpClientFactory;
+import com.buddy.agent.resilience.CircuitOpenException;
+import com.buddy.agent.resilience.ResilienceFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerResponse;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+// Runs the client against a local SSE server that plays a scripted response per request
+class OpenAiClientTest {
+    
+    private final Queue<Function<HttpServerResponse, Publisher<Void>>> script = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    private DisposableServer server;
+    private SimpleMeterRegistry meterRegistry;
+    private HttpClientFactory httpClientFactory;
+    
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        server = HttpServer.create()
+            .host("127.0.0.1")
+            .port(0)
+            .route(routes -> routes.post("/v1/chat/completions", (request, response) -> {
+                requests.incrementAndGet();
+                Function<HttpServerResponse, Publisher<Void>> next = script.poll();
+                return next != null ? next.apply(response) : answer("Hi").apply(response);
+            }))
+            .bindNow();
+    }
+    
+    @AfterEach
+    void tearDown() {
+        if (httpClientFactory != null) {
+            httpClientFactory.destroy();
+        }
+        server.disposeNow();
+    }
+    
+    @Test
+    void testServerErrorIsRetried() {
+        script.add(status(503));
+        
+        assertEquals(List.of("Hi"), content(client(new MockEnvironment())));
+        assertEquals(2, requests.get());
+        assertEquals(1, meterRegistry.get("upstream.retries").tag("target", "openai").counter().count());
+    }
+    
+    @Test
+    void testClientErrorIsNotRetried() {
+        script.add(status(400));
+        
+        assertThrows(WebClientResponseException.BadRequest.class, () -> content(client(new MockEnvironment())));
+        assertEquals(1, requests.get());
+    }
+    
+    @Test
+    void testSilentUpstreamTimesOutAndIsRetried() {
+        AtomicBoolean abandoned = new AtomicBoolean();
+        script.add(hang(abandoned));
+        OpenAiClient client = client(new MockEnvironment()
+            .withProperty("resilience.openai.firstTokenTimeout", "PT0.3S"));
+        
+        assertEquals(List.of("Hi"), content(client));
+        assertEquals(2, requests.get());
+        awaitTrue(abandoned);
+    }
+    
+    @Test
+    void testHedgedRequestWinsAgainstSlowFirstTokenAndCancelsTheLoser() {
+        warmUp();
+        AtomicBoolean abandoned = new AtomicBoolean();
+        script.add(hang(abandoned));
+        OpenAiClient client = client(new MockEnvironment()
+            .withProperty("resilience.openai.hedge", "true")
+            .withProperty("resilience.openai.hedgeMinDelay", "PT0.1S"));
+        
+        long start = System.nanoTime();
+        assertEquals(List.of("Hi"), content(client));
+        
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofSeconds(5)) < 0);
+        assertEquals(2, requests.get());
+        assertEquals(1, meterRegistry.get("upstream.hedge.wins").tag("target", "openai").counter().count());
+        assertEquals(0, meterRegistry.get("upstream.retries").tag("target", "openai").counter().count());
+        awaitTrue(abandoned);
+    }
+    
+    @Test
+    void testFastAnswerIsNotHedged() {
+        OpenAiClient client = client(new MockEnvironment()
+            .withProperty("resilience.openai.hedge", "true")
+            .withProperty("resilience.openai.hedgeMinDelay", "PT1S"));
+        
+        assertEquals(List.of("Hi"), content(client));
+        assertEquals(1, requests.get());
+        assertEquals(0, meterRegistry.get("upstream.hedges").tag("target", "openai").counter().count());
+    }
+    
+    @Test
+    void testOpenCircuitSkipsTheUpstreamUntilAProbeSucceeds() throws InterruptedException {
+        script.add(status(500));
+        script.add(status(500));
+        OpenAiClient client = client(new MockEnvironment()
+            .withProperty("resilience.openai.maxRetries", "0")
+            .withProperty("resilience.openai.breakerWindowSize", "2")
+            .withProperty("resilience.openai.breakerMinimumCalls", "2")
+            .withProperty("resilience.openai.breakerOpenDuration", "PT0.3S")
+            .withProperty("resilience.openai.breakerHalfOpenProbes", "1"));
+        
+        assertThrows(WebClientResponseException.class, () -> content(client));
+        assertThrows(WebClientResponseException.class, () -> content(client));
+        assertFalse(client.isAvailable());
+        assertThrows(CircuitOpenException.class, () -> content(client));
+        assertEquals(2, requests.get());
+        assertEquals(1, meterRegistry.get("upstream.circuit.rejected").tag("target", "openai").counter().count());
+        
+        Thread.sleep(350);
+        
+        assertTrue(client.isAvailable());
+        assertEquals(List.of("Hi"), content(client));
+        assertEquals(3, requests.get());
+        assertEquals(0, meterRegistry.get("upstream.circuit.state").tag("target", "openai").gauge().value());
+    }
+    
+    private OpenAiClient client(MockEnvironment environment) {
+        environment.withProperty("resilience.openai.retryBackoff", "PT0.01S");
+        httpClientFactory = new HttpClientFactory(environment, meterRegistry);
+        return new OpenAiClient("openai", "http://127.0.0.1:" + server.port() + "/v1", "test-key", "gpt-4o-mini", false,
+            httpClientFactory, new ResilienceFactory(environment, meterRegistry), new ObjectMapper(),
+            new CompletionLatency(meterRegistry), meterRegistry);
+    }
+    
+    // A cold first request can take longer than a short hedge delay, letting the hedge reach the server
+    // first and pick up the scripted response meant for the original attempt
+    private void warmUp() {
+        content(client(new MockEnvironment()));
+        httpClientFactory.destroy();
+        requests.set(0);
+    }
+    
+    private static List<String> content(OpenAiClient client) {
+        return client.streamChatCompletion(List.of(ChatMessage.user("Hello")), OpenAiTools.NONE)
+            .filter(delta -> delta.getKind() == CompletionDelta.Kind.CONTENT)
+            .map(CompletionDelta::getContent)
+            .collectList()
+            .block(Duration.ofSeconds(10));
+    }
+    
+    private static Function<HttpServerResponse, Publisher<Void>> answer(String content) {
+        return response -> response.header("Content-Type", "text/event-stream")
+            .sendString(Flux.just(
+                "data: {\"choices\":[{\"index\":0,\"delta\":{\"content\":\"" + content + "\"}}]}\n\n",
+                "data: {\"choices\":[{\"index\":0,\"delta\":{},\"finish_reason\":\"stop\"}]}\n\n",
+                "data: [DONE]\n\n"));
+    }
+    
+    private static Function<HttpServerResponse, Publisher<Void>> status(int status) {
+        return response -> response.status(status).sendString(Mono.just("{\"error\":{}}"));
+    }
+    
+    // Sends headers, then nothing, until the client goes away
+    private static Function<HttpServerResponse, Publisher<Void>> hang(AtomicBoolean abandoned) {
+        return response -> response.header("Content-Type", "text/event-stream")
+            .sendString(Flux.concat(Mono.just(": keep-alive\n\n"), Flux.<String>never())
+                .doOnCancel(() -> abandoned.set(true)));
+    }
+    
+    private static void awaitTrue(AtomicBoolean flag) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(2).toNanos();
+        while (!flag.get() && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertTrue(flag.get());
+    }
+}
@@ -0,0 +1,99 @@
+package com.buddy.agent.openai;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+class SseCompletionDecoderTest {
+    
+    private SseCompletionDecoder decoder;
+    private List<CompletionDelta> out;
+    
+    @BeforeEach
+    void setUp() {
+        decoder = new SseCompletionDecoder();
+        out = new ArrayList<>();
+    }
+    
+    @Test
+    void testContentWithEscapesAndUnicode() {
+        feed(chunk("{\"content\":\"Say \\\"hi\\\" \\u00e9 ❤\"}") + "data: [DONE]\n\n");
+        
+        assertEquals(List.of("Say \"hi\" é ❤"), contents());
+        assertTrue(decoder.isDone());
+    }
+    
+    @Test
+    void testFramesSplitAtEveryByte() {
+        byte[] bytes = (chunk("{\"role\":\"assistant\",\"content\":\"Hel\"}")
+            + ": keep-alive\n\n"
+            + chunk("{\"content\":\"lö 世界\"}")).getBytes(StandardCharsets.UTF_8);
+        
+        for (byte b : bytes) {
+            decoder.decode(ByteBuffer.wrap(new byte[] {b}), out);
+        }
+        
+        assertEquals(List.of("Hel", "lö 世界"), contents());
+    }
+    
+    @Test
+    void testMultipleEventsInOneBufferWithCrLf() {
+        feed((chunk("{\"content\":\"a\"}") + chunk("{\"content\":\"b\"}")).replace("\n", "\r\n"));
+        
+        assertEquals(List.of("a", "b"), contents());
+    }
+    
+    @Test
+    void testToolCallsAndFinishReason() {
+        feed(chunk("{\"tool_calls\":[{\"index\":0,\"id\":\"call_1\",\"type\":\"function\","
+                + "\"function\":{\"name\":\"notes\",\"arguments\":\"\"}}]}")
+            + chunk("{\"tool_calls\":[{\"index\":0,\"function\":{\"arguments\":\"{\\\"input\\\":\"}}]}")
+            + "data: {\"choices\":[{\"index\":0,\"delta\":{},\"finish_reason\":\"tool_calls\"}]}\n\n");
+        
+        assertEquals(3, out.size());
+        CompletionDelta first = out.get(0);
+        assertEquals(CompletionDelta.Kind.TOOL_CALL, first.getKind());
+        assertEquals("call_1", first.getToolCallId());
+        assertEquals("notes", first.getToolName());
+        assertEquals(0, first.getToolCallIndex());
+        assertNull(out.get(1).getToolName());
+        assertEquals("{\"input\":", out.get(1).getContent());
+        assertEquals(CompletionDelta.Kind.FINISH, out.get(2).getKind());
+        assertEquals("tool_calls", out.get(2).getFinishReason());
+    }
+    
+    @Test
+    void testContentOutsideDeltaIsIgnored() {
+        feed("data: {\"content\":\"not a delta\",\"choices\":[{\"message\":{\"content\":\"nor this\"}}]}\n\n");
+        
+        assertTrue(out.isEmpty());
+    }
+    
+    @Test
+    void testMalformedChunkIsSkipped() {
+        feed("data: {\"choices\":[{\"delta\":{\"content\":oops}}]}\n\n" + chunk("{\"content\":\"ok\"}"));
+        
+        assertEquals(List.of("ok"), contents());
+    }
+    
+    private void feed(String sse) {
+        decoder.decode(ByteBuffer.wrap(sse.getBytes(StandardCharsets.UTF_8)), out);
+    }
+    
+    private List<String> contents() {
+        return out.stream()
+            .filter(delta -> delta.getKind() == CompletionDelta.Kind.CONTENT)
+            .map(CompletionDelta::getContent)
+            .toList();
+    }
+    
+    private static String chunk(String delta) {
+        return "data: {\"id\":\"chatcmpl-1\",\"object\":\"chat.completion.chunk\",\"choices\":[{\"index\":0,\"delta\":"
+            + delta + ",\"finish_reason\":null}]}\n\n";
+    }
+}
@@ -0,0 +1,56 @@
+package com.buddy.agent.ratelimit;
+
+import com.buddy.agent.client.HttpClientFactory;
+import com.buddy.agent.openai.CompletionLatency;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+
+class AdaptiveLimiterTest {
+    
+    private CompletionLatency latency;
+    private HttpClientFactory httpClientFactory;
+    private AdaptiveLimiter limiter;
+    
+    @BeforeEach
+    void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        latency = new CompletionLatency(meterRegistry);
+        httpClientFactory = mock(HttpClientFactory.class);
+        limiter = new AdaptiveLimiter(100, 10, Duration.ofSeconds(2), 50, Duration.ZERO, Duration.ofSeconds(3),
+            latency, httpClientFactory, meterRegistry);
+    }
+    
+    @Test
+    void testSlowUpstreamShrinksLimitAndShedsStreams() {
+        latency.record(Duration.ofSeconds(10).toNanos());
+        for (int i = 0; i < 20; i++) {
+            limiter.tryAcquire();
+        }
+        
+        assertEquals(10, limiter.getLimit());
+        Admission shed = limiter.tryAcquire();
+        assertFalse(shed.isAllowed());
+        assertEquals("overload", shed.getReason());
+        assertEquals(Duration.ofSeconds(3), shed.getRetryAfter());
+    }
+    
+    @Test
+    void testLimitRecoversWhenUpstreamIsHealthyAgain() {
+        when(httpClientFactory.pendingAcquires("openai")).thenReturn(500.0);
+        for (int i = 0; i < 20; i++) {
+            limiter.tryAcquire();
+            limiter.release();
+        }
+        assertEquals(10, limiter.getLimit());
+        
+        when(httpClientFactory.pendingAcquires("openai")).thenReturn(0.0);
+        limiter.tryAcquire();
+        
+        assertEquals(12, limiter.getLimit());
+    }
+}
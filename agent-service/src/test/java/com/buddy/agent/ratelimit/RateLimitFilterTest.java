@@ -0,0 +1,144 @@
+package com.buddy.agent.ratelimit;
+
+import com.buddy.agent.client.HttpClientFactory;
+import com.buddy.agent.openai.CompletionLatency;
+import com.buddy.agent.state.LocalBucketStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+class RateLimitFilterTest {
+    
+    private SimpleMeterRegistry meterRegistry;
+    private RateLimiter rateLimiter;
+    private RateLimitFilter filter;
+    
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        rateLimiter = new RateLimiter(new LocalBucketStore(Duration.ofHours(1)), 5, Duration.ofMinutes(1),
+            2, Duration.ofMinutes(1), 1, Duration.ofSeconds(5));
+        AdaptiveLimiter adaptiveLimiter = new AdaptiveLimiter(100, 10, Duration.ofSeconds(5), 200,
+            Duration.ofSeconds(1), Duration.ofSeconds(5), new CompletionLatency(meterRegistry),
+            mock(HttpClientFactory.class), meterRegistry);
+        filter = new RateLimitFilter(new AdmissionControl(true, rateLimiter, adaptiveLimiter, meterRegistry));
+    }
+    
+    @Test
+    void testSessionBucketIsReadFromBodyAndBodyIsPassedOn() {
+        AtomicReference<String> forwarded = new AtomicReference<>();
+        WebFilterChain chain = exchange -> DataBufferUtils.join(exchange.getRequest().getBody())
+            .doOnNext(buffer -> forwarded.set(buffer.toString(StandardCharsets.UTF_8)))
+            .then();
+        
+        assertNull(run(chatRequest("s1"), chain).getResponse().getStatusCode());
+        assertEquals("{\"message\":\"Hi\",\"sessionId\":\"s1\"}", forwarded.get());
+        assertNull(run(chatRequest("s1"), chain).getResponse().getStatusCode());
+        
+        MockServerWebExchange rejected = run(chatRequest("s1"), chain);
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, rejected.getResponse().getStatusCode());
+        assertNotNull(rejected.getResponse().getHeaders().getFirst("Retry-After"));
+        assertNull(run(chatRequest("s2"), chain).getResponse().getStatusCode());
+        assertEquals(1.0, meterRegistry.counter("agent.ratelimit.rejections", "reason", "session").count());
+    }
+    
+    @Test
+    void testUserBucketAppliesAcrossSessions() {
+        for (int i = 0; i < 5; i++) {
+            assertNull(run(chatRequest("s" + i), exchange -> Mono.empty()).getResponse().getStatusCode());
+        }
+        
+        MockServerWebExchange rejected = run(chatRequest("other"), exchange -> Mono.empty());
+        
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, rejected.getResponse().getStatusCode());
+        assertEquals(1.0, meterRegistry.counter("agent.ratelimit.rejections", "reason", "user").count());
+    }
+    
+    @Test
+    void testOpenStreamIsHeldUntilTheResponseEnds() {
+        Sinks.Empty<Void> response = Sinks.empty();
+        MockServerWebExchange first = MockServerWebExchange.from(streamRequest("s1"));
+        filter.filter(first, exchange -> response.asMono()).subscribe();
+        assertEquals(1, rateLimiter.openStreams("127.0.0.1"));
+        
+        MockServerWebExchange second = run(streamRequest("s2"), exchange -> Mono.empty());
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, second.getResponse().getStatusCode());
+        assertEquals("5", second.getResponse().getHeaders().getFirst("Retry-After"));
+        
+        response.tryEmitEmpty();
+        assertEquals(0, rateLimiter.openStreams("127.0.0.1"));
+        assertNull(run(streamRequest("s2"), exchange -> Mono.empty()).getResponse().getStatusCode());
+    }
+    
+    @Test
+    void testVoiceTurnHoldsAStreamSlot() {
+        Sinks.Empty<Void> response = Sinks.empty();
+        MockServerWebExchange voice = MockServerWebExchange.from(streamRequest("/api/chat/voice", "s1"));
+        filter.filter(voice, exchange -> response.asMono()).subscribe();
+        assertEquals(1, rateLimiter.openStreams("127.0.0.1"));
+        
+        MockServerWebExchange chat = run(streamRequest("s2"), exchange -> Mono.empty());
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, chat.getResponse().getStatusCode());
+        
+        response.tryEmitEmpty();
+        assertEquals(0, rateLimiter.openStreams("127.0.0.1"));
+    }
+    
+    @Test
+    void testSessionIsTakenFromPath() {
+        for (int i = 0; i < 2; i++) {
+            run(MockServerHttpRequest.put("/api/chat/sessions/s1/cache-bypass").build(), exchange -> Mono.empty());
+        }
+        
+        MockServerWebExchange rejected = run(MockServerHttpRequest.put("/api/chat/sessions/s1/cache-bypass").build(),
+            exchange -> Mono.empty());
+        
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, rejected.getResponse().getStatusCode());
+    }
+    
+    @Test
+    void testOtherPathsAreNotLimited() {
+        for (int i = 0; i < 10; i++) {
+            assertNull(run(MockServerHttpRequest.get("/actuator/health").build(), exchange -> Mono.empty())
+                .getResponse().getStatusCode());
+        }
+    }
+    
+    private MockServerWebExchange run(MockServerHttpRequest request, WebFilterChain chain) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        filter.filter(exchange, chain).block(Duration.ofSeconds(1));
+        return exchange;
+    }
+    
+    private static MockServerHttpRequest chatRequest(String sessionId) {
+        return MockServerHttpRequest.post("/api/chat/voice")
+            .contentType(MediaType.APPLICATION_JSON)
+            .body("{\"message\":\"Hi\",\"sessionId\":\"" + sessionId + "\"}");
+    }
+    
+    private static MockServerHttpRequest streamRequest(String sessionId) {
+        return streamRequest("/api/chat/stream", sessionId);
+    }
+    
+    private static MockServerHttpRequest streamRequest(String path, String sessionId) {
+        return MockServerHttpRequest.post(path)
+            .remoteAddress(new InetSocketAddress("127.0.0.1", 50000))
+            .header(RateLimitFilter.SESSION_HEADER, sessionId)
+            .build();
+    }
+}
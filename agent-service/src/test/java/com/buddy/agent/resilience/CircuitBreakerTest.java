@@ -0,0 +1,104 @@
+package com.buddy.agent.resilience;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+class CircuitBreakerTest {
+    
+    private final AtomicLong now = new AtomicLong();
+    private CircuitBreaker breaker;
+    
+    @BeforeEach
+    void setUp() {
+        breaker = new CircuitBreaker(4, 4, 0.5, Duration.ofSeconds(10), 2, now::get);
+    }
+    
+    @Test
+    void testOpensOnceFailureRateReachesThresholdOverMinimumCalls() {
+        call(true);
+        call(true);
+        call(false);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        
+        call(false);
+        
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+    }
+    
+    @Test
+    void testFailureRateIsOverTheLastWindowSizeCalls() {
+        call(false);
+        for (int i = 0; i < 5; i++) {
+            call(true);
+        }
+        call(false);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        
+        // 3 of 8 calls failed, but 2 of the last 4
+        call(false);
+        
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+    
+    @Test
+    void testHalfOpenLetsProbesThroughAndClosesWhenTheySucceed() {
+        trip();
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+        
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        
+        breaker.onSuccess();
+        breaker.onSuccess();
+        
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+    }
+    
+    @Test
+    void testFailedProbeOpensAgain() {
+        trip();
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+        
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+        
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+    }
+    
+    @Test
+    void testReleasedProbeFreesItsSlot() {
+        trip();
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+        
+        breaker.release();
+        
+        assertTrue(breaker.tryAcquire());
+    }
+    
+    private void trip() {
+        for (int i = 0; i < 4; i++) {
+            call(false);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+    
+    private void call(boolean success) {
+        assertTrue(breaker.tryAcquire());
+        if (success) {
+            breaker.onSuccess();
+        } else {
+            breaker.onFailure();
+        }
+    }
+}
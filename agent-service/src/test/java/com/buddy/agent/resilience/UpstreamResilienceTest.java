@@ -0,0 +1,49 @@
+package com.buddy.agent.resilience;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+class UpstreamResilienceTest {
+    
+    @Test
+    void testUnauthorizedOpensTheCircuit() {
+        UpstreamResilience resilience = resilience();
+        
+        for (int i = 0; i < 4; i++) {
+            call(resilience, 401);
+        }
+        
+        assertEquals(CircuitBreaker.State.OPEN, resilience.getCircuitState());
+    }
+    
+    @Test
+    void testBadRequestLeavesTheCircuitClosed() {
+        UpstreamResilience resilience = resilience();
+        
+        for (int i = 0; i < 4; i++) {
+            call(resilience, 400);
+        }
+        
+        assertEquals(CircuitBreaker.State.CLOSED, resilience.getCircuitState());
+    }
+    
+    private static UpstreamResilience resilience() {
+        return new UpstreamResilience("test", Duration.ofSeconds(5), false, Duration.ofMillis(100),
+            () -> Duration.ZERO, 0, Duration.ofMillis(10), new RetryBudget(0.1, 1),
+            new CircuitBreaker(4, 4, 0.5, Duration.ofSeconds(10), 1), new SimpleMeterRegistry());
+    }
+    
+    private static void call(UpstreamResilience resilience, int status) {
+        WebClientResponseException error = WebClientResponseException.create(status, "status " + status,
+            HttpHeaders.EMPTY, new byte[0], StandardCharsets.UTF_8);
+        assertThrows(WebClientResponseException.class,
+            () -> resilience.execute(() -> Flux.<String>error(error)).blockLast());
+    }
+}
@@ -0,0 +1,160 @@
+package com.buddy.agent.sse;
+
+import com.buddy.common.dto.ChatEvent;
+import com.buddy.common.dto.DoneEvent;
+import com.buddy.common.dto.TokenEvent;
+import com.buddy.common.dto.ToolCallEvent;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+class ChatEventSseWriterTest {
+    
+    private ObjectMapper objectMapper;
+    private SimpleMeterRegistry meterRegistry;
+    private MockServerHttpResponse response;
+    private List<String> flushes;
+    
+    @BeforeEach
+    void setUp() {
+        objectMapper = new ObjectMapper();
+        meterRegistry = new SimpleMeterRegistry();
+        response = new MockServerHttpResponse();
+        flushes = new ArrayList<>();
+        // Each buffer the writer hands over is one flush
+        response.setWriteHandler(body -> body
+            .doOnNext(buffer -> {
+                flushes.add(buffer.toString(StandardCharsets.UTF_8));
+                DataBufferUtils.release(buffer);
+            })
+            .then());
+    }
+    
+    @Test
+    void testTokenFramesMatchJackson() throws Exception {
+        TokenEvent special = new TokenEvent("s-1", "Say \"hi\"\\\n\t\u0001 é ❤ 😀 \uD83D");
+        TokenEvent noSession = new TokenEvent(null, "x");
+        
+        write(Duration.ZERO, 64, special, noSession);
+        
+        assertEquals(2, flushes.size());
+        assertEquals(jackson(special), data(flushes.get(0)));
+        assertEquals(jackson(noSession), data(flushes.get(1)));
+        assertEquals(MediaType.parseMediaType("text/event-stream;charset=UTF-8"), response.getHeaders().getContentType());
+    }
+    
+    @Test
+    void testOtherEventsUseJackson() throws Exception {
+        ToolCallEvent toolCall = new ToolCallEvent("s-1", "notes", "save: a b");
+        DoneEvent done = new DoneEvent("s-1", "Response completed");
+        
+        write(Duration.ZERO, 64, toolCall, done);
+        
+        assertEquals(2, flushes.size());
+        assertEquals("data:" + objectMapper.writerFor(ChatEvent.class).writeValueAsString(toolCall) + "\n\n",
+            flushes.get(0));
+        assertEquals(jackson(done), data(flushes.get(1)));
+    }
+    
+    @Test
+    void testCoalescesTokensWithinWindow() throws Exception {
+        TokenEvent first = new TokenEvent("s-1", "Hel");
+        
+        write(Duration.ofSeconds(1), 64, first, new TokenEvent("s-1", "lo"),
+            new ToolCallEvent("s-1", "notes", "list"), new TokenEvent("s-1", "!"), new DoneEvent("s-1", "ok"));
+        
+        assertEquals(1, flushes.size());
+        List<JsonNode> frames = frames(flushes.get(0));
+        assertEquals(4, frames.size());
+        assertEquals("Hel" + "lo", frames.get(0).get("token").asText());
+        assertEquals(first.getTimestamp(), frames.get(0).get("timestamp").asLong());
+        assertEquals("tool_call", frames.get(1).get("type").asText());
+        assertEquals("!", frames.get(2).get("token").asText());
+        assertEquals("done", frames.get(3).get("type").asText());
+        assertEquals(5.0, meterRegistry.summary("agent.sse.events.per.flush").totalAmount());
+    }
+    
+    @Test
+    void testMaxCoalescedEventsBoundsAFlush() {
+        write(Duration.ofSeconds(1), 2, new TokenEvent("s-1", "a"), new TokenEvent("s-1", "b"),
+            new TokenEvent("s-1", "c"), new TokenEvent("s-1", "d"), new TokenEvent("s-1", "e"));
+        
+        assertEquals(3, flushes.size());
+        assertEquals(3, meterRegistry.summary("agent.sse.events.per.flush").count());
+    }
+    
+    @Test
+    void testSlowClientBackpressuresInsteadOfOverflowing() {
+        // The consumer falls far behind the timer flushes: batches must wait for demand, not overflow
+        response.setWriteHandler(body -> body
+            .delayElements(Duration.ofMillis(20))
+            .doOnNext(buffer -> {
+                flushes.add(buffer.toString(StandardCharsets.UTF_8));
+                DataBufferUtils.release(buffer);
+            })
+            .then());
+        ChatEventSseWriter writer = new ChatEventSseWriter(objectMapper, Duration.ofMillis(2), 64, meterRegistry);
+        Flux<ChatEvent> tokens = Flux.range(0, 300)
+            .delayElements(Duration.ofMillis(1))
+            .map(i -> new TokenEvent("s-1", "t" + i));
+        
+        writer.write(tokens, ResolvableType.forClass(ChatEvent.class), MediaType.TEXT_EVENT_STREAM, response, Map.of())
+            .block(Duration.ofSeconds(30));
+        
+        assertEquals(300.0, meterRegistry.summary("agent.sse.events.per.flush").totalAmount());
+        assertTrue(String.join("", flushes).endsWith("t299\"}\n\n"));
+    }
+    
+    @Test
+    void testOnlyWritesChatEventStreams() {
+        ChatEventSseWriter writer = new ChatEventSseWriter(objectMapper, Duration.ZERO, 64, meterRegistry);
+        
+        assertTrue(writer.canWrite(ResolvableType.forClass(TokenEvent.class), MediaType.TEXT_EVENT_STREAM));
+        assertTrue(writer.canWrite(ResolvableType.forClass(ChatEvent.class), null));
+        assertFalse(writer.canWrite(ResolvableType.forClass(ChatEvent.class), MediaType.APPLICATION_JSON));
+        assertFalse(writer.canWrite(ResolvableType.forClass(String.class), MediaType.TEXT_EVENT_STREAM));
+    }
+    
+    private void write(Duration window, int maxEvents, ChatEvent... events) {
+        ChatEventSseWriter writer = new ChatEventSseWriter(objectMapper, window, maxEvents, meterRegistry);
+        writer.write(Flux.just(events), ResolvableType.forClass(ChatEvent.class), MediaType.TEXT_EVENT_STREAM,
+            response, Map.of()).block(Duration.ofSeconds(5));
+    }
+    
+    private JsonNode jackson(ChatEvent event) throws Exception {
+        return objectMapper.readTree(objectMapper.writerFor(ChatEvent.class).writeValueAsBytes(event));
+    }
+    
+    private JsonNode data(String frame) throws Exception {
+        assertTrue(frame.startsWith("data:") && frame.endsWith("\n\n"), frame);
+        return objectMapper.readTree(frame.substring(5, frame.length() - 2));
+    }
+    
+    private List<JsonNode> frames(String body) {
+        return Arrays.stream(body.split("\n\n"))
+            .map(frame -> {
+                try {
+                    return data(frame + "\n\n");
+                } catch (Exception e) {
+                    throw new AssertionError(e);
+                }
+            })
+            .toList();
+    }
+}
@@ -0,0 +1,54 @@
+package com.buddy.agent.state;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.distributed.proxy.generic.compare_and_swap.CompareAndSwapOperation;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class SharedBucketStoreTest {
+    
+    private static final BucketConfiguration LIMIT = BucketConfiguration.builder()
+        .addLimit(Bandwidth.builder().capacity(20).refillGreedy(20, Duration.ofHours(1)).build())
+        .build();
+    
+    @Test
+    void testLimitHoldsAcrossNodesWithinUnsyncedSlack() {
+        InMemoryProxyManager shared = new InMemoryProxyManager();
+        SharedBucketStore nodeA = new SharedBucketStore(shared, 2, Duration.ofSeconds(1), Duration.ofHours(1));
+        SharedBucketStore nodeB = new SharedBucketStore(shared, 2, Duration.ofSeconds(1), Duration.ofHours(1));
+        
+        int admitted = 0;
+        for (int i = 0; i < 100; i++) {
+            SharedBucketStore node = i % 2 == 0 ? nodeA : nodeB;
+            if (node.bucket("user:alice", LIMIT).tryConsume(1)) {
+                admitted++;
+            }
+        }
+        
+        assertTrue(admitted >= 20, "admitted " + admitted);
+        assertTrue(admitted <= 20 + 2 * 2, "admitted " + admitted);
+    }
+    
+    @Test
+    void testConsumptionIsBatchedBeforeReachingTheStore() {
+        AtomicInteger storeOperations = new AtomicInteger();
+        InMemoryProxyManager shared = new InMemoryProxyManager() {
+            @Override
+            protected CompareAndSwapOperation beginCompareAndSwapOperation(String key) {
+                storeOperations.incrementAndGet();
+                return super.beginCompareAndSwapOperation(key);
+            }
+        };
+        SharedBucketStore node = new SharedBucketStore(shared, 5, Duration.ofMinutes(1), Duration.ofHours(1));
+        
+        for (int i = 0; i < 20; i++) {
+            assertTrue(node.bucket("user:alice", LIMIT).tryConsume(1));
+        }
+        
+        assertTrue(storeOperations.get() <= 5, "store operations " + storeOperations.get());
+    }
+}
@@ -0,0 +1,31 @@
+package com.buddy.agent.state;
+
+import org.junit.jupiter.api.Test;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+
+class StateCleanupTest {
+    
+    @Test
+    void testRemovesIdleBucketsAndExpiredFlags() {
+        PostgresProxyManager buckets = mock(PostgresProxyManager.class);
+        JdbcSessionStateStore flags = mock(JdbcSessionStateStore.class);
+        
+        new StateCleanup(buckets, flags, Duration.ofHours(1), Duration.ofDays(7), Duration.ofMinutes(10)).cleanUp();
+        
+        verify(buckets).removeIdle(Duration.ofHours(1));
+        verify(flags).removeExpired(Duration.ofDays(7));
+    }
+    
+    @Test
+    void testFailingBucketCleanupStillRemovesFlags() {
+        PostgresProxyManager buckets = mock(PostgresProxyManager.class);
+        JdbcSessionStateStore flags = mock(JdbcSessionStateStore.class);
+        when(buckets.removeIdle(any())).thenThrow(new IllegalStateException("connection refused"));
+        
+        new StateCleanup(buckets, flags, Duration.ofHours(1), Duration.ofDays(7), Duration.ofMinutes(10)).cleanUp();
+        
+        verify(flags).removeExpired(Duration.ofDays(7));
+    }
+}
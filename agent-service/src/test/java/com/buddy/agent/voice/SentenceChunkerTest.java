@@ -0,0 +1,45 @@
+package com.buddy.agent.voice;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+class SentenceChunkerTest {
+    
+    @Test
+    void testSentenceIsEmittedAsSoonAsItsBoundaryArrives() {
+        SentenceChunker chunker = new SentenceChunker(5, 200);
+        
+        assertEquals(List.of(), chunker.add("Hello there"));
+        assertEquals(List.of(), chunker.add("."));
+        assertEquals(List.of("Hello there."), chunker.add(" How"));
+        assertEquals(List.of(), chunker.add(" are you"));
+        assertEquals("How are you", chunker.flush());
+    }
+    
+    @Test
+    void testShortFragmentsAreJoinedWithTheNextSentence() {
+        List<String> sentences = SentenceChunker.sentences(
+            Flux.just("Hi. ", "Sure! ", "The weather is sunny today. ", "Bye"), 8, 200).collectList().block();
+        
+        assertEquals(List.of("Hi. Sure!", "The weather is sunny today.", "Bye"), sentences);
+    }
+    
+    @Test
+    void testDecimalPointAndLineBreak() {
+        List<String> sentences = SentenceChunker.sentences(
+            Flux.just("It costs 3", ".50 today", "\n", "Anything else?"), 1, 200).collectList().block();
+        
+        assertEquals(List.of("It costs 3.50 today", "Anything else?"), sentences);
+    }
+    
+    @Test
+    void testRunOnTextIsCutAtTheLastSpace() {
+        List<String> sentences = SentenceChunker.sentences(
+            Flux.just("one two three ", "four five six seven"), 1, 16).collectList().block();
+        
+        assertEquals(List.of("one two three", "four five six", "seven"), sentences);
+    }
+}
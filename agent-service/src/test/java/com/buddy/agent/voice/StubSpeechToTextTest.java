@@ -0,0 +1,27 @@
+package com.buddy.agent.voice;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+class StubSpeechToTextTest {
+    
+    @Test
+    void testCharacterSplitAcrossChunksIsDecodedWhole() {
+        byte[] audio = "Grüße".getBytes(StandardCharsets.UTF_8);
+        // "ü" is 0xC3 0xBC; cut between its two bytes
+        List<byte[]> chunks = List.of(Arrays.copyOfRange(audio, 0, 3), Arrays.copyOfRange(audio, 3, audio.length));
+        
+        List<Transcript> transcripts = new StubSpeechToText().transcribe(Flux.fromIterable(chunks)).collectList().block();
+        
+        assertEquals(3, transcripts.size());
+        assertEquals("Gr", transcripts.get(0).getText());
+        assertEquals("Grüße", transcripts.get(1).getText());
+        assertEquals("Grüße", transcripts.get(2).getText());
+        assertTrue(transcripts.get(2).isFinal());
+    }
+}
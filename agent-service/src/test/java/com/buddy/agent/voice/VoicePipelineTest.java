@@ -0,0 +1,134 @@
+package com.buddy.agent.voice;
+
+import com.buddy.agent.service.AgentOrchestrator;
+import com.buddy.agent.ws.TurnOutput;
+import com.buddy.common.dto.ChatEvent;
+import com.buddy.common.dto.ChatRequest;
+import com.buddy.common.dto.DoneEvent;
+import com.buddy.common.dto.TokenEvent;
+import com.buddy.common.dto.TranscriptEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import reactor.core.publisher.Sinks;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+class VoicePipelineTest {
+    
+    private AgentOrchestrator orchestrator;
+    private SimpleMeterRegistry meterRegistry;
+    private VoicePipeline pipeline;
+    private Sinks.Many<ChatEvent> agent;
+    private Sinks.Many<byte[]> microphone;
+    private List<TurnOutput> outputs;
+    private AtomicBoolean completed;
+    
+    @BeforeEach
+    void setUp() {
+        orchestrator = mock(AgentOrchestrator.class);
+        meterRegistry = new SimpleMeterRegistry();
+        pipeline = new VoicePipeline(orchestrator, new StubSpeechToText(), new StubTextToSpeech(1024),
+            1, 200, 2, meterRegistry);
+        agent = Sinks.many().unicast().onBackpressureBuffer();
+        microphone = Sinks.many().unicast().onBackpressureBuffer();
+        when(orchestrator.processChatStream(any(), anyString())).thenReturn(agent.asFlux());
+        outputs = new CopyOnWriteArrayList<>();
+        completed = new AtomicBoolean();
+    }
+    
+    @Test
+    void testPartialTranscriptsArriveWhileTheUserIsSpeaking() {
+        pipeline.process("alice", "s1", microphone.asFlux()).subscribe(outputs::add, error -> {}, () -> completed.set(true));
+        
+        microphone.tryEmitNext(bytes("What is "));
+        microphone.tryEmitNext(bytes("the weather?"));
+        
+        assertEquals(List.of("What is ", "What is the weather?"), transcripts(false));
+        verifyNoInteractions(orchestrator);
+        
+        microphone.tryEmitComplete();
+        
+        assertEquals(List.of("What is the weather?"), transcripts(true));
+        ArgumentCaptor<ChatRequest> request = ArgumentCaptor.forClass(ChatRequest.class);
+        verify(orchestrator).processChatStream(request.capture(), eq("alice"));
+        assertEquals("What is the weather?", request.getValue().getMessage());
+        assertEquals("s1", request.getValue().getSessionId());
+    }
+    
+    @Test
+    void testFirstSentenceIsSpokenBeforeTheAnswerIsComplete() {
+        pipeline.process("alice", "s1", microphone.asFlux()).subscribe(outputs::add, error -> {}, () -> completed.set(true));
+        microphone.tryEmitNext(bytes("Weather?"));
+        microphone.tryEmitComplete();
+        
+        agent.tryEmitNext(new TokenEvent("s1", "It is sunny"));
+        assertTrue(audio().isEmpty());
+        agent.tryEmitNext(new TokenEvent("s1", ". "));
+        agent.tryEmitNext(new TokenEvent("s1", "Take a"));
+        
+        assertEquals(List.of("It is sunny."), audio());
+        assertFalse(completed.get());
+        
+        agent.tryEmitNext(new TokenEvent("s1", " hat"));
+        agent.tryEmitNext(new DoneEvent("s1", null));
+        agent.tryEmitComplete();
+        
+        assertEquals(List.of("It is sunny.", "Take a hat"), audio());
+        assertTrue(completed.get());
+        // The text events still reach the client alongside the audio
+        assertEquals(4, outputs.stream().filter(output -> !output.isAudio() && output.getEvent() instanceof TokenEvent)
+            .count());
+    }
+    
+    @Test
+    void testStageAndTurnLatenciesAreRecorded() {
+        pipeline.process("alice", "s1", microphone.asFlux()).subscribe(outputs::add);
+        microphone.tryEmitNext(bytes("Hello"));
+        microphone.tryEmitComplete();
+        agent.tryEmitNext(new TokenEvent("s1", "Hi there. "));
+        agent.tryEmitComplete();
+        
+        for (String stage : List.of("stt", "agent", "sentence", "tts")) {
+            assertEquals(1, meterRegistry.get("voice.stage.latency").tag("stage", stage).timer().count(), stage);
+        }
+        assertEquals(1, meterRegistry.get("voice.turn.latency").timer().count());
+    }
+    
+    @Test
+    void testEmptyTranscriptDoesNotCallTheAgent() {
+        pipeline.process("alice", "s1", microphone.asFlux()).subscribe(outputs::add, error -> {}, () -> completed.set(true));
+        microphone.tryEmitComplete();
+        
+        assertTrue(completed.get());
+        assertEquals(List.of(""), transcripts(true));
+        verifyNoInteractions(orchestrator);
+    }
+    
+    private List<String> transcripts(boolean finalTranscript) {
+        return outputs.stream()
+            .filter(output -> !output.isAudio() && output.getEvent() instanceof TranscriptEvent)
+            .map(output -> (TranscriptEvent) output.getEvent())
+            .filter(event -> event.isFinalTranscript() == finalTranscript)
+            .map(TranscriptEvent::getText)
+            .toList();
+    }
+    
+    private List<String> audio() {
+        return outputs.stream()
+            .filter(TurnOutput::isAudio)
+            .map(output -> new String(output.getAudio(), StandardCharsets.UTF_8))
+            .toList();
+    }
+    
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
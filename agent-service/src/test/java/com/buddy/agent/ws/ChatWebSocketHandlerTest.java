@@ -0,0 +1,186 @@
+package com.buddy.agent.ws;
+
+import com.buddy.agent.ratelimit.AdmissionControl;
+import com.buddy.agent.service.AgentOrchestrator;
+import com.buddy.common.dto.ChatEvent;
+import com.buddy.common.dto.ChatRequest;
+import com.buddy.common.dto.TokenEvent;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.socket.HandshakeInfo;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+class ChatWebSocketHandlerTest {
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final DataBufferFactory bufferFactory = DefaultDataBufferFactory.sharedInstance;
+    private AgentOrchestrator orchestrator;
+    private VoiceTurnProcessor voiceProcessor;
+    private Sinks.Many<WebSocketMessage> inbound;
+    private List<JsonNode> textFrames;
+    private List<byte[]> binaryFrames;
+    private WebSocketSession session;
+    
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        orchestrator = mock(AgentOrchestrator.class);
+        voiceProcessor = mock(VoiceTurnProcessor.class);
+        inbound = Sinks.many().unicast().onBackpressureBuffer();
+        textFrames = new CopyOnWriteArrayList<>();
+        binaryFrames = new CopyOnWriteArrayList<>();
+        
+        session = mock(WebSocketSession.class);
+        when(session.getHandshakeInfo()).thenReturn(
+            new HandshakeInfo(URI.create("ws://localhost/ws/chat"), new HttpHeaders(), Mono.empty(), null));
+        when(session.receive()).thenReturn(inbound.asFlux());
+        when(session.textMessage(anyString())).thenAnswer(invocation -> new WebSocketMessage(WebSocketMessage.Type.TEXT,
+            bufferFactory.wrap(invocation.getArgument(0, String.class).getBytes(StandardCharsets.UTF_8))));
+        when(session.binaryMessage(any())).thenAnswer(invocation -> new WebSocketMessage(WebSocketMessage.Type.BINARY,
+            invocation.<Function<DataBufferFactory, DataBuffer>>getArgument(0).apply(bufferFactory)));
+        when(session.send(any())).thenAnswer(invocation -> Flux.from(invocation.<Flux<WebSocketMessage>>getArgument(0))
+            .doOnNext(message -> {
+                if (message.getType() == WebSocketMessage.Type.TEXT) {
+                    textFrames.add(readTree(message.getPayloadAsText()));
+                } else {
+                    byte[] bytes = new byte[message.getPayload().readableByteCount()];
+                    message.getPayload().read(bytes);
+                    binaryFrames.add(bytes);
+                }
+            })
+            .then());
+        
+        ObjectProvider<VoiceTurnProcessor> voice = mock(ObjectProvider.class);
+        when(voice.getIfAvailable()).thenReturn(voiceProcessor);
+        AdmissionControl admissionControl = new AdmissionControl(false, null, null, null);
+        new ChatWebSocketHandler(orchestrator, admissionControl, voice, objectMapper, 8, 16, 2, 64)
+            .handle(session).subscribe();
+    }
+    
+    @Test
+    void testConcurrentTurnsShareOneConnection() {
+        Sinks.Many<ChatEvent> first = Sinks.many().unicast().onBackpressureBuffer();
+        when(orchestrator.processChatStream(argThat(request -> request != null && "s1".equals(request.getSessionId())), any()))
+            .thenReturn(first.asFlux());
+        when(orchestrator.processChatStream(argThat(request -> request != null && "s2".equals(request.getSessionId())), any()))
+            .thenReturn(Flux.just(new TokenEvent("s2", "Hey")));
+        
+        receive("{\"type\":\"chat\",\"turnId\":\"t1\",\"sessionId\":\"s1\",\"message\":\"Hello\"}");
+        receive("{\"type\":\"chat\",\"turnId\":\"t2\",\"sessionId\":\"s2\",\"message\":\"Hi\"}");
+        first.tryEmitNext(new TokenEvent("s1", "Hello there"));
+        first.tryEmitComplete();
+        
+        assertEquals(List.of("t2", "t2", "t1", "t1"), textFrames.stream().map(frame -> frame.get("turnId").asText()).toList());
+        assertEquals("Hey", textFrames.get(0).get("event").get("token").asText());
+        assertEquals("completed", textFrames.get(1).get("end").asText());
+        assertEquals("Hello there", textFrames.get(2).get("event").get("token").asText());
+        assertEquals("completed", textFrames.get(3).get("end").asText());
+    }
+    
+    @Test
+    void testCancelFrameStopsTheTurnUpstream() {
+        AtomicBoolean upstreamCancelled = new AtomicBoolean();
+        when(orchestrator.processChatStream(any(ChatRequest.class), any()))
+            .thenReturn(Flux.<ChatEvent>never().doOnCancel(() -> upstreamCancelled.set(true)));
+        
+        receive("{\"type\":\"chat\",\"turnId\":\"t1\",\"sessionId\":\"s1\",\"message\":\"Hello\"}");
+        receive("{\"type\":\"cancel\",\"turnId\":\"t1\"}");
+        
+        assertTrue(upstreamCancelled.get());
+        assertEquals("cancelled", textFrames.get(0).get("end").asText());
+    }
+    
+    @Test
+    void testClosingTheConnectionCancelsRunningTurns() {
+        AtomicBoolean upstreamCancelled = new AtomicBoolean();
+        when(orchestrator.processChatStream(any(ChatRequest.class), any()))
+            .thenReturn(Flux.<ChatEvent>never().doOnCancel(() -> upstreamCancelled.set(true)));
+        
+        receive("{\"type\":\"chat\",\"turnId\":\"t1\",\"sessionId\":\"s1\",\"message\":\"Hello\"}");
+        inbound.tryEmitComplete();
+        
+        assertTrue(upstreamCancelled.get());
+    }
+    
+    @Test
+    void testAudioFramesAreRoutedToTheirVoiceTurn() {
+        when(voiceProcessor.process(any(), eq("s1"), any())).thenAnswer(invocation ->
+            invocation.<Flux<byte[]>>getArgument(2).map(chunk -> TurnOutput.audio(chunk)));
+        
+        receive("{\"type\":\"voice\",\"turnId\":\"v1\",\"sessionId\":\"s1\"}");
+        inbound.tryEmitNext(new WebSocketMessage(WebSocketMessage.Type.BINARY,
+            bufferFactory.wrap(AudioFrames.encode("v1", new byte[] {1, 2, 3}))));
+        receive("{\"type\":\"audio_end\",\"turnId\":\"v1\"}");
+        
+        assertEquals(1, binaryFrames.size());
+        ByteBuffer frame = ByteBuffer.wrap(binaryFrames.get(0));
+        assertEquals("v1", AudioFrames.readTurnId(frame));
+        assertEquals(3, frame.remaining());
+        assertEquals("completed", textFrames.get(0).get("end").asText());
+    }
+    
+    @Test
+    void testTurnsBeyondTheConnectionCapAreRefused() {
+        when(orchestrator.processChatStream(any(ChatRequest.class), any())).thenReturn(Flux.never());
+        
+        receive("{\"type\":\"chat\",\"turnId\":\"t1\",\"sessionId\":\"s1\",\"message\":\"Hello\"}");
+        receive("{\"type\":\"chat\",\"turnId\":\"t2\",\"sessionId\":\"s1\",\"message\":\"Hello\"}");
+        receive("{\"type\":\"chat\",\"turnId\":\"t3\",\"sessionId\":\"s1\",\"message\":\"Hello\"}");
+        
+        assertEquals(1, textFrames.size());
+        assertEquals("t3", textFrames.get(0).get("turnId").asText());
+        assertEquals("error", textFrames.get(0).get("end").asText());
+        verify(orchestrator, times(2)).processChatStream(any(ChatRequest.class), any());
+        
+        receive("{\"type\":\"cancel\",\"turnId\":\"t1\"}");
+        receive("{\"type\":\"chat\",\"turnId\":\"t4\",\"sessionId\":\"s1\",\"message\":\"Hello\"}");
+        
+        verify(orchestrator, times(3)).processChatStream(any(ChatRequest.class), any());
+    }
+    
+    @Test
+    void testMalformedFramesGetAnErrorReply() {
+        receive("{not json");
+        receive("{\"type\":\"chat\",\"turnId\":\"t1\"}");
+        
+        assertEquals(2, textFrames.size());
+        assertEquals("error", textFrames.get(0).get("end").asText());
+        assertEquals("t1", textFrames.get(1).get("turnId").asText());
+        verifyNoInteractions(orchestrator);
+    }
+    
+    private void receive(String json) {
+        inbound.tryEmitNext(new WebSocketMessage(WebSocketMessage.Type.TEXT,
+            bufferFactory.wrap(json.getBytes(StandardCharsets.UTF_8))));
+    }
+    
+    private JsonNode readTree(String json) {
+        try {
+            return objectMapper.readTree(json);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.buddy.agent.ws;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+class WebSocketOriginFilterTest {
+    
+    private final WebSocketOriginFilter filter = new WebSocketOriginFilter(List.of("https://app.example.com"));
+    
+    @Test
+    void testCrossSiteHandshakeIsRefused() {
+        MockServerWebExchange exchange = run(MockServerHttpRequest.get("http://api.example.com/ws/chat")
+            .header("Origin", "https://evil.example.net"));
+        
+        assertEquals(HttpStatus.FORBIDDEN, exchange.getResponse().getStatusCode());
+    }
+    
+    @Test
+    void testListedSameOriginAndNonBrowserHandshakesPass() {
+        assertNull(run(MockServerHttpRequest.get("http://api.example.com/ws/chat")
+            .header("Origin", "https://app.example.com")).getResponse().getStatusCode());
+        assertNull(run(MockServerHttpRequest.get("http://api.example.com/ws/voice")
+            .header("Origin", "http://api.example.com")).getResponse().getStatusCode());
+        assertNull(run(MockServerHttpRequest.get("http://api.example.com/ws/chat")).getResponse().getStatusCode());
+    }
+    
+    @Test
+    void testOtherPathsAreLeftToCors() {
+        assertNull(run(MockServerHttpRequest.get("http://api.example.com/api/chat/history")
+            .header("Origin", "https://evil.example.net")).getResponse().getStatusCode());
+    }
+    
+    private MockServerWebExchange run(MockServerHttpRequest.BaseBuilder<?> request) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        AtomicBoolean passed = new AtomicBoolean();
+        filter.filter(exchange, e -> Mono.fromRunnable(() -> passed.set(true))).block();
+        assertEquals(exchange.getResponse().getStatusCode() == null, passed.get());
+        return exchange;
+    }
+}
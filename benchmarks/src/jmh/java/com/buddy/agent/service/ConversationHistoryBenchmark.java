@@ -0,0 +1,49 @@
+package com.buddy.agent.service;
+
+import com.buddy.agent.openai.ChatMessage;
+import com.buddy.common.memory.Message;
+import com.buddy.common.memory.MessageRole;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Turning the memory-service context into the chat messages of a completion request, once per turn.
+// Lives in the orchestrator's package because formatConversationHistory is package-private.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConversationHistoryBenchmark {
+    
+    @Param({"10", "50", "200"})
+    public int messages;
+    
+    private List<Message> context;
+    private String userMessage;
+    
+    @Setup
+    public void setUp() {
+        context = new ArrayList<>(messages);
+        context.add(new Message("session-42", MessageRole.SUMMARY, "The user is planning a trip to Lisbon in May."));
+        for (int i = 1; i < messages; i++) {
+            MessageRole role = switch (i % 4) {
+                case 1 -> MessageRole.USER;
+                case 3 -> MessageRole.TOOL;
+                default -> MessageRole.ASSISTANT;
+            };
+            context.add(new Message("session-42", role, "Message " + i + " about flights, hotels and the weather."));
+        }
+        userMessage = "What should I pack?";
+        // The context normally already ends with the current user message
+        context.add(new Message("session-42", MessageRole.USER, userMessage));
+    }
+    
+    @Benchmark
+    public List<ChatMessage> formatConversationHistory() {
+        return AgentOrchestrator.formatConversationHistory(context, userMessage);
+    }
+}
@@ -0,0 +1,60 @@
+package com.buddy.benchmarks;
+
+import com.buddy.common.dto.ChatEvent;
+import com.buddy.common.dto.DoneEvent;
+import com.buddy.common.dto.TokenEvent;
+import com.buddy.common.dto.ToolCallEvent;
+import com.buddy.common.dto.ToolResultEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// JSON encoding of the events streamed to clients, through a writer for the ChatEvent base type as the
+// SSE and WebSocket encoders use it, so the "type" property is resolved per event. Token events
+// dominate a real stream; the others are one or two per turn.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChatEventSerializationBenchmark {
+    
+    private ObjectWriter writer;
+    private ChatEvent token;
+    private ChatEvent toolCall;
+    private ChatEvent toolResult;
+    private ChatEvent done;
+    
+    @Setup
+    public void setUp() {
+        writer = new ObjectMapper().writerFor(ChatEvent.class);
+        token = new TokenEvent("session-42", " there");
+        toolCall = new ToolCallEvent("session-42", "notes", "save: groceries milk, eggs, bread");
+        toolResult = new ToolResultEvent("session-42", "notes", "Note saved successfully: groceries", true);
+        done = new DoneEvent("session-42", "Response completed");
+    }
+    
+    @Benchmark
+    public byte[] tokenEvent() throws JsonProcessingException {
+        return writer.writeValueAsBytes(token);
+    }
+    
+    @Benchmark
+    public byte[] toolCallEvent() throws JsonProcessingException {
+        return writer.writeValueAsBytes(toolCall);
+    }
+    
+    @Benchmark
+    public byte[] toolResultEvent() throws JsonProcessingException {
+        return writer.writeValueAsBytes(toolResult);
+    }
+    
+    @Benchmark
+    public byte[] doneEvent() throws JsonProcessingException {
+        return writer.writeValueAsBytes(done);
+    }
+}
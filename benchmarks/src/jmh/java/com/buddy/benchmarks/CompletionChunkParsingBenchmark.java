@@ -0,0 +1,76 @@
+package com.buddy.benchmarks;
+
+import com.buddy.agent.openai.CompletionDelta;
+import com.buddy.agent.openai.SseCompletionDecoder;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Streaming decoder vs. the previous per-chunk String/indexOf extraction. Scores are per token;
+// run with the gc profiler (the default for this module) to compare gc.alloc.rate.norm.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(CompletionChunkParsingBenchmark.TOKENS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompletionChunkParsingBenchmark {
+    
+    static final int TOKENS = 200;
+    
+    private byte[][] frames;
+    
+    @Setup
+    public void setUp() {
+        String[] words = {"Hello", " there", ",", " how", " can", " I", " help", " you", " today", "?"};
+        frames = new byte[TOKENS + 1][];
+        for (int i = 0; i < TOKENS; i++) {
+            frames[i] = ("data: {\"id\":\"chatcmpl-9x\",\"object\":\"chat.completion.chunk\",\"created\":1718000000,"
+                + "\"model\":\"gpt-4o-mini\",\"choices\":[{\"index\":0,\"delta\":{\"content\":\"" + words[i % words.length]
+                + "\"},\"logprobs\":null,\"finish_reason\":null}]}\n\n").getBytes(StandardCharsets.UTF_8);
+        }
+        frames[TOKENS] = "data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8);
+    }
+    
+    @Benchmark
+    public void streamingDecoder(Blackhole blackhole) {
+        SseCompletionDecoder decoder = new SseCompletionDecoder();
+        List<CompletionDelta> out = new ArrayList<>(4);
+        for (byte[] frame : frames) {
+            decoder.decode(ByteBuffer.wrap(frame), out);
+            for (int i = 0; i < out.size(); i++) {
+                blackhole.consume(out.get(i).getContent());
+            }
+            out.clear();
+        }
+        decoder.close();
+    }
+    
+    @Benchmark
+    public void legacyIndexOf(Blackhole blackhole) {
+        for (byte[] frame : frames) {
+            // WebClient's String decoder materialized every frame before the old extraction ran
+            String chunk = new String(frame, StandardCharsets.UTF_8);
+            if (chunk.contains("\"delta\"")) {
+                blackhole.consume(legacyExtract(chunk));
+            }
+        }
+    }
+    
+    private static String legacyExtract(String chunk) {
+        if (chunk.contains("\"content\"")) {
+            int start = chunk.indexOf("\"content\":") + 11;
+            int end = chunk.indexOf("\"", start);
+            if (end > start) {
+                return chunk.substring(start, end);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,90 @@
+package com.buddy.benchmarks;
+
+import com.buddy.common.memory.Message;
+import com.buddy.common.memory.MessageRole;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Mapping of the Message entity as it travels between agent-service and memory-service: one message
+// per append, and the session context list read back on every turn. The mapper is configured like
+// Spring Boot's (ISO dates, unknown properties ignored).
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MessageMappingBenchmark {
+    
+    @Param({"50"})
+    public int contextSize;
+    
+    private ObjectWriter messageWriter;
+    private ObjectReader messageReader;
+    private ObjectWriter contextWriter;
+    private ObjectReader contextReader;
+    private Message message;
+    private byte[] messageJson;
+    private List<Message> context;
+    private byte[] contextJson;
+    
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        ObjectMapper mapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        TypeReference<List<Message>> listType = new TypeReference<>() {};
+        messageWriter = mapper.writerFor(Message.class);
+        messageReader = mapper.readerFor(Message.class);
+        contextWriter = mapper.writerFor(listType);
+        contextReader = mapper.readerFor(listType);
+        
+        OffsetDateTime now = OffsetDateTime.parse("2024-06-10T09:30:00Z");
+        context = new ArrayList<>(contextSize);
+        for (int i = 0; i < contextSize; i++) {
+            Message stored = new Message("session-42", i % 2 == 0 ? MessageRole.USER : MessageRole.ASSISTANT,
+                "Message " + i + " about flights, hotels and the weather in Lisbon.");
+            stored.setId((long) i + 1);
+            stored.setCreatedAt(now.plusSeconds(i));
+            stored.setTokenCount(14);
+            context.add(stored);
+        }
+        message = context.get(contextSize - 1);
+        messageJson = messageWriter.writeValueAsBytes(message);
+        contextJson = contextWriter.writeValueAsBytes(context);
+    }
+    
+    @Benchmark
+    public byte[] writeMessage() throws JsonProcessingException {
+        return messageWriter.writeValueAsBytes(message);
+    }
+    
+    @Benchmark
+    public Message readMessage() throws IOException {
+        return messageReader.readValue(messageJson);
+    }
+    
+    @Benchmark
+    public byte[] writeContext() throws JsonProcessingException {
+        return contextWriter.writeValueAsBytes(context);
+    }
+    
+    @Benchmark
+    public List<Message> readContext() throws IOException {
+        return contextReader.readValue(contextJson);
+    }
+}
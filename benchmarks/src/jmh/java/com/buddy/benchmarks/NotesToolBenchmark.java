@@ -0,0 +1,47 @@
+package com.buddy.benchmarks;
+
+import com.buddy.common.tool.ToolResult;
+import com.buddy.tools.service.NotesTool;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Command parsing and dispatch in NotesTool.execute for each command form, over a store of 100 notes
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NotesToolBenchmark {
+    
+    private NotesTool tool;
+    
+    @Setup
+    public void setUp() {
+        tool = new NotesTool();
+        for (int i = 0; i < 100; i++) {
+            tool.execute("save: note-" + i + " Content of note " + i);
+        }
+    }
+    
+    @Benchmark
+    public ToolResult save() {
+        return tool.execute("  save: groceries milk, eggs, bread and a bag of coffee  ");
+    }
+    
+    @Benchmark
+    public ToolResult get() {
+        return tool.execute("get: note-42");
+    }
+    
+    @Benchmark
+    public ToolResult list() {
+        return tool.execute("list");
+    }
+    
+    @Benchmark
+    public ToolResult invalid() {
+        return tool.execute("delete: note-42");
+    }
+}
@@ -0,0 +1,136 @@
+package com.buddy.benchmarks;
+
+import com.buddy.memory.recall.HnswIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Recall vs. latency of the memory-service HNSW index. Latency is the benchmark score (per query);
+// recall@10 against exact search is measured once per efSearch value in setup and printed with the
+// run, since JMH has no slot for it. exactScan is the brute-force baseline.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VectorRecallBenchmark {
+    
+    private static final int K = 10;
+    private static final int QUERIES = 256;
+    
+    @Param({"10000"})
+    public int size;
+    
+    @Param({"384"})
+    public int dimensions;
+    
+    @Param({"16", "32", "64", "128"})
+    public int efSearch;
+    
+    private float[][] vectors;
+    private float[][] queries;
+    private HnswIndex index;
+    private int next;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(7);
+        // Clustered data, closer to real embeddings than uniform noise
+        float[][] centroids = new float[64][];
+        for (int i = 0; i < centroids.length; i++) {
+            centroids[i] = gaussian(random, 1f);
+        }
+        vectors = new float[size][];
+        index = new HnswIndex(dimensions, 16, 100, 7);
+        for (int i = 0; i < size; i++) {
+            vectors[i] = normalize(add(centroids[random.nextInt(centroids.length)], gaussian(random, 0.6f)));
+            index.add(i, vectors[i]);
+        }
+        queries = new float[QUERIES][];
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = normalize(add(centroids[random.nextInt(centroids.length)], gaussian(random, 0.6f)));
+        }
+        
+        int found = 0;
+        for (float[] query : queries) {
+            Set<Long> exact = new HashSet<>(exactTopK(query));
+            found += (int) index.search(query, K, efSearch).stream().filter(n -> exact.contains(n.getId())).count();
+        }
+        System.out.printf("%nrecall@%d efSearch=%d size=%d: %.3f%n", K, efSearch, size, found / (double) (QUERIES * K));
+    }
+    
+    @Benchmark
+    public List<HnswIndex.Neighbour> hnswSearch() {
+        return index.search(queries[next++ & (QUERIES - 1)], K, efSearch);
+    }
+    
+    @Benchmark
+    public List<Long> exactScan() {
+        return exactTopK(queries[next++ & (QUERIES - 1)]);
+    }
+    
+    // Full scan keeping the K best in a small sorted array
+    private List<Long> exactTopK(float[] query) {
+        long[] best = new long[K];
+        double[] scores = new double[K];
+        Arrays.fill(scores, Double.NEGATIVE_INFINITY);
+        for (int i = 0; i < vectors.length; i++) {
+            double score = dot(vectors[i], query);
+            if (score <= scores[K - 1]) {
+                continue;
+            }
+            int slot = K - 1;
+            while (slot > 0 && scores[slot - 1] < score) {
+                scores[slot] = scores[slot - 1];
+                best[slot] = best[slot - 1];
+                slot--;
+            }
+            scores[slot] = score;
+            best[slot] = i;
+        }
+        List<Long> ids = new ArrayList<>(K);
+        for (long id : best) {
+            ids.add(id);
+        }
+        return ids;
+    }
+    
+    private float[] gaussian(Random random, float scale) {
+        float[] vector = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] = (float) random.nextGaussian() * scale;
+        }
+        return vector;
+    }
+    
+    private static float[] add(float[] a, float[] b) {
+        float[] sum = new float[a.length];
+        for (int i = 0; i < a.length; i++) {
+            sum[i] = a[i] + b[i];
+        }
+        return sum;
+    }
+    
+    private static float[] normalize(float[] vector) {
+        double norm = Math.sqrt(dot(vector, vector));
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] /= norm;
+        }
+        return vector;
+    }
+    
+    private static double dot(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
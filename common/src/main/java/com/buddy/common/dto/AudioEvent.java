@@ -0,0 +1,26 @@
+package com.buddy.common.dto;
+
+// A chunk of synthesized speech for transports without binary frames; data is base64 in JSON
+public class AudioEvent extends ChatEvent {
+    private byte[] data;
+    
+    public AudioEvent() {}
+    
+    public AudioEvent(String sessionId, byte[] data) {
+        super(sessionId);
+        this.data = data;
+    }
+    
+    @Override
+    public String getType() {
+        return "audio";
+    }
+    
+    public byte[] getData() {
+        return data;
+    }
+    
+    public void setData(byte[] data) {
+        this.data = data;
+    }
+}
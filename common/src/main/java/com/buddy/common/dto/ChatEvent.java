@@ -11,7 +11,9 @@ import com.fasterxml.jackson.annotation.JsonTypeInfo;
     @JsonSubTypes.Type(value = TokenEvent.class, name = "token"),
     @JsonSubTypes.Type(value = ToolCallEvent.class, name = "tool_call"),
     @JsonSubTypes.Type(value = ToolResultEvent.class, name = "tool_result"),
-    @JsonSubTypes.Type(value = DoneEvent.class, name = "done")
+    @JsonSubTypes.Type(value = DoneEvent.class, name = "done"),
+    @JsonSubTypes.Type(value = TranscriptEvent.class, name = "transcript"),
+    @JsonSubTypes.Type(value = AudioEvent.class, name = "audio")
 })
 public abstract class ChatEvent {
     private String sessionId;
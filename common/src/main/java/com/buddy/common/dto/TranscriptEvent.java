@@ -0,0 +1,36 @@
+package com.buddy.common.dto;
+
+public class TranscriptEvent extends ChatEvent {
+    private String text;
+    // Partial transcripts may still change; the final one is what the agent answers
+    private boolean finalTranscript;
+    
+    public TranscriptEvent() {}
+    
+    public TranscriptEvent(String sessionId, String text, boolean finalTranscript) {
+        super(sessionId);
+        this.text = text;
+        this.finalTranscript = finalTranscript;
+    }
+    
+    @Override
+    public String getType() {
+        return "transcript";
+    }
+    
+    public String getText() {
+        return text;
+    }
+    
+    public void setText(String text) {
+        this.text = text;
+    }
+    
+    public boolean isFinalTranscript() {
+        return finalTranscript;
+    }
+    
+    public void setFinalTranscript(boolean finalTranscript) {
+        this.finalTranscript = finalTranscript;
+    }
+}
@@ -2,12 +2,17 @@ package com.buddy.common.memory;
 
 import jakarta.persistence.*;
 import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
 
 @Entity
-@Table(name = "message")
+@Table(name = "message", indexes = {
+    @Index(name = "idx_message_session_created", columnList = "session_id, created_at DESC, id DESC")
+})
 public class Message {
+    // Pooled sequence (not IDENTITY) so Hibernate can batch inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "message_seq")
+    @SequenceGenerator(name = "message_seq", sequenceName = "message_seq", allocationSize = 50)
     private Long id;
     
     @Column(name = "session_id", nullable = false)
@@ -23,13 +28,21 @@ public class Message {
     @Column(name = "created_at")
     private OffsetDateTime createdAt;
     
+    // Estimated prompt tokens for this message, computed once when it is saved
+    @Column(name = "token_count")
+    private Integer tokenCount;
+    
+    // The answer was cut short (client disconnect or failure) and is only the part that was streamed
+    @Column(nullable = false)
+    private boolean truncated;
+    
     public Message() {}
     
     public Message(String sessionId, MessageRole role, String content) {
         this.sessionId = sessionId;
         this.role = role;
         this.content = content;
-        this.createdAt = OffsetDateTime.now();
+        setCreatedAt(OffsetDateTime.now());
     }
     
     // Getters and Setters
@@ -69,7 +82,25 @@ public class Message {
         return createdAt;
     }
     
+    // Kept at the column's microsecond precision: an in-memory instance used as a keyset cursor must
+    // compare equal to its stored row, or paging repeats or skips it
     public void setCreatedAt(OffsetDateTime createdAt) {
-        this.createdAt = createdAt;
+        this.createdAt = createdAt == null ? null : createdAt.truncatedTo(ChronoUnit.MICROS);
+    }
+    
+    public Integer getTokenCount() {
+        return tokenCount;
+    }
+    
+    public void setTokenCount(Integer tokenCount) {
+        this.tokenCount = tokenCount;
+    }
+    
+    public boolean isTruncated() {
+        return truncated;
+    }
+    
+    public void setTruncated(boolean truncated) {
+        this.truncated = truncated;
     }
 }
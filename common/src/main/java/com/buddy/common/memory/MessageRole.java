@@ -3,5 +3,7 @@ package com.buddy.common.memory;
 public enum MessageRole {
     USER,
     ASSISTANT,
-    TOOL
+    TOOL,
+    // Synthetic context entry carrying the session summary; never stored in the message table
+    SUMMARY
 }
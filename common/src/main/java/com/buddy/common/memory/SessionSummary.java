@@ -0,0 +1,116 @@
+package com.buddy.common.memory;
+
+import jakarta.persistence.*;
+import java.time.OffsetDateTime;
+
+// Compact summary of a session's older messages. Everything up to and including the
+// (coveredUntilCreatedAt, coveredUntilId) cursor has been folded into content.
+@Entity
+@Table(name = "session_summary")
+public class SessionSummary {
+    @Id
+    @Column(name = "session_id")
+    private String sessionId;
+    
+    @Column(nullable = false)
+    private String content;
+    
+    @Column(name = "covered_until_created_at")
+    private OffsetDateTime coveredUntilCreatedAt;
+    
+    @Column(name = "covered_until_id")
+    private Long coveredUntilId;
+    
+    @Column(name = "message_count", nullable = false)
+    private int messageCount;
+    
+    @Column(name = "token_count", nullable = false)
+    private int tokenCount;
+    
+    @Column(name = "updated_at")
+    private OffsetDateTime updatedAt;
+    
+    // Guards against two instances folding the same session at once
+    @Version
+    private Long version;
+    
+    public SessionSummary() {}
+    
+    public SessionSummary(String sessionId) {
+        this.sessionId = sessionId;
+        this.content = "";
+    }
+    
+    public boolean covers(Message message) {
+        if (coveredUntilCreatedAt == null || coveredUntilId == null) {
+            return false;
+        }
+        int order = message.getCreatedAt().compareTo(coveredUntilCreatedAt);
+        return order < 0 || (order == 0 && message.getId() != null && message.getId() <= coveredUntilId);
+    }
+    
+    // Getters and Setters
+    public String getSessionId() {
+        return sessionId;
+    }
+    
+    public void setSessionId(String sessionId) {
+        this.sessionId = sessionId;
+    }
+    
+    public String getContent() {
+        return content;
+    }
+    
+    public void setContent(String content) {
+        this.content = content;
+    }
+    
+    public OffsetDateTime getCoveredUntilCreatedAt() {
+        return coveredUntilCreatedAt;
+    }
+    
+    public void setCoveredUntilCreatedAt(OffsetDateTime coveredUntilCreatedAt) {
+        this.coveredUntilCreatedAt = coveredUntilCreatedAt;
+    }
+    
+    public Long getCoveredUntilId() {
+        return coveredUntilId;
+    }
+    
+    public void setCoveredUntilId(Long coveredUntilId) {
+        this.coveredUntilId = coveredUntilId;
+    }
+    
+    public int getMessageCount() {
+        return messageCount;
+    }
+    
+    public void setMessageCount(int messageCount) {
+        this.messageCount = messageCount;
+    }
+    
+    public int getTokenCount() {
+        return tokenCount;
+    }
+    
+    public void setTokenCount(int tokenCount) {
+        this.tokenCount = tokenCount;
+    }
+    
+    public OffsetDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+    
+    public void setUpdatedAt(OffsetDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+    
+    public Long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
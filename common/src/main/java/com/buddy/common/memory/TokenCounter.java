@@ -0,0 +1,13 @@
+package com.buddy.common.memory;
+
+public interface TokenCounter {
+    
+    // Chat format framing per message (role marker and separators)
+    int MESSAGE_OVERHEAD = 4;
+    
+    int countTokens(String text);
+    
+    default int countMessageTokens(String content) {
+        return countTokens(content) + MESSAGE_OVERHEAD;
+    }
+}
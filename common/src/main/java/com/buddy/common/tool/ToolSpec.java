@@ -0,0 +1,44 @@
+package com.buddy.common.tool;
+
+public class ToolSpec {
+    private String name;
+    private String description;
+    private String inputSchema;
+    
+    public ToolSpec() {}
+    
+    public ToolSpec(String name, String description, String inputSchema) {
+        this.name = name;
+        this.description = description;
+        this.inputSchema = inputSchema;
+    }
+    
+    public static ToolSpec of(Tool tool) {
+        return new ToolSpec(tool.getName(), tool.getDescription(), tool.getInputSchema());
+    }
+    
+    // Getters and Setters
+    public String getName() {
+        return name;
+    }
+    
+    public void setName(String name) {
+        this.name = name;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+    
+    public void setDescription(String description) {
+        this.description = description;
+    }
+    
+    public String getInputSchema() {
+        return inputSchema;
+    }
+    
+    public void setInputSchema(String inputSchema) {
+        this.inputSchema = inputSchema;
+    }
+}
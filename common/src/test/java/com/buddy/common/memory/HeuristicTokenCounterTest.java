@@ -0,0 +1,42 @@
+package com.buddy.common.memory;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeuristicTokenCounterTest {
+    
+    private final TokenCounter tokenCounter = new HeuristicTokenCounter();
+    
+    @Test
+    void testEmptyText() {
+        assertEquals(0, tokenCounter.countTokens(null));
+        assertEquals(0, tokenCounter.countTokens(""));
+    }
+    
+    @Test
+    void testShortWordsAreOneTokenEach() {
+        // cl100k: "Hello", " world", "!"
+        assertEquals(3, tokenCounter.countTokens("Hello world!"));
+    }
+    
+    @Test
+    void testNumbersAreGroupedByThreeDigits() {
+        // cl100k: "123", "456", "7"
+        assertEquals(3, tokenCounter.countTokens("1234567"));
+    }
+    
+    @Test
+    void testProseIsCloseToRealCount() {
+        // 21 tokens with cl100k_base
+        String text = "Buddy is an intelligent AI assistant built with Spring Boot, featuring a modular architecture.";
+        int estimate = tokenCounter.countTokens(text);
+        
+        assertTrue(estimate >= 17 && estimate <= 25, "estimate was " + estimate);
+    }
+    
+    @Test
+    void testMessageOverheadIsAdded() {
+        assertEquals(tokenCounter.countTokens("Hi") + TokenCounter.MESSAGE_OVERHEAD,
+            tokenCounter.countMessageTokens("Hi"));
+    }
+}
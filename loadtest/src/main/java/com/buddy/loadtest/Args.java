@@ -0,0 +1,59 @@
+package com.buddy.loadtest;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+// key=value command line arguments; later ones win
+class Args {
+    
+    private final Map<String, String> values = new HashMap<>();
+    
+    Args(String[] args) {
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Expected key=value, got '" + arg + "'");
+            }
+            values.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+    }
+    
+    private Args(Map<String, String> values) {
+        this.values.putAll(values);
+    }
+    
+    // The arguments starting with prefix, without it
+    Args withPrefix(String prefix) {
+        Map<String, String> nested = new HashMap<>();
+        values.forEach((key, value) -> {
+            if (key.startsWith(prefix)) {
+                nested.put(key.substring(prefix.length()), value);
+            }
+        });
+        return new Args(nested);
+    }
+    
+    String string(String key, String fallback) {
+        return values.getOrDefault(key, fallback);
+    }
+    
+    int integer(String key, int fallback) {
+        String value = values.get(key);
+        return value != null ? Integer.parseInt(value) : fallback;
+    }
+    
+    long longValue(String key, long fallback) {
+        String value = values.get(key);
+        return value != null ? Long.parseLong(value) : fallback;
+    }
+    
+    double decimal(String key, double fallback) {
+        String value = values.get(key);
+        return value != null ? Double.parseDouble(value) : fallback;
+    }
+    
+    Duration duration(String key, String fallback) {
+        return Duration.parse(values.getOrDefault(key, fallback));
+    }
+}
@@ -0,0 +1,210 @@
+package com.buddy.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import reactor.netty.DisposableServer;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+// Closed-loop load on POST /api/chat/stream: each virtual user (a virtual thread) sends a chat turn
+// in its own session, reads the SSE stream to the end and immediately sends the next one. Turns that
+// start during the warmup are not measured. Reports throughput, time to first token, total latency
+// and error rates on stdout and as JSON:
+//   baseUrl     - agent-service (http://localhost:8080)
+//   users       - concurrent virtual users (20)
+//   duration    - measured period (PT60S), after warmup (PT10S)
+//   message     - what every turn says
+//   username, password - HTTP basic credentials (loadtest / loadtest, as in the loadtest profile)
+//   mockPort    - port for the in-process mock LLM (9099); 0 when the model is served elsewhere
+//   mock.*      - MockLlmServer settings
+//   report      - JSON report path
+public class LoadGenerator {
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient client = HttpClient.newBuilder()
+        .connectTimeout(Duration.ofSeconds(5))
+        .executor(Executors.newVirtualThreadPerTaskExecutor())
+        .build();
+    
+    private final URI streamUri;
+    private final int users;
+    private final Duration warmup;
+    private final Duration duration;
+    private final String message;
+    private final String authorization;
+    private final String runId = UUID.randomUUID().toString().substring(0, 8);
+    
+    public LoadGenerator(String baseUrl, int users, Duration warmup, Duration duration, String message,
+                         String username, String password) {
+        this.streamUri = URI.create(baseUrl + "/api/chat/stream");
+        this.users = users;
+        this.warmup = warmup;
+        this.duration = duration;
+        this.message = message;
+        this.authorization = "Basic " + Base64.getEncoder()
+            .encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+    }
+    
+    public static void main(String[] argv) throws Exception {
+        Args args = new Args(argv);
+        MockLlmServer mock = null;
+        DisposableServer mockServer = null;
+        int mockPort = args.integer("mockPort", 9099);
+        if (mockPort > 0) {
+            mock = MockLlmServer.fromArgs(args.withPrefix("mock."));
+            mockServer = mock.start(mockPort);
+        }
+        
+        LoadGenerator generator = new LoadGenerator(
+            args.string("baseUrl", "http://localhost:8080"),
+            args.integer("users", 20),
+            args.duration("warmup", "PT10S"),
+            args.duration("duration", "PT60S"),
+            args.string("message", "Can you help me plan my week?"),
+            args.string("username", "loadtest"),
+            args.string("password", "loadtest"));
+        try {
+            Report report = generator.run();
+            ObjectNode json = report.toJson(generator.objectMapper);
+            if (mock != null) {
+                json.putObject("mock")
+                    .put("requests", mock.getRequests())
+                    .put("injectedErrors", mock.getInjectedErrors());
+            }
+            System.out.println(report.summary());
+            Path path = Path.of(args.string("report", "loadtest-report.json"));
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            generator.objectMapper.writerWithDefaultPrettyPrinter().writeValue(path.toFile(), json);
+            System.out.println("Report written to " + path);
+        } finally {
+            if (mockServer != null) {
+                mockServer.disposeNow();
+            }
+        }
+    }
+    
+    public Report run() throws InterruptedException {
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        List<Recorder> recorders = new ArrayList<>(users);
+        
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int user = 0; user < users; user++) {
+                Recorder recorder = new Recorder();
+                recorders.add(recorder);
+                String sessionId = "load-" + runId + "-" + user;
+                executor.submit(() -> {
+                    while (System.nanoTime() < end) {
+                        long turnStart = System.nanoTime();
+                        Turn turn = turn(sessionId);
+                        if (turnStart >= measureFrom) {
+                            recorder.add(turn);
+                        }
+                    }
+                });
+            }
+        }
+        return Report.of(recorders, duration, users);
+    }
+    
+    private Turn turn(String sessionId) {
+        long start = System.nanoTime();
+        try {
+            String body = objectMapper.createObjectNode()
+                .put("message", message)
+                .put("sessionId", sessionId)
+                .toString();
+            HttpRequest request = HttpRequest.newBuilder(streamUri)
+                .header("Content-Type", "application/json")
+                .header("Accept", "text/event-stream")
+                .header("Authorization", authorization)
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+            HttpResponse<Stream<String>> response = client.send(request, HttpResponse.BodyHandlers.ofLines());
+            if (response.statusCode() != 200) {
+                response.body().close();
+                return Turn.failed(Outcome.HTTP_ERROR, System.nanoTime() - start);
+            }
+            
+            long firstToken = -1;
+            boolean degraded = false;
+            try (Stream<String> lines = response.body()) {
+                Iterator<String> it = lines.iterator();
+                while (it.hasNext()) {
+                    String line = it.next();
+                    if (!line.startsWith("data:")) {
+                        continue;
+                    }
+                    if (firstToken < 0 && line.contains("\"type\":\"token\"")) {
+                        firstToken = System.nanoTime() - start;
+                    }
+                    // The agent's fallback answers still stream, but are failures for the user
+                    if (line.contains("I apologize, but I'm experiencing technical difficulties")
+                            || (line.contains("\"type\":\"done\"") && line.contains("\"summary\":\"Error"))) {
+                        degraded = true;
+                    }
+                }
+            }
+            long total = System.nanoTime() - start;
+            if (firstToken < 0) {
+                return Turn.failed(Outcome.NO_TOKENS, total);
+            }
+            return new Turn(degraded ? Outcome.DEGRADED : Outcome.OK, firstToken, total);
+        } catch (IOException e) {
+            return Turn.failed(Outcome.TRANSPORT_ERROR, System.nanoTime() - start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Turn.failed(Outcome.TRANSPORT_ERROR, System.nanoTime() - start);
+        }
+    }
+    
+    enum Outcome {
+        OK,
+        DEGRADED,        // streamed, but the apology or an error summary
+        NO_TOKENS,       // 200 without a single token
+        HTTP_ERROR,
+        TRANSPORT_ERROR
+    }
+    
+    static class Turn {
+        final Outcome outcome;
+        final long firstTokenNanos;
+        final long totalNanos;
+        
+        Turn(Outcome outcome, long firstTokenNanos, long totalNanos) {
+            this.outcome = outcome;
+            this.firstTokenNanos = firstTokenNanos;
+            this.totalNanos = totalNanos;
+        }
+        
+        static Turn failed(Outcome outcome, long totalNanos) {
+            return new Turn(outcome, -1, totalNanos);
+        }
+    }
+    
+    // Per virtual user, so recording needs no synchronization
+    static class Recorder {
+        final List<Turn> turns = new ArrayList<>();
+        
+        void add(Turn turn) {
+            turns.add(turn);
+        }
+    }
+}
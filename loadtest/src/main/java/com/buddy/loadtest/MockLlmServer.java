@@ -0,0 +1,181 @@
+package com.buddy.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// OpenAI-compatible streaming chat completions server with scripted, repeatable behaviour, so the
+// stack can be load-tested without an API key or quota:
+//   port             - listen port (9099)
+//   firstTokenDelay  - wait before the first chunk (PT0.3S)
+//   tokenDelay       - wait between chunks (PT0.02S)
+//   tokens           - content chunks per answer (60)
+//   errorRate        - share of requests answered with HTTP 500 (0)
+//   toolCall         - tool call made when the last message is from the user, as name:input (none);
+//                      the answer comes in the next round, after the tool result
+//   seed             - seeds error injection; request n always gets the same outcome (42)
+// Answers are a fixed word sequence with a sentence break every 12 words.
+public class MockLlmServer {
+    
+    private static final String[] WORDS = {
+        "the", "quick", "answer", "depends", "on", "what", "you", "need", "so", "here", "is", "a",
+        "short", "plan", "that", "should", "work", "well", "for", "most", "cases", "today"
+    };
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Duration firstTokenDelay;
+    private final Duration tokenDelay;
+    private final int tokens;
+    private final double errorRate;
+    private final String toolName;
+    private final String toolInput;
+    private final long seed;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong injectedErrors = new AtomicLong();
+    
+    public MockLlmServer(Duration firstTokenDelay, Duration tokenDelay, int tokens, double errorRate,
+                         String toolCall, long seed) {
+        this.firstTokenDelay = firstTokenDelay;
+        this.tokenDelay = tokenDelay;
+        this.tokens = tokens;
+        this.errorRate = errorRate;
+        if (toolCall != null && !toolCall.isBlank()) {
+            int colon = toolCall.indexOf(':');
+            this.toolName = colon < 0 ? toolCall : toolCall.substring(0, colon);
+            this.toolInput = colon < 0 ? "" : toolCall.substring(colon + 1);
+        } else {
+            this.toolName = null;
+            this.toolInput = null;
+        }
+        this.seed = seed;
+    }
+    
+    static MockLlmServer fromArgs(Args args) {
+        return new MockLlmServer(
+            args.duration("firstTokenDelay", "PT0.3S"),
+            args.duration("tokenDelay", "PT0.02S"),
+            args.integer("tokens", 60),
+            args.decimal("errorRate", 0),
+            args.string("toolCall", null),
+            args.longValue("seed", 42));
+    }
+    
+    public static void main(String[] argv) {
+        Args args = new Args(argv);
+        MockLlmServer mock = fromArgs(args);
+        DisposableServer server = mock.start(args.integer("port", 9099));
+        System.out.println("Mock LLM listening on http://localhost:" + server.port() + "/v1");
+        server.onDispose().block();
+    }
+    
+    public DisposableServer start(int port) {
+        return HttpServer.create()
+            .port(port)
+            .route(routes -> routes.post("/v1/chat/completions", this::complete))
+            .bindNow();
+    }
+    
+    public long getRequests() {
+        return requests.get();
+    }
+    
+    public long getInjectedErrors() {
+        return injectedErrors.get();
+    }
+    
+    private Mono<Void> complete(HttpServerRequest request, HttpServerResponse response) {
+        long n = requests.getAndIncrement();
+        return request.receive().aggregate().asByteArray().flatMap(body -> {
+            if (errorRate > 0 && new SplittableRandom(seed + n).nextDouble() < errorRate) {
+                injectedErrors.incrementAndGet();
+                return response.status(HttpResponseStatus.INTERNAL_SERVER_ERROR)
+                    .header("Content-Type", "application/json")
+                    .sendString(Mono.just("{\"error\":{\"message\":\"injected failure\",\"type\":\"server_error\"}}"))
+                    .then();
+            }
+            JsonNode completion = readTree(body);
+            String model = completion.path("model").asText("mock");
+            JsonNode messages = completion.path("messages");
+            String lastRole = messages.isEmpty() ? "" : messages.get(messages.size() - 1).path("role").asText();
+            
+            Flux<String> chunks = toolName != null && "user".equals(lastRole)
+                ? Flux.just(toolCallChunk(model, n), finishChunk(model, "tool_calls"))
+                : answer(model);
+            return response.header("Content-Type", "text/event-stream")
+                .sendString(chunks.map(chunk -> "data: " + chunk + "\n\n").concatWith(Mono.just("data: [DONE]\n\n")))
+                .then();
+        });
+    }
+    
+    private Flux<String> answer(String model) {
+        Flux<String> content = Flux.range(0, tokens).map(i -> {
+            String word = (i == 0 ? "" : " ") + WORDS[(i * 7) % WORDS.length] + (i % 12 == 11 ? "." : "");
+            return contentChunk(model, word);
+        });
+        if (!tokenDelay.isZero()) {
+            content = content.delayElements(tokenDelay);
+        }
+        if (!firstTokenDelay.isZero()) {
+            content = content.delaySubscription(firstTokenDelay);
+        }
+        return content.concatWith(Mono.fromSupplier(() -> finishChunk(model, "stop")));
+    }
+    
+    private String contentChunk(String model, String content) {
+        ObjectNode chunk = chunk(model);
+        ((ObjectNode) chunk.get("choices").get(0).get("delta")).put("content", content);
+        return chunk.toString();
+    }
+    
+    private String toolCallChunk(String model, long n) {
+        ObjectNode chunk = chunk(model);
+        ArrayNode calls = ((ObjectNode) chunk.get("choices").get(0).get("delta")).putArray("tool_calls");
+        ObjectNode call = calls.addObject();
+        call.put("index", 0);
+        call.put("id", "call_" + n);
+        call.put("type", "function");
+        ObjectNode function = call.putObject("function");
+        function.put("name", toolName);
+        function.put("arguments", objectMapper.createObjectNode().put("input", toolInput).toString());
+        return chunk.toString();
+    }
+    
+    private String finishChunk(String model, String reason) {
+        ObjectNode chunk = chunk(model);
+        ((ObjectNode) chunk.get("choices").get(0)).put("finish_reason", reason);
+        return chunk.toString();
+    }
+    
+    private ObjectNode chunk(String model) {
+        ObjectNode chunk = objectMapper.createObjectNode();
+        chunk.put("id", "chatcmpl-mock");
+        chunk.put("object", "chat.completion.chunk");
+        chunk.put("model", model);
+        ObjectNode choice = chunk.putArray("choices").addObject();
+        choice.put("index", 0);
+        choice.putObject("delta");
+        return chunk;
+    }
+    
+    private JsonNode readTree(byte[] body) {
+        try {
+            return objectMapper.readTree(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
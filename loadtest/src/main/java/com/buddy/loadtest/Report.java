@@ -0,0 +1,120 @@
+package com.buddy.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+// Aggregates of one load-test run. Latency percentiles are exact (nearest rank over all samples) and
+// cover turns that streamed at least one token; error rates are shares of all measured turns.
+class Report {
+    
+    private final int users;
+    private final Duration duration;
+    private final int turns;
+    private final Map<LoadGenerator.Outcome, Integer> outcomes;
+    private final long[] firstToken;
+    private final long[] total;
+    
+    private Report(int users, Duration duration, int turns, Map<LoadGenerator.Outcome, Integer> outcomes,
+                   long[] firstToken, long[] total) {
+        this.users = users;
+        this.duration = duration;
+        this.turns = turns;
+        this.outcomes = outcomes;
+        this.firstToken = firstToken;
+        this.total = total;
+    }
+    
+    static Report of(List<LoadGenerator.Recorder> recorders, Duration duration, int users) {
+        Map<LoadGenerator.Outcome, Integer> outcomes = new EnumMap<>(LoadGenerator.Outcome.class);
+        for (LoadGenerator.Outcome outcome : LoadGenerator.Outcome.values()) {
+            outcomes.put(outcome, 0);
+        }
+        int turns = 0;
+        int streamed = 0;
+        for (LoadGenerator.Recorder recorder : recorders) {
+            for (LoadGenerator.Turn turn : recorder.turns) {
+                turns++;
+                outcomes.merge(turn.outcome, 1, Integer::sum);
+                if (turn.firstTokenNanos >= 0) {
+                    streamed++;
+                }
+            }
+        }
+        long[] firstToken = new long[streamed];
+        long[] total = new long[streamed];
+        int i = 0;
+        for (LoadGenerator.Recorder recorder : recorders) {
+            for (LoadGenerator.Turn turn : recorder.turns) {
+                if (turn.firstTokenNanos >= 0) {
+                    firstToken[i] = turn.firstTokenNanos;
+                    total[i] = turn.totalNanos;
+                    i++;
+                }
+            }
+        }
+        Arrays.sort(firstToken);
+        Arrays.sort(total);
+        return new Report(users, duration, turns, outcomes, firstToken, total);
+    }
+    
+    double throughput() {
+        return turns / (duration.toNanos() / 1e9);
+    }
+    
+    double rate(LoadGenerator.Outcome outcome) {
+        return turns == 0 ? 0 : (double) outcomes.get(outcome) / turns;
+    }
+    
+    double errorRate() {
+        return turns == 0 ? 0 : 1 - rate(LoadGenerator.Outcome.OK);
+    }
+    
+    static double percentileMillis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        int rank = (int) Math.ceil(percentile * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))] / 1e6;
+    }
+    
+    String summary() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("users=%d duration=%s turns=%d throughput=%.1f turns/s%n",
+            users, duration, turns, throughput()));
+        out.append(String.format("time to first token  p50=%.1f ms  p99=%.1f ms%n",
+            percentileMillis(firstToken, 0.5), percentileMillis(firstToken, 0.99)));
+        out.append(String.format("total latency        p50=%.1f ms  p99=%.1f ms%n",
+            percentileMillis(total, 0.5), percentileMillis(total, 0.99)));
+        out.append(String.format("errors %.2f%%", errorRate() * 100));
+        for (Map.Entry<LoadGenerator.Outcome, Integer> entry : outcomes.entrySet()) {
+            if (entry.getKey() != LoadGenerator.Outcome.OK && entry.getValue() > 0) {
+                out.append(String.format("  %s=%d", entry.getKey().name().toLowerCase(), entry.getValue()));
+            }
+        }
+        return out.toString();
+    }
+    
+    ObjectNode toJson(ObjectMapper objectMapper) {
+        ObjectNode json = objectMapper.createObjectNode();
+        json.put("users", users);
+        json.put("durationSeconds", duration.toNanos() / 1e9);
+        json.put("turns", turns);
+        json.put("throughputPerSecond", throughput());
+        json.putObject("timeToFirstTokenMillis")
+            .put("p50", percentileMillis(firstToken, 0.5))
+            .put("p99", percentileMillis(firstToken, 0.99));
+        json.putObject("totalLatencyMillis")
+            .put("p50", percentileMillis(total, 0.5))
+            .put("p99", percentileMillis(total, 0.99));
+        json.put("errorRate", errorRate());
+        ObjectNode rates = json.putObject("outcomeRates");
+        outcomes.keySet().forEach(outcome -> rates.put(outcome.name().toLowerCase(), rate(outcome)));
+        return json;
+    }
+}
@@ -0,0 +1,88 @@
+package com.buddy.loadtest;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.netty.DisposableServer;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+class MockLlmServerTest {
+    
+    private final HttpClient client = HttpClient.newHttpClient();
+    private DisposableServer server;
+    
+    @AfterEach
+    void tearDown() {
+        server.disposeNow();
+    }
+    
+    @Test
+    void testAnswerIsTheSameEveryTime() throws Exception {
+        start(new MockLlmServer(Duration.ZERO, Duration.ZERO, 5, 0, null, 42));
+        
+        HttpResponse<String> first = post("user");
+        HttpResponse<String> second = post("user");
+        
+        assertEquals(200, first.statusCode());
+        assertEquals(first.body(), second.body());
+        assertEquals(7, first.body().split("\n\n").length);
+        assertTrue(first.body().contains("\"finish_reason\":\"stop\""));
+        assertTrue(first.body().endsWith("data: [DONE]\n\n"));
+    }
+    
+    @Test
+    void testToolCallIsMadeForUserTurnAndAnsweredAfterToolResult() throws Exception {
+        start(new MockLlmServer(Duration.ZERO, Duration.ZERO, 3, 0, "notes:list", 42));
+        
+        String toolRound = post("user").body();
+        String answerRound = post("tool").body();
+        
+        assertTrue(toolRound.contains("\"name\":\"notes\""));
+        assertTrue(toolRound.contains("\"arguments\":\"{\\\"input\\\":\\\"list\\\"}\""));
+        assertTrue(toolRound.contains("\"finish_reason\":\"tool_calls\""));
+        assertTrue(answerRound.contains("\"content\""));
+        assertFalse(answerRound.contains("tool_calls"));
+    }
+    
+    @Test
+    void testInjectedErrorsFollowTheSeed() throws Exception {
+        List<Integer> firstRun = statuses(new MockLlmServer(Duration.ZERO, Duration.ZERO, 1, 0.3, null, 7));
+        server.disposeNow();
+        List<Integer> secondRun = statuses(new MockLlmServer(Duration.ZERO, Duration.ZERO, 1, 0.3, null, 7));
+        
+        assertEquals(firstRun, secondRun);
+        assertTrue(firstRun.contains(500));
+        assertTrue(firstRun.contains(200));
+    }
+    
+    private List<Integer> statuses(MockLlmServer mock) throws Exception {
+        start(mock);
+        List<Integer> statuses = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            statuses.add(post("user").statusCode());
+        }
+        assertEquals(statuses.stream().filter(status -> status == 500).count(), mock.getInjectedErrors());
+        return statuses;
+    }
+    
+    private void start(MockLlmServer mock) {
+        server = mock.start(0);
+    }
+    
+    private HttpResponse<String> post(String lastRole) throws Exception {
+        String body = "{\"model\":\"gpt-4o-mini\",\"stream\":true,\"messages\":[{\"role\":\"" + lastRole
+            + "\",\"content\":\"Hello\"}]}";
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.port() + "/v1/chat/completions"))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(body))
+            .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
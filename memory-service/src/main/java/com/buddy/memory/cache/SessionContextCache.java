@@ -0,0 +1,111 @@
+package com.buddy.memory.cache;
+
+import com.buddy.common.memory.Message;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+@Component
+public class SessionContextCache {
+    
+    private final boolean enabled;
+    private final int capacity;
+    private final Cache<String, SessionBuffer> sessions;
+    
+    public SessionContextCache(@Value("${memory.cache.enabled:true}") boolean enabled,
+                               @Value("${memory.cache.maxSessions:10000}") long maxSessions,
+                               @Value("${memory.cache.messagesPerSession:50}") int capacity,
+                               @Value("${memory.cache.ttl:PT30M}") Duration ttl,
+                               MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.sessions = Caffeine.newBuilder()
+            .maximumSize(maxSessions)
+            .expireAfterAccess(ttl)
+            .recordStats()
+            .build();
+        // Publishes cache.gets{result=hit|miss}, cache.evictions, cache.size under cache=memory.context
+        CaffeineCacheMetrics.monitor(meterRegistry, sessions, "memory.context");
+    }
+    
+    public boolean canServe(int limit) {
+        return enabled && limit > 0 && limit <= capacity;
+    }
+    
+    public int getCapacity() {
+        return capacity;
+    }
+    
+    // Newest `limit` messages oldest-first. On a miss the loader must return the newest `capacity`
+    // messages of the session (oldest-first); it runs atomically with respect to append().
+    public List<Message> getRecent(String sessionId, int limit, Function<String, List<Message>> loader) {
+        SessionBuffer buffer = sessions.get(sessionId, id -> new SessionBuffer(capacity, loader.apply(id)));
+        return buffer.tail(limit);
+    }
+    
+    // Write-through for committed messages. Sessions that are not cached are left alone and loaded on
+    // their next read, so the buffer always holds the newest min(capacity, total) messages.
+    public void append(Message message) {
+        if (!enabled) {
+            return;
+        }
+        sessions.asMap().computeIfPresent(message.getSessionId(), (id, buffer) -> {
+            buffer.append(message);
+            return buffer;
+        });
+    }
+    
+    public void invalidate(String sessionId) {
+        sessions.invalidate(sessionId);
+    }
+    
+    // Fixed-size ring buffer of the newest messages of one session
+    static class SessionBuffer {
+        private final Message[] ring;
+        private int head;
+        private int size;
+        
+        SessionBuffer(int capacity, List<Message> initial) {
+            this.ring = new Message[capacity];
+            initial.forEach(this::append);
+        }
+        
+        synchronized void append(Message message) {
+            // A loader racing a commit can already have read the row
+            if (message.getId() != null && contains(message.getId())) {
+                return;
+            }
+            ring[(head + size) % ring.length] = message;
+            if (size < ring.length) {
+                size++;
+            } else {
+                head = (head + 1) % ring.length;
+            }
+        }
+        
+        synchronized List<Message> tail(int limit) {
+            int count = Math.min(limit, size);
+            List<Message> result = new ArrayList<>(count);
+            for (int i = size - count; i < size; i++) {
+                result.add(ring[(head + i) % ring.length]);
+            }
+            return result;
+        }
+        
+        private boolean contains(Long id) {
+            for (int i = 0; i < size; i++) {
+                if (id.equals(ring[(head + i) % ring.length].getId())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
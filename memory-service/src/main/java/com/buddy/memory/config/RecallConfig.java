@@ -0,0 +1,46 @@
+package com.buddy.memory.config;
+
+import com.buddy.memory.recall.CachingEmbedder;
+import com.buddy.memory.recall.Embedder;
+import com.buddy.memory.recall.HashingEmbedder;
+import com.buddy.memory.recall.JpaEmbeddingStore;
+import com.buddy.memory.recall.OpenAiEmbedder;
+import com.buddy.memory.repository.EmbeddingCacheRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Configuration
+public class RecallConfig {
+    
+    // Remote embeddings go through the content-hash cache; the local hashing embedder is cheaper than a lookup
+    @Bean
+    @ConditionalOnProperty(name = "memory.recall.embedder", havingValue = "openai")
+    public Embedder openAiEmbedder(@Value("${openai.baseUrl:https://api.openai.com/v1}") String baseUrl,
+                                   @Value("${openai.apiKey}") String apiKey,
+                                   @Value("${openai.embeddingModel:text-embedding-3-small}") String model,
+                                   @Value("${memory.recall.dimensions:512}") int dimensions,
+                                   @Value("${memory.embeddings.cache.enabled:true}") boolean cacheEnabled,
+                                   @Value("${memory.embeddings.cache.maxEntries:50000}") long maxEntries,
+                                   EmbeddingCacheRepository cacheRepository,
+                                   TransactionTemplate transactionTemplate,
+                                   MeterRegistry meterRegistry) {
+        Embedder embedder = new OpenAiEmbedder(baseUrl, apiKey, model, dimensions);
+        if (!cacheEnabled) {
+            return embedder;
+        }
+        return new CachingEmbedder(embedder, new JpaEmbeddingStore(cacheRepository, transactionTemplate),
+            maxEntries, meterRegistry);
+    }
+    
+    // Local fallback, also used by tests
+    @Bean
+    @ConditionalOnMissingBean
+    public Embedder hashingEmbedder(@Value("${memory.recall.dimensions:512}") int dimensions) {
+        return new HashingEmbedder(dimensions);
+    }
+}
@@ -0,0 +1,19 @@
+package com.buddy.memory.config;
+
+import com.buddy.memory.summary.ExtractiveSummarizer;
+import com.buddy.memory.summary.Summarizer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class SummaryConfig {
+    
+    // Model-backed summarizers can be plugged in by declaring their own Summarizer bean
+    @Bean
+    @ConditionalOnMissingBean
+    public Summarizer summarizer(@Value("${memory.summary.maxChars:2000}") int maxChars) {
+        return new ExtractiveSummarizer(maxChars);
+    }
+}
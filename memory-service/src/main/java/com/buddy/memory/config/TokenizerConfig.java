@@ -0,0 +1,18 @@
+package com.buddy.memory.config;
+
+import com.buddy.common.memory.HeuristicTokenCounter;
+import com.buddy.common.memory.TokenCounter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class TokenizerConfig {
+    
+    // Replace with an exact BPE tokenizer bean if the estimate is not tight enough for the model in use
+    @Bean
+    @ConditionalOnMissingBean
+    public TokenCounter tokenCounter() {
+        return new HeuristicTokenCounter();
+    }
+}
@@ -1,9 +1,17 @@
 package com.buddy.memory.controller;
 
+import com.buddy.memory.recall.RecallHit;
+import com.buddy.memory.recall.RecallNotReadyException;
+import com.buddy.memory.recall.SemanticRecall;
 import com.buddy.memory.service.MemoryService;
 import com.buddy.common.memory.Message;
+import com.buddy.common.memory.MessageRole;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import java.time.OffsetDateTime;
 import java.util.List;
 
 @RestController
@@ -11,26 +19,155 @@ import java.util.List;
 @CrossOrigin(origins = "*")
 public class MemoryController {
     
+    private static final int DEFAULT_RECALL_K = 5;
+    private static final String RECALL_RETRY_AFTER_SECONDS = "1";
+    
     private final MemoryService memoryService;
+    private final SemanticRecall semanticRecall;
     
-    public MemoryController(MemoryService memoryService) {
+    public MemoryController(MemoryService memoryService, SemanticRecall semanticRecall) {
         this.memoryService = memoryService;
+        this.semanticRecall = semanticRecall;
     }
     
     @PostMapping("/append")
     public ResponseEntity<Message> appendMessage(@RequestBody Message message) {
-        Message savedMessage = memoryService.saveMessage(message);
-        return ResponseEntity.ok(savedMessage);
+        requireStorable(message);
+        // Persisted by the write-behind queue; the message is readable via /context right away
+        memoryService.appendMessage(message);
+        return ResponseEntity.accepted().body(message);
     }
     
     @PostMapping("/context")
     public ResponseEntity<List<Message>> getContext(@RequestBody ContextRequest request) {
-        List<Message> context = memoryService.getRecentMessages(request.getSessionId(), 20);
+        List<Message> context = memoryService.getContext(request.getSessionId(),
+            request.getBeforeCreatedAt(), request.getBeforeId(), request.getLimit(), request.getTokenBudget());
+        return ResponseEntity.ok(context);
+    }
+    
+    @PostMapping("/turn")
+    public ResponseEntity<List<Message>> appendTurn(@RequestBody TurnRequest request) {
+        requireStorable(request.getMessage());
+        List<Message> context = memoryService.saveMessageAndGetContext(
+            request.getMessage(), request.getLimit(), request.getTokenBudget());
         return ResponseEntity.ok(context);
     }
     
+    // 503 with Retry-After while the session's index is being built; an empty list means no matches
+    @PostMapping("/recall")
+    public ResponseEntity<List<RecallHit>> recall(@RequestBody RecallRequest request) {
+        int k = request.getK() != null ? request.getK() : DEFAULT_RECALL_K;
+        try {
+            return ResponseEntity.ok(semanticRecall.recall(request.getSessionId(), request.getQuery(), k));
+        } catch (RecallNotReadyException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, RECALL_RETRY_AFTER_SECONDS)
+                .build();
+        }
+    }
+    
+    // Checked before the 202: a message the database would reject could only fail on the writer thread.
+    // SUMMARY entries are made from session_summary when context is read; they are never stored, and
+    // a client must not be able to slip one into a session's context.
+    private static void requireStorable(Message message) {
+        if (message == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "message is required");
+        }
+        if (message.getSessionId() == null || message.getSessionId().isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "sessionId is required");
+        }
+        if (message.getContent() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "content is required");
+        }
+        if (message.getRole() == null || message.getRole() == MessageRole.SUMMARY) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "role must be USER, ASSISTANT or TOOL");
+        }
+    }
+    
     private static class ContextRequest {
         private String sessionId;
+        private Integer limit;
+        // Select the newest messages fitting this many tokens instead of a fixed count
+        private Integer tokenBudget;
+        // Keyset cursor: pass the createdAt/id of the oldest message already seen to page further back
+        private OffsetDateTime beforeCreatedAt;
+        private Long beforeId;
+        
+        public String getSessionId() {
+            return sessionId;
+        }
+        
+        public void setSessionId(String sessionId) {
+            this.sessionId = sessionId;
+        }
+        
+        public Integer getLimit() {
+            return limit;
+        }
+        
+        public void setLimit(Integer limit) {
+            this.limit = limit;
+        }
+        
+        public Integer getTokenBudget() {
+            return tokenBudget;
+        }
+        
+        public void setTokenBudget(Integer tokenBudget) {
+            this.tokenBudget = tokenBudget;
+        }
+        
+        public OffsetDateTime getBeforeCreatedAt() {
+            return beforeCreatedAt;
+        }
+        
+        public void setBeforeCreatedAt(OffsetDateTime beforeCreatedAt) {
+            this.beforeCreatedAt = beforeCreatedAt;
+        }
+        
+        public Long getBeforeId() {
+            return beforeId;
+        }
+        
+        public void setBeforeId(Long beforeId) {
+            this.beforeId = beforeId;
+        }
+    }
+    
+    private static class TurnRequest {
+        private Message message;
+        private Integer limit;
+        private Integer tokenBudget;
+        
+        public Message getMessage() {
+            return message;
+        }
+        
+        public void setMessage(Message message) {
+            this.message = message;
+        }
+        
+        public Integer getLimit() {
+            return limit;
+        }
+        
+        public void setLimit(Integer limit) {
+            this.limit = limit;
+        }
+        
+        public Integer getTokenBudget() {
+            return tokenBudget;
+        }
+        
+        public void setTokenBudget(Integer tokenBudget) {
+            this.tokenBudget = tokenBudget;
+        }
+    }
+    
+    private static class RecallRequest {
+        private String sessionId;
+        private String query;
+        private Integer k;
         
         public String getSessionId() {
             return sessionId;
@@ -39,5 +176,21 @@ public class MemoryController {
         public void setSessionId(String sessionId) {
             this.sessionId = sessionId;
         }
+        
+        public String getQuery() {
+            return query;
+        }
+        
+        public void setQuery(String query) {
+            this.query = query;
+        }
+        
+        public Integer getK() {
+            return k;
+        }
+        
+        public void setK(Integer k) {
+            this.k = k;
+        }
     }
 }
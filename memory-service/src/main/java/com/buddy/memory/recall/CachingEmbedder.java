@@ -0,0 +1,169 @@
+package com.buddy.memory.recall;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Content-addressed embedding cache in front of a remote embedder: an in-memory tier, then the
+// persistent store, then the delegate. Identical texts already being embedded by another caller are
+// awaited instead of requested again, so each distinct text reaches the delegate at most once while
+// it stays cached. Lookups are counted as memory.embeddings.lookups{result=memory|store|coalesced|remote}.
+public class CachingEmbedder implements Embedder {
+    
+    private static final Logger logger = LoggerFactory.getLogger(CachingEmbedder.class);
+    
+    private final Embedder delegate;
+    private final EmbeddingStore store;
+    private final Cache<String, float[]> memory;
+    private final Map<String, CompletableFuture<float[]>> inFlight = new ConcurrentHashMap<>();
+    private final Counter memoryHits;
+    private final Counter storeHits;
+    private final Counter coalesced;
+    private final Counter remote;
+    
+    public CachingEmbedder(Embedder delegate, EmbeddingStore store, long maxEntries, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.store = store;
+        this.memory = Caffeine.newBuilder()
+            .maximumSize(maxEntries)
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, memory, "memory.embeddings");
+        this.memoryHits = lookups(meterRegistry, "memory");
+        this.storeHits = lookups(meterRegistry, "store");
+        this.coalesced = lookups(meterRegistry, "coalesced");
+        this.remote = lookups(meterRegistry, "remote");
+    }
+    
+    @Override
+    public String id() {
+        return delegate.id();
+    }
+    
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+    
+    @Override
+    public List<float[]> embed(List<String> texts) {
+        List<String> keys = new ArrayList<>(texts.size());
+        Map<String, CompletableFuture<float[]>> awaited = new LinkedHashMap<>();
+        Map<String, String> owned = new LinkedHashMap<>();
+        
+        for (String text : texts) {
+            String key = contentHash(text);
+            keys.add(key);
+            if (awaited.containsKey(key) || owned.containsKey(key)) {
+                continue;
+            }
+            float[] cached = memory.getIfPresent(key);
+            if (cached != null) {
+                memoryHits.increment();
+                awaited.put(key, CompletableFuture.completedFuture(cached));
+                continue;
+            }
+            CompletableFuture<float[]> future = new CompletableFuture<>();
+            CompletableFuture<float[]> existing = inFlight.putIfAbsent(key, future);
+            if (existing != null) {
+                coalesced.increment();
+                awaited.put(key, existing);
+            } else {
+                owned.put(key, text);
+                awaited.put(key, future);
+            }
+        }
+        
+        if (!owned.isEmpty()) {
+            load(owned);
+        }
+        
+        List<float[]> vectors = new ArrayList<>(texts.size());
+        try {
+            for (String key : keys) {
+                vectors.add(awaited.get(key).join());
+            }
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+        return vectors;
+    }
+    
+    // Resolves the keys this caller owns and completes their futures, successfully or not
+    private void load(Map<String, String> owned) {
+        try {
+            Map<String, float[]> resolved = new LinkedHashMap<>(store.getAll(owned.keySet()));
+            storeHits.increment(resolved.size());
+            
+            List<String> missingKeys = owned.keySet().stream().filter(key -> !resolved.containsKey(key)).toList();
+            if (!missingKeys.isEmpty()) {
+                List<float[]> embedded = delegate.embed(missingKeys.stream().map(owned::get).toList());
+                remote.increment(missingKeys.size());
+                Map<String, float[]> fresh = new LinkedHashMap<>();
+                for (int i = 0; i < missingKeys.size(); i++) {
+                    fresh.put(missingKeys.get(i), embedded.get(i));
+                }
+                resolved.putAll(fresh);
+                try {
+                    store.putAll(fresh);
+                } catch (RuntimeException e) {
+                    // Still served from memory; only the persistent copy is lost
+                    logger.warn("Failed to persist {} embeddings: {}", fresh.size(), e.getMessage());
+                }
+            }
+            
+            resolved.forEach((key, vector) -> {
+                memory.put(key, vector);
+                complete(key, vector);
+            });
+            if (resolved.size() < owned.size()) {
+                throw new IllegalStateException("Embedder returned " + resolved.size() + " of " + owned.size() + " vectors");
+            }
+        } catch (RuntimeException e) {
+            owned.keySet().forEach(key -> {
+                CompletableFuture<float[]> future = inFlight.remove(key);
+                if (future != null) {
+                    future.completeExceptionally(e);
+                }
+            });
+            throw e;
+        }
+    }
+    
+    private void complete(String key, float[] vector) {
+        CompletableFuture<float[]> future = inFlight.remove(key);
+        if (future != null) {
+            future.complete(vector);
+        }
+    }
+    
+    private String contentHash(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(delegate.id().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    private static Counter lookups(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("memory.embeddings.lookups").tag("result", result).register(meterRegistry);
+    }
+}
@@ -0,0 +1,14 @@
+package com.buddy.memory.recall;
+
+import java.util.List;
+
+public interface Embedder {
+    
+    // Identifies the vector space (model and dimensions); part of every embedding cache key
+    String id();
+    
+    int dimensions();
+    
+    // One L2-normalized vector of dimensions() floats per text, in input order
+    List<float[]> embed(List<String> texts);
+}
@@ -0,0 +1,60 @@
+package com.buddy.memory.recall;
+
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+import java.time.OffsetDateTime;
+
+// Persistent tier of the embedding cache. Rows are immutable: a content hash always maps to the same vector.
+@Entity
+@Table(name = "embedding_cache")
+public class EmbeddingCacheEntry implements Persistable<String> {
+    @Id
+    @Column(name = "content_hash")
+    private String contentHash;
+    
+    // float32 little-endian
+    @Column(nullable = false)
+    private byte[] vector;
+    
+    @Column(name = "created_at")
+    private OffsetDateTime createdAt;
+    
+    // Entries are only ever inserted, so save() can skip the merge-time select
+    @Transient
+    private boolean isNew = true;
+    
+    public EmbeddingCacheEntry() {}
+    
+    public EmbeddingCacheEntry(String contentHash, byte[] vector) {
+        this.contentHash = contentHash;
+        this.vector = vector;
+        this.createdAt = OffsetDateTime.now();
+    }
+    
+    @Override
+    public String getId() {
+        return contentHash;
+    }
+    
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+    
+    @PostLoad
+    void markLoaded() {
+        isNew = false;
+    }
+    
+    public String getContentHash() {
+        return contentHash;
+    }
+    
+    public byte[] getVector() {
+        return vector;
+    }
+    
+    public OffsetDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
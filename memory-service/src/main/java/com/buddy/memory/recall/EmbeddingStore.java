@@ -0,0 +1,12 @@
+package com.buddy.memory.recall;
+
+import java.util.Collection;
+import java.util.Map;
+
+// Persistent tier behind CachingEmbedder, keyed by content hash
+public interface EmbeddingStore {
+    
+    Map<String, float[]> getAll(Collection<String> contentHashes);
+    
+    void putAll(Map<String, float[]> embeddings);
+}
@@ -0,0 +1,75 @@
+package com.buddy.memory.recall;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Deterministic local embedder (feature hashing of words and character trigrams). No semantic
+// understanding beyond shared vocabulary, but fast, free and stable, which suits tests and offline use.
+public class HashingEmbedder implements Embedder {
+    
+    private static final float TRIGRAM_WEIGHT = 0.5f;
+    
+    private final int dimensions;
+    
+    public HashingEmbedder(int dimensions) {
+        this.dimensions = dimensions;
+    }
+    
+    @Override
+    public String id() {
+        return "hashing-" + dimensions;
+    }
+    
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+    
+    @Override
+    public List<float[]> embed(List<String> texts) {
+        List<float[]> vectors = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            vectors.add(embed(text));
+        }
+        return vectors;
+    }
+    
+    private float[] embed(String text) {
+        float[] vector = new float[dimensions];
+        String lower = text.toLowerCase();
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                addWord(vector, lower, start, i);
+                start = -1;
+            }
+        }
+        return VectorMath.normalize(vector);
+    }
+    
+    private void addWord(float[] vector, String text, int start, int end) {
+        add(vector, hash(text, start, end, 0), 1f);
+        // Trigrams of "^word$" so inflections and typos still overlap
+        String padded = "^" + text.substring(start, end) + "$";
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            add(vector, hash(padded, i, i + 3, 0x9E3779B9), TRIGRAM_WEIGHT);
+        }
+    }
+    
+    private void add(float[] vector, int hash, float weight) {
+        vector[Math.floorMod(hash, dimensions)] += (hash >>> 31) == 0 ? weight : -weight;
+    }
+    
+    // FNV-1a
+    private static int hash(String text, int start, int end, int seed) {
+        int h = 0x811C9DC5 ^ seed;
+        for (int i = start; i < end; i++) {
+            h ^= text.charAt(i);
+            h *= 0x01000193;
+        }
+        return h;
+    }
+}
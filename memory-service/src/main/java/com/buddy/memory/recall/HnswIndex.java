@@ -0,0 +1,260 @@
+package com.buddy.memory.recall;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Hierarchical navigable small world graph (Malkov & Yashunin) over cosine similarity. Vectors live
+// in an OffHeapVectorStore; the graph itself is plain int arrays. Searches run concurrently, inserts
+// take an exclusive lock.
+public class HnswIndex {
+    
+    private static final int[] NO_LINKS = new int[0];
+    private static final Comparator<Candidate> CLOSEST_FIRST = Comparator.comparingDouble((Candidate c) -> c.similarity).reversed();
+    private static final Comparator<Candidate> FARTHEST_FIRST = Comparator.comparingDouble(c -> c.similarity);
+    
+    private final OffHeapVectorStore vectors;
+    private final int m;
+    private final int maxLinksLayer0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final Random random;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    // links.get(node)[level] = neighbours of node on that level
+    private final List<int[][]> links = new ArrayList<>();
+    private final Set<Long> indexedIds = new HashSet<>();
+    private long[] ids = new long[16];
+    private int entryPoint = -1;
+    private int topLevel = -1;
+    
+    public HnswIndex(int dimensions, int m, int efConstruction, long seed) {
+        this.vectors = new OffHeapVectorStore(dimensions, 16);
+        this.m = m;
+        this.maxLinksLayer0 = 2 * m;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1 / Math.log(m);
+        this.random = new Random(seed);
+    }
+    
+    // Returns false if the id is already indexed
+    public boolean add(long id, float[] vector) {
+        float[] normalized = VectorMath.normalize(vector.clone());
+        lock.writeLock().lock();
+        try {
+            if (!indexedIds.add(id)) {
+                return false;
+            }
+            int node = vectors.add(normalized);
+            if (node == ids.length) {
+                ids = Arrays.copyOf(ids, ids.length * 2);
+            }
+            ids[node] = id;
+            
+            int level = (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier);
+            int[][] nodeLinks = new int[level + 1][];
+            Arrays.fill(nodeLinks, NO_LINKS);
+            links.add(nodeLinks);
+            if (entryPoint < 0) {
+                entryPoint = node;
+                topLevel = level;
+                return true;
+            }
+            
+            int current = entryPoint;
+            for (int l = topLevel; l > level; l--) {
+                current = greedyClosest(normalized, current, l);
+            }
+            for (int l = Math.min(level, topLevel); l >= 0; l--) {
+                List<Candidate> nearest = searchLayer(normalized, current, efConstruction, l);
+                nodeLinks[l] = selectNeighbours(nearest, m);
+                for (int neighbour : nodeLinks[l]) {
+                    link(neighbour, node, l);
+                }
+                current = nearest.get(0).node;
+            }
+            if (level > topLevel) {
+                topLevel = level;
+                entryPoint = node;
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    // Up to k ids ordered by descending cosine similarity; ef trades latency for recall
+    public List<Neighbour> search(float[] query, int k, int ef) {
+        float[] normalized = VectorMath.normalize(query.clone());
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0) {
+                return List.of();
+            }
+            int current = entryPoint;
+            for (int l = topLevel; l > 0; l--) {
+                current = greedyClosest(normalized, current, l);
+            }
+            List<Candidate> nearest = searchLayer(normalized, current, Math.max(ef, k), 0);
+            List<Neighbour> result = new ArrayList<>(Math.min(k, nearest.size()));
+            for (int i = 0; i < nearest.size() && i < k; i++) {
+                result.add(new Neighbour(ids[nearest.get(i).node], nearest.get(i).similarity));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public boolean contains(long id) {
+        lock.readLock().lock();
+        try {
+            return indexedIds.contains(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return vectors.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private int greedyClosest(float[] query, int start, int level) {
+        int current = start;
+        float best = vectors.dot(current, query);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int neighbour : links.get(current)[level]) {
+                float similarity = vectors.dot(neighbour, query);
+                if (similarity > best) {
+                    best = similarity;
+                    current = neighbour;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+    
+    // Best-first search of one layer; returns up to ef nodes, closest first
+    private List<Candidate> searchLayer(float[] query, int entry, int ef, int level) {
+        BitSet visited = new BitSet(vectors.size());
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>(CLOSEST_FIRST);
+        PriorityQueue<Candidate> results = new PriorityQueue<>(FARTHEST_FIRST);
+        Candidate start = new Candidate(entry, vectors.dot(entry, query));
+        visited.set(entry);
+        candidates.add(start);
+        results.add(start);
+        
+        while (!candidates.isEmpty()) {
+            Candidate candidate = candidates.poll();
+            if (results.size() >= ef && candidate.similarity < results.peek().similarity) {
+                break;
+            }
+            for (int neighbour : links.get(candidate.node)[level]) {
+                if (visited.get(neighbour)) {
+                    continue;
+                }
+                visited.set(neighbour);
+                float similarity = vectors.dot(neighbour, query);
+                if (results.size() < ef || similarity > results.peek().similarity) {
+                    Candidate next = new Candidate(neighbour, similarity);
+                    candidates.add(next);
+                    results.add(next);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+        
+        List<Candidate> closestFirst = new ArrayList<>(results);
+        closestFirst.sort(CLOSEST_FIRST);
+        return closestFirst;
+    }
+    
+    // Neighbour-selection heuristic: prefer candidates that are closer to the base than to any already
+    // selected neighbour, which keeps links spread across clusters; top up with the rest if short.
+    private int[] selectNeighbours(List<Candidate> closestFirst, int max) {
+        int[] selected = new int[Math.min(max, closestFirst.size())];
+        int count = 0;
+        List<Candidate> skipped = new ArrayList<>();
+        for (Candidate candidate : closestFirst) {
+            if (count == selected.length) {
+                break;
+            }
+            boolean diverse = true;
+            for (int i = 0; i < count && diverse; i++) {
+                diverse = vectors.dot(candidate.node, selected[i]) < candidate.similarity;
+            }
+            if (diverse) {
+                selected[count++] = candidate.node;
+            } else {
+                skipped.add(candidate);
+            }
+        }
+        for (int i = 0; count < selected.length && i < skipped.size(); i++) {
+            selected[count++] = skipped.get(i).node;
+        }
+        return selected;
+    }
+    
+    private void link(int from, int to, int level) {
+        int[] current = links.get(from)[level];
+        int max = level == 0 ? maxLinksLayer0 : m;
+        if (current.length < max) {
+            int[] extended = Arrays.copyOf(current, current.length + 1);
+            extended[current.length] = to;
+            links.get(from)[level] = extended;
+            return;
+        }
+        List<Candidate> candidates = new ArrayList<>(current.length + 1);
+        for (int neighbour : current) {
+            candidates.add(new Candidate(neighbour, vectors.dot(from, neighbour)));
+        }
+        candidates.add(new Candidate(to, vectors.dot(from, to)));
+        candidates.sort(CLOSEST_FIRST);
+        links.get(from)[level] = selectNeighbours(candidates, max);
+    }
+    
+    private static final class Candidate {
+        final int node;
+        final float similarity;
+        
+        Candidate(int node, float similarity) {
+            this.node = node;
+            this.similarity = similarity;
+        }
+    }
+    
+    public static class Neighbour {
+        private final long id;
+        private final float similarity;
+        
+        public Neighbour(long id, float similarity) {
+            this.id = id;
+            this.similarity = similarity;
+        }
+        
+        public long getId() {
+            return id;
+        }
+        
+        public float getSimilarity() {
+            return similarity;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.buddy.memory.recall;
+
+import com.buddy.memory.repository.EmbeddingCacheRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class JpaEmbeddingStore implements EmbeddingStore {
+    
+    private static final Logger logger = LoggerFactory.getLogger(JpaEmbeddingStore.class);
+    
+    private final EmbeddingCacheRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    
+    public JpaEmbeddingStore(EmbeddingCacheRepository repository, TransactionTemplate transactionTemplate) {
+        this.repository = repository;
+        this.transactionTemplate = transactionTemplate;
+    }
+    
+    @Override
+    public Map<String, float[]> getAll(Collection<String> contentHashes) {
+        Map<String, float[]> found = new HashMap<>();
+        for (EmbeddingCacheEntry entry : repository.findAllById(contentHashes)) {
+            found.put(entry.getContentHash(), decode(entry.getVector()));
+        }
+        return found;
+    }
+    
+    @Override
+    public void putAll(Map<String, float[]> embeddings) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> repository.saveAll(entries(embeddings)));
+        } catch (DataIntegrityViolationException e) {
+            // Some hashes were stored by another instance first, and the batch rolled back with them.
+            // Their vectors are identical, so skip them and insert the rest one row at a time.
+            Map<String, float[]> missing = new HashMap<>(embeddings);
+            repository.findAllById(embeddings.keySet()).forEach(entry -> missing.remove(entry.getContentHash()));
+            int raced = 0;
+            for (EmbeddingCacheEntry entry : entries(missing)) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> repository.save(entry));
+                } catch (DataIntegrityViolationException duplicate) {
+                    raced++;
+                }
+            }
+            logger.debug("Embedding cache batch of {} had {} entries already present; inserted {} one by one",
+                embeddings.size(), embeddings.size() - missing.size() + raced, missing.size() - raced);
+        }
+    }
+    
+    private static List<EmbeddingCacheEntry> entries(Map<String, float[]> embeddings) {
+        List<EmbeddingCacheEntry> entries = new ArrayList<>(embeddings.size());
+        embeddings.forEach((hash, vector) -> entries.add(new EmbeddingCacheEntry(hash, encode(vector))));
+        return entries;
+    }
+    
+    static byte[] encode(float[] vector) {
+        ByteBuffer buffer = ByteBuffer.allocate(vector.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asFloatBuffer().put(vector);
+        return buffer.array();
+    }
+    
+    static float[] decode(byte[] bytes) {
+        float[] vector = new float[bytes.length / Float.BYTES];
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(vector);
+        return vector;
+    }
+}
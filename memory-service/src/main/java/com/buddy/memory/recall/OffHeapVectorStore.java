@@ -0,0 +1,72 @@
+package com.buddy.memory.recall;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+// float32 vectors packed back to back in a direct buffer, outside the Java heap, so large indexes
+// add no GC pressure. Grows by doubling. Not thread-safe; HnswIndex guards access.
+public class OffHeapVectorStore {
+    
+    private final int dimensions;
+    private FloatBuffer vectors;
+    private int capacity;
+    private int size;
+    
+    public OffHeapVectorStore(int dimensions, int initialCapacity) {
+        this.dimensions = dimensions;
+        this.capacity = Math.max(1, initialCapacity);
+        this.vectors = allocate(capacity);
+    }
+    
+    public int add(float[] vector) {
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException("Expected " + dimensions + " dimensions, got " + vector.length);
+        }
+        if (size == capacity) {
+            grow();
+        }
+        vectors.put(size * dimensions, vector);
+        return size++;
+    }
+    
+    public float dot(int slot, float[] query) {
+        int base = slot * dimensions;
+        float sum = 0;
+        for (int i = 0; i < dimensions; i++) {
+            sum += vectors.get(base + i) * query[i];
+        }
+        return sum;
+    }
+    
+    public float dot(int a, int b) {
+        int baseA = a * dimensions;
+        int baseB = b * dimensions;
+        float sum = 0;
+        for (int i = 0; i < dimensions; i++) {
+            sum += vectors.get(baseA + i) * vectors.get(baseB + i);
+        }
+        return sum;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public long sizeInBytes() {
+        return (long) capacity * dimensions * Float.BYTES;
+    }
+    
+    private void grow() {
+        FloatBuffer larger = allocate(capacity * 2);
+        larger.put(0, vectors, 0, size * dimensions);
+        vectors = larger;
+        capacity *= 2;
+    }
+    
+    private FloatBuffer allocate(int vectorCapacity) {
+        return ByteBuffer.allocateDirect(vectorCapacity * dimensions * Float.BYTES)
+            .order(ByteOrder.nativeOrder())
+            .asFloatBuffer();
+    }
+}
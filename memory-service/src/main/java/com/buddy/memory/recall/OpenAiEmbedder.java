@@ -0,0 +1,68 @@
+package com.buddy.memory.recall;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.RestClient;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+// OpenAI /embeddings. text-embedding-3 models accept a reduced `dimensions`, which keeps the index compact.
+public class OpenAiEmbedder implements Embedder {
+    
+    // API limit on inputs per request
+    private static final int MAX_BATCH = 2048;
+    
+    private final RestClient restClient;
+    private final String model;
+    private final int dimensions;
+    
+    public OpenAiEmbedder(String baseUrl, String apiKey, String model, int dimensions) {
+        this.restClient = RestClient.builder()
+            .baseUrl(baseUrl)
+            .defaultHeader("Authorization", "Bearer " + apiKey)
+            .build();
+        this.model = model;
+        this.dimensions = dimensions;
+    }
+    
+    @Override
+    public String id() {
+        return model + "-" + dimensions;
+    }
+    
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+    
+    @Override
+    public List<float[]> embed(List<String> texts) {
+        List<float[]> vectors = new ArrayList<>(texts.size());
+        for (int from = 0; from < texts.size(); from += MAX_BATCH) {
+            vectors.addAll(embedBatch(texts.subList(from, Math.min(texts.size(), from + MAX_BATCH))));
+        }
+        return vectors;
+    }
+    
+    private List<float[]> embedBatch(List<String> texts) {
+        JsonNode response = restClient.post()
+            .uri("/embeddings")
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(Map.of("model", model, "input", texts, "dimensions", dimensions))
+            .retrieve()
+            .body(JsonNode.class);
+        
+        float[][] vectors = new float[texts.size()][];
+        for (JsonNode item : response.path("data")) {
+            JsonNode embedding = item.path("embedding");
+            float[] vector = new float[embedding.size()];
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] = (float) embedding.get(i).asDouble();
+            }
+            vectors[item.path("index").asInt()] = VectorMath.normalize(vector);
+        }
+        return Arrays.asList(vectors);
+    }
+}
@@ -0,0 +1,22 @@
+package com.buddy.memory.recall;
+
+import com.buddy.common.memory.Message;
+
+public class RecallHit {
+    private final Message message;
+    private final float score;
+    
+    public RecallHit(Message message, float score) {
+        this.message = message;
+        this.score = score;
+    }
+    
+    public Message getMessage() {
+        return message;
+    }
+    
+    // Cosine similarity to the query, in [-1, 1]
+    public float getScore() {
+        return score;
+    }
+}
@@ -0,0 +1,9 @@
+package com.buddy.memory.recall;
+
+// Raised instead of searching while the session's recall index is still being built
+public class RecallNotReadyException extends RuntimeException {
+    
+    public RecallNotReadyException(String sessionId) {
+        super("Recall index for session " + sessionId + " is not ready");
+    }
+}
@@ -0,0 +1,203 @@
+package com.buddy.memory.recall;
+
+import com.buddy.common.memory.Message;
+import com.buddy.memory.repository.MessageRepository;
+import com.buddy.memory.service.MessagesPersistedEvent;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Embedding-backed recall over a session's past messages. Each session gets its own HNSW index, kept
+// in a cache bounded by the total number of vectors. An evicted or never-loaded session is rebuilt
+// from the database in the background, starting with its first recall; until the index is ready
+// recall throws RecallNotReadyException (503 at the API) rather than embedding the history on the
+// request thread, so callers can tell "try again shortly" from "no matches". Committed messages are
+// embedded on a background thread and added to their session's index if it is loaded or loading.
+@Component
+public class SemanticRecall implements DisposableBean {
+    
+    private static final Logger logger = LoggerFactory.getLogger(SemanticRecall.class);
+    
+    private static final int EMBED_BATCH = 256;
+    
+    private final Embedder embedder;
+    private final MessageRepository messageRepository;
+    private final boolean enabled;
+    private final int m;
+    private final int efConstruction;
+    private final int efSearch;
+    private final int maxMessagesPerSession;
+    
+    private final AsyncCache<String, HnswIndex> indexes;
+    private final ThreadPoolExecutor embeddingExecutor;
+    private final ThreadPoolExecutor buildExecutor;
+    private final Timer recallTimer;
+    private final Timer embedTimer;
+    private final Counter dropped;
+    private final Counter notReady;
+    
+    public SemanticRecall(Embedder embedder,
+                          MessageRepository messageRepository,
+                          MeterRegistry meterRegistry,
+                          @Value("${memory.recall.enabled:true}") boolean enabled,
+                          @Value("${memory.recall.m:16}") int m,
+                          @Value("${memory.recall.efConstruction:100}") int efConstruction,
+                          @Value("${memory.recall.efSearch:64}") int efSearch,
+                          @Value("${memory.recall.maxMessagesPerSession:5000}") int maxMessagesPerSession,
+                          @Value("${memory.recall.maxVectors:200000}") long maxVectors,
+                          @Value("${memory.recall.queueCapacity:10000}") int queueCapacity,
+                          @Value("${memory.recall.buildThreads:2}") int buildThreads) {
+        this.embedder = embedder;
+        this.messageRepository = messageRepository;
+        this.enabled = enabled;
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+        this.maxMessagesPerSession = maxMessagesPerSession;
+        this.indexes = Caffeine.newBuilder()
+            .maximumWeight(maxVectors)
+            .weigher((String sessionId, HnswIndex index) -> Math.max(1, index.size()))
+            .recordStats()
+            .buildAsync();
+        this.embeddingExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            Thread.ofPlatform().name("memory-embedder").daemon(true).factory());
+        // Each session is built at most once at a time (the cache dedups), so the queue holds sessions
+        this.buildExecutor = new ThreadPoolExecutor(buildThreads, buildThreads, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            Thread.ofPlatform().name("memory-recall-build", 0).daemon(true).factory());
+        
+        CaffeineCacheMetrics.monitor(meterRegistry, indexes.synchronous(), "memory.recall");
+        Gauge.builder("memory.recall.queue.size", embeddingExecutor, e -> e.getQueue().size()).register(meterRegistry);
+        this.recallTimer = Timer.builder("memory.recall.latency").publishPercentiles(0.5, 0.99).register(meterRegistry);
+        this.embedTimer = Timer.builder("memory.recall.embed").register(meterRegistry);
+        this.dropped = Counter.builder("memory.recall.dropped")
+            .description("Messages not embedded because the queue was full")
+            .register(meterRegistry);
+        this.notReady = Counter.builder("memory.recall.not.ready")
+            .description("Recalls refused because the session index was still being built")
+            .register(meterRegistry);
+    }
+    
+    @EventListener
+    public void onMessagesPersisted(MessagesPersistedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            embeddingExecutor.execute(() -> index(event.getMessages()));
+        } catch (RejectedExecutionException e) {
+            // The session index is rebuilt from the database once it is evicted, so nothing is lost for good
+            dropped.increment(event.getMessages().size());
+        }
+    }
+    
+    // Top-k messages of the session by similarity to the query, most similar first. Throws
+    // RecallNotReadyException while the session's index is being built.
+    public List<RecallHit> recall(String sessionId, String query, int k) {
+        if (!enabled || k <= 0) {
+            return List.of();
+        }
+        return recallTimer.record(() -> {
+            CompletableFuture<HnswIndex> loading = indexes.get(sessionId, this::startBuild);
+            if (!loading.isDone() || loading.isCompletedExceptionally()) {
+                // A failed build has already been dropped from the cache; the next recall retries it
+                notReady.increment();
+                throw new RecallNotReadyException(sessionId);
+            }
+            HnswIndex index = loading.join();
+            float[] vector = embedder.embed(List.of(query)).get(0);
+            List<HnswIndex.Neighbour> nearest = index.search(vector, k, efSearch);
+            if (nearest.isEmpty()) {
+                return List.of();
+            }
+            
+            Map<Long, Message> messages = messageRepository
+                .findAllById(nearest.stream().map(HnswIndex.Neighbour::getId).toList())
+                .stream()
+                .collect(Collectors.toMap(Message::getId, Function.identity()));
+            List<RecallHit> hits = new ArrayList<>(nearest.size());
+            for (HnswIndex.Neighbour neighbour : nearest) {
+                Message message = messages.get(neighbour.getId());
+                if (message != null) {
+                    hits.add(new RecallHit(message, neighbour.getSimilarity()));
+                }
+            }
+            return hits;
+        });
+    }
+    
+    private void index(List<Message> messages) {
+        try {
+            List<float[]> vectors = embedTimer.record(() -> embedder.embed(messages.stream().map(Message::getContent).toList()));
+            for (int i = 0; i < messages.size(); i++) {
+                Message message = messages.get(i);
+                float[] vector = vectors.get(i);
+                CompletableFuture<HnswIndex> loaded = indexes.getIfPresent(message.getSessionId());
+                if (loaded == null) {
+                    continue;
+                }
+                // Runs after an in-flight rebuild completes; the id check makes the add idempotent
+                loaded.thenAccept(index -> {
+                    if (index.add(message.getId(), vector)) {
+                        // Re-weigh the entry so the vector bound stays accurate
+                        indexes.synchronous().asMap().computeIfPresent(message.getSessionId(),
+                            (id, current) -> current);
+                    }
+                });
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Embedding {} messages failed: {}", messages.size(), e.getMessage());
+        }
+    }
+    
+    private CompletableFuture<HnswIndex> startBuild(String sessionId, Executor cacheExecutor) {
+        try {
+            return CompletableFuture.supplyAsync(() -> buildIndex(sessionId), buildExecutor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+    
+    private HnswIndex buildIndex(String sessionId) {
+        HnswIndex index = new HnswIndex(embedder.dimensions(), m, efConstruction, sessionId.hashCode());
+        List<Message> messages = messageRepository.findRecentBySessionId(sessionId, PageRequest.of(0, maxMessagesPerSession));
+        for (int from = 0; from < messages.size(); from += EMBED_BATCH) {
+            List<Message> batch = messages.subList(from, Math.min(messages.size(), from + EMBED_BATCH));
+            List<float[]> vectors = embedTimer.record(() -> embedder.embed(batch.stream().map(Message::getContent).toList()));
+            for (int i = 0; i < batch.size(); i++) {
+                index.add(batch.get(i).getId(), vectors.get(i));
+            }
+        }
+        logger.debug("Built recall index for session {} with {} messages", sessionId, index.size());
+        return index;
+    }
+    
+    @Override
+    public void destroy() {
+        embeddingExecutor.shutdownNow();
+        buildExecutor.shutdownNow();
+    }
+}
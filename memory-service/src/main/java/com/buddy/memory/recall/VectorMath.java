@@ -0,0 +1,21 @@
+package com.buddy.memory.recall;
+
+final class VectorMath {
+    
+    private VectorMath() {}
+    
+    // Scales in place to unit length so that dot product equals cosine similarity
+    static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        if (norm > 0) {
+            float scale = (float) (1 / Math.sqrt(norm));
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] *= scale;
+            }
+        }
+        return vector;
+    }
+}
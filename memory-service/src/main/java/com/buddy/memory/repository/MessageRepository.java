@@ -1,15 +1,43 @@
 package com.buddy.memory.repository;
 
 import com.buddy.common.memory.Message;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.OffsetDateTime;
 import java.util.List;
 
 @Repository
 public interface MessageRepository extends JpaRepository<Message, Long> {
     
-    @Query("SELECT m FROM Message m WHERE m.sessionId = :sessionId ORDER BY m.createdAt DESC")
-    List<Message> findBySessionIdOrderByCreatedAtDesc(@Param("sessionId") String sessionId);
+    // Newest first; both queries are served by idx_message_session_created (session_id, created_at DESC, id DESC)
+    @Query("SELECT m FROM Message m WHERE m.sessionId = :sessionId ORDER BY m.createdAt DESC, m.id DESC")
+    List<Message> findRecentBySessionId(@Param("sessionId") String sessionId, Pageable pageable);
+    
+    @Query("SELECT m FROM Message m WHERE m.sessionId = :sessionId " +
+           "AND (m.createdAt < :beforeCreatedAt OR (m.createdAt = :beforeCreatedAt AND m.id < :beforeId)) " +
+           "ORDER BY m.createdAt DESC, m.id DESC")
+    List<Message> findRecentBySessionIdBefore(@Param("sessionId") String sessionId,
+                                              @Param("beforeCreatedAt") OffsetDateTime beforeCreatedAt,
+                                              @Param("beforeId") Long beforeId,
+                                              Pageable pageable);
+    
+    // Oldest first, for folding messages into the session summary
+    @Query("SELECT m FROM Message m WHERE m.sessionId = :sessionId ORDER BY m.createdAt ASC, m.id ASC")
+    List<Message> findOldestBySessionId(@Param("sessionId") String sessionId, Pageable pageable);
+    
+    @Query("SELECT m FROM Message m WHERE m.sessionId = :sessionId " +
+           "AND (m.createdAt > :afterCreatedAt OR (m.createdAt = :afterCreatedAt AND m.id > :afterId)) " +
+           "ORDER BY m.createdAt ASC, m.id ASC")
+    List<Message> findOldestBySessionIdAfter(@Param("sessionId") String sessionId,
+                                             @Param("afterCreatedAt") OffsetDateTime afterCreatedAt,
+                                             @Param("afterId") Long afterId,
+                                             Pageable pageable);
+    
+    default List<Message> findBySessionIdOrderByCreatedAtDesc(String sessionId, int limit) {
+        return findRecentBySessionId(sessionId, PageRequest.of(0, limit));
+    }
 }
@@ -0,0 +1,9 @@
+package com.buddy.memory.repository;
+
+import com.buddy.common.memory.SessionSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SessionSummaryRepository extends JpaRepository<SessionSummary, String> {
+}
@@ -1,30 +1,237 @@
 package com.buddy.memory.service;
 
+import com.buddy.memory.cache.SessionContextCache;
 import com.buddy.memory.repository.MessageRepository;
+import com.buddy.memory.summary.SessionSummarizer;
 import com.buddy.common.memory.Message;
+import com.buddy.common.memory.MessageRole;
+import com.buddy.common.memory.SessionSummary;
+import com.buddy.common.memory.TokenCounter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 @Service
 @Transactional
 public class MemoryService {
     
+    private static final int DEFAULT_CONTEXT_LIMIT = 20;
+    
     private final MessageRepository messageRepository;
+    private final SessionContextCache contextCache;
+    private final MessageWriteBehind writeBehind;
+    private final SessionSummarizer sessionSummarizer;
+    private final TokenCounter tokenCounter;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int maxContextLimit;
+    private final int budgetScanLimit;
     
-    public MemoryService(MessageRepository messageRepository) {
+    public MemoryService(MessageRepository messageRepository,
+                         SessionContextCache contextCache,
+                         MessageWriteBehind writeBehind,
+                         SessionSummarizer sessionSummarizer,
+                         TokenCounter tokenCounter,
+                         ApplicationEventPublisher eventPublisher,
+                         @Value("${memory.context.maxLimit:200}") int maxContextLimit,
+                         @Value("${memory.context.budgetScanLimit:50}") int budgetScanLimit) {
         this.messageRepository = messageRepository;
+        this.contextCache = contextCache;
+        this.writeBehind = writeBehind;
+        this.sessionSummarizer = sessionSummarizer;
+        this.tokenCounter = tokenCounter;
+        this.eventPublisher = eventPublisher;
+        this.maxContextLimit = maxContextLimit;
+        this.budgetScanLimit = budgetScanLimit;
     }
     
     public Message saveMessage(Message message) {
-        return messageRepository.save(message);
+        if (message.getCreatedAt() == null) {
+            message.setCreatedAt(OffsetDateTime.now());
+        }
+        countTokens(message);
+        Message saved = messageRepository.save(message);
+        afterCommit(() -> {
+            contextCache.append(saved);
+            eventPublisher.publishEvent(new MessagesPersistedEvent(List.of(saved)));
+            sessionSummarizer.onMessageAdded(saved.getSessionId());
+        });
+        return saved;
+    }
+    
+    // Accepts the message for batched persistence; it is visible to context reads immediately
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void appendMessage(Message message) {
+        countTokens(message);
+        writeBehind.enqueue(message);
+        sessionSummarizer.onMessageAdded(message.getSessionId());
+    }
+    
+    // Persists the message and returns its session context (including it), oldest first, in a single
+    // transaction. See getContext for how limit and tokenBudget combine.
+    public List<Message> saveMessageAndGetContext(Message message, Integer limit, Integer tokenBudget) {
+        Message saved = saveMessage(message);
+        int candidates = candidateLimit(limit, tokenBudget);
+        List<Message> context = getRecentMessages(saved.getSessionId(), candidates);
+        
+        // A cache hit does not see the row until afterCommit writes it through
+        if (context.stream().noneMatch(m -> saved.getId().equals(m.getId()))) {
+            List<Message> withSaved = new ArrayList<>(context);
+            withSaved.add(saved);
+            int clamped = clampLimit(candidates);
+            context = withSaved.size() > clamped
+                ? withSaved.subList(withSaved.size() - clamped, withSaved.size())
+                : withSaved;
+        }
+        return withSummary(saved.getSessionId(), context, tokenBudget);
+    }
+    
+    // Page of session messages before the cursor, oldest first. With a tokenBudget, the newest messages
+    // whose combined token counts fit the budget are picked out of the last `limit` (budgetScanLimit when
+    // unset); without one, simply the last `limit` (DEFAULT_CONTEXT_LIMIT when unset). The latest page
+    // (null cursor) starts with the session summary, if there is one, in place of the messages it covers.
+    @Transactional(readOnly = true)
+    public List<Message> getContext(String sessionId, OffsetDateTime beforeCreatedAt, Long beforeId,
+                                    Integer limit, Integer tokenBudget) {
+        List<Message> page = getMessagesBefore(sessionId, beforeCreatedAt, beforeId, candidateLimit(limit, tokenBudget));
+        if (beforeCreatedAt == null || beforeId == null) {
+            return withSummary(sessionId, page, tokenBudget);
+        }
+        return tokenBudget == null ? page : fitTokenBudget(page, tokenBudget);
     }
     
+    @Transactional(readOnly = true)
     public List<Message> getRecentMessages(String sessionId, int limit) {
-        List<Message> allMessages = messageRepository.findBySessionIdOrderByCreatedAtDesc(sessionId);
-        if (limit > 0 && limit < allMessages.size()) {
-            return allMessages.subList(0, limit);
+        return getMessagesBefore(sessionId, null, null, limit);
+    }
+    
+    // Keyset page of up to `limit` messages strictly older than the (beforeCreatedAt, beforeId) cursor,
+    // returned oldest first. A null cursor means "latest page".
+    @Transactional(readOnly = true)
+    public List<Message> getMessagesBefore(String sessionId, OffsetDateTime beforeCreatedAt, Long beforeId, int limit) {
+        int clamped = clampLimit(limit);
+        boolean latestPage = beforeCreatedAt == null || beforeId == null;
+        
+        if (!latestPage) {
+            return loadPage(sessionId, beforeCreatedAt, beforeId, clamped);
+        }
+        
+        // Snapshot pending writes before reading, so a batch committing in between is seen in one of the two
+        List<Message> pending = writeBehind.pendingFor(sessionId);
+        List<Message> latest = contextCache.canServe(clamped)
+            ? contextCache.getRecent(sessionId, clamped, id -> loadPage(id, null, null, contextCache.getCapacity()))
+            : loadPage(sessionId, null, null, clamped);
+        return pending.isEmpty() ? latest : mergePending(latest, pending, clamped);
+    }
+    
+    // The summary's tokens come out of the budget first; the tail keeps only messages it does not cover
+    private List<Message> withSummary(String sessionId, List<Message> recent, Integer tokenBudget) {
+        Optional<SessionSummary> current = sessionSummarizer.current(sessionId);
+        if (current.isEmpty() || current.get().getContent().isEmpty()) {
+            return tokenBudget == null ? recent : fitTokenBudget(recent, tokenBudget);
+        }
+        
+        SessionSummary summary = current.get();
+        List<Message> tail = recent.stream().filter(m -> !summary.covers(m)).toList();
+        if (tokenBudget != null) {
+            tail = fitTokenBudget(tail, Math.max(0, tokenBudget - summary.getTokenCount()));
+        }
+        
+        Message entry = new Message(sessionId, MessageRole.SUMMARY, summary.getContent());
+        entry.setCreatedAt(summary.getCoveredUntilCreatedAt());
+        entry.setTokenCount(summary.getTokenCount());
+        List<Message> context = new ArrayList<>(tail.size() + 1);
+        context.add(entry);
+        context.addAll(tail);
+        return context;
+    }
+    
+    // Walks back from the newest message; the newest one is always kept, even if it alone is over budget
+    private List<Message> fitTokenBudget(List<Message> chronological, int tokenBudget) {
+        int used = 0;
+        int from = chronological.size();
+        while (from > 0) {
+            int cost = countTokens(chronological.get(from - 1));
+            if (used + cost > tokenBudget && from < chronological.size()) {
+                break;
+            }
+            used += cost;
+            from--;
+        }
+        return chronological.subList(from, chronological.size());
+    }
+    
+    // Rows written before token counts existed are counted on first read; the cached instance keeps it
+    private int countTokens(Message message) {
+        Integer count = message.getTokenCount();
+        if (count == null) {
+            count = tokenCounter.countMessageTokens(message.getContent());
+            message.setTokenCount(count);
+        }
+        return count;
+    }
+    
+    private int candidateLimit(Integer limit, Integer tokenBudget) {
+        if (limit != null) {
+            return limit;
+        }
+        return tokenBudget != null ? budgetScanLimit : DEFAULT_CONTEXT_LIMIT;
+    }
+    
+    private static List<Message> mergePending(List<Message> latest, List<Message> pending, int limit) {
+        Set<Long> ids = new HashSet<>();
+        latest.forEach(m -> ids.add(m.getId()));
+        
+        List<Message> merged = new ArrayList<>(latest);
+        pending.stream()
+            .filter(m -> m.getId() == null || !ids.contains(m.getId()))
+            .forEach(merged::add);
+        merged.sort(Comparator.comparing(Message::getCreatedAt)
+            .thenComparing(Message::getId, Comparator.nullsLast(Comparator.naturalOrder())));
+        return merged.size() > limit ? merged.subList(merged.size() - limit, merged.size()) : merged;
+    }
+    
+    private List<Message> loadPage(String sessionId, OffsetDateTime beforeCreatedAt, Long beforeId, int limit) {
+        PageRequest page = PageRequest.of(0, limit);
+        List<Message> newestFirst = (beforeCreatedAt == null || beforeId == null)
+            ? messageRepository.findRecentBySessionId(sessionId, page)
+            : messageRepository.findRecentBySessionIdBefore(sessionId, beforeCreatedAt, beforeId, page);
+        
+        List<Message> chronological = new ArrayList<>(newestFirst);
+        Collections.reverse(chronological);
+        return chronological;
+    }
+    
+    private int clampLimit(int limit) {
+        if (limit <= 0 || limit > maxContextLimit) {
+            return maxContextLimit;
+        }
+        return limit;
+    }
+    
+    // The cache must never expose a row whose transaction later rolls back
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
         }
-        return allMessages;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 }
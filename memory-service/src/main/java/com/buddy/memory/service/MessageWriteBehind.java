@@ -0,0 +1,319 @@
+package com.buddy.memory.service;
+
+import com.buddy.memory.cache.SessionContextCache;
+import com.buddy.memory.repository.MessageRepository;
+import com.buddy.common.memory.Message;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+// Coalesces appends into batched inserts on a single writer thread. Messages stay visible through
+// pendingFor() until their batch has committed and been written through to the session cache.
+// A failed batch is retried with backoff and then inserted row by row; rows that still fail are
+// parked as dead letters, kept pending and retried periodically. A row the database rejects for good
+// (integrity violation) is dropped with a counter instead, and so is the oldest dead letter once
+// maxDeadLetters are parked; both are logged with their content.
+@Component
+public class MessageWriteBehind implements SmartLifecycle {
+    
+    private static final Logger logger = LoggerFactory.getLogger(MessageWriteBehind.class);
+    
+    private final MessageRepository messageRepository;
+    private final SessionContextCache contextCache;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+    private final int batchSize;
+    private final Duration maxDelay;
+    private final Duration offerTimeout;
+    private final int maxRetries;
+    private final Duration retryBackoff;
+    private final Duration deadLetterRetryInterval;
+    private final int maxDeadLetters;
+    
+    private final BlockingQueue<Message> queue;
+    private final Map<String, Queue<Message>> pending = new ConcurrentHashMap<>();
+    private final Queue<Message> deadLetters = new ConcurrentLinkedQueue<>();
+    private final Counter callerRuns;
+    private final Counter batchRetries;
+    private final Counter deadLettered;
+    private final Counter rejected;
+    private final Counter deadLetterOverflow;
+    private final DistributionSummary batchSizes;
+    
+    private volatile boolean running;
+    private Thread writer;
+    
+    public MessageWriteBehind(MessageRepository messageRepository,
+                              SessionContextCache contextCache,
+                              TransactionTemplate transactionTemplate,
+                              ApplicationEventPublisher eventPublisher,
+                              MeterRegistry meterRegistry,
+                              @Value("${memory.writeBehind.enabled:true}") boolean enabled,
+                              @Value("${memory.writeBehind.queueCapacity:10000}") int queueCapacity,
+                              @Value("${memory.writeBehind.batchSize:100}") int batchSize,
+                              @Value("${memory.writeBehind.maxDelay:PT0.05S}") Duration maxDelay,
+                              @Value("${memory.writeBehind.offerTimeout:PT0.1S}") Duration offerTimeout,
+                              @Value("${memory.writeBehind.maxRetries:3}") int maxRetries,
+                              @Value("${memory.writeBehind.retryBackoff:PT0.1S}") Duration retryBackoff,
+                              @Value("${memory.writeBehind.deadLetterRetryInterval:PT30S}") Duration deadLetterRetryInterval,
+                              @Value("${memory.writeBehind.maxDeadLetters:10000}") int maxDeadLetters) {
+        this.messageRepository = messageRepository;
+        this.contextCache = contextCache;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.maxDelay = maxDelay;
+        this.offerTimeout = offerTimeout;
+        this.maxRetries = maxRetries;
+        this.retryBackoff = retryBackoff;
+        this.deadLetterRetryInterval = deadLetterRetryInterval;
+        this.maxDeadLetters = maxDeadLetters;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        
+        Gauge.builder("memory.writebehind.queue.size", queue, BlockingQueue::size).register(meterRegistry);
+        this.callerRuns = Counter.builder("memory.writebehind.caller.runs")
+            .description("Appends persisted synchronously because the queue was full")
+            .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("memory.writebehind.batch.size").register(meterRegistry);
+        this.batchRetries = Counter.builder("memory.writebehind.retries")
+            .description("Failed batch inserts that were retried")
+            .register(meterRegistry);
+        this.deadLettered = Counter.builder("memory.writebehind.deadlettered")
+            .description("Messages parked after their row insert failed")
+            .register(meterRegistry);
+        this.rejected = Counter.builder("memory.writebehind.rejected")
+            .description("Messages dropped because the database rejects them for good")
+            .register(meterRegistry);
+        this.deadLetterOverflow = Counter.builder("memory.writebehind.deadletter.overflow")
+            .description("Dead letters dropped to stay within maxDeadLetters")
+            .register(meterRegistry);
+        Gauge.builder("memory.writebehind.deadletter.size", deadLetters, Queue::size).register(meterRegistry);
+    }
+    
+    public void enqueue(Message message) {
+        if (message.getCreatedAt() == null) {
+            message.setCreatedAt(OffsetDateTime.now());
+        }
+        if (!enabled || !running) {
+            persistOrRelease(List.of(message));
+            return;
+        }
+        
+        pending.computeIfAbsent(message.getSessionId(), id -> new ConcurrentLinkedQueue<>()).add(message);
+        boolean accepted;
+        try {
+            accepted = queue.offer(message, offerTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            accepted = false;
+        }
+        if (!accepted) {
+            // Back-pressure: the caller pays for its own insert instead of growing the queue
+            callerRuns.increment();
+            persistOrRelease(List.of(message));
+        }
+    }
+    
+    // Messages accepted for the session that may not be readable from the cache or database yet
+    public List<Message> pendingFor(String sessionId) {
+        Queue<Message> messages = pending.get(sessionId);
+        return messages == null ? List.of() : new ArrayList<>(messages);
+    }
+    
+    private void drainLoop() {
+        List<Message> batch = new ArrayList<>(batchSize);
+        long nextDeadLetterRetry = System.nanoTime() + deadLetterRetryInterval.toNanos();
+        while (running || !queue.isEmpty()) {
+            try {
+                if (System.nanoTime() - nextDeadLetterRetry >= 0) {
+                    retryDeadLetters();
+                    nextDeadLetterRetry = System.nanoTime() + deadLetterRetryInterval.toNanos();
+                }
+                Message first = queue.poll(maxDelay.toMillis(), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Write-behind flush failed for {} messages", batch.size(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+    
+    // Batch insert with retries, then row by row so one bad row cannot sink the others
+    private void flush(List<Message> batch) throws InterruptedException {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                persist(batch);
+                return;
+            } catch (RuntimeException e) {
+                // Retrying the same rows cannot fix a constraint violation; find the bad ones instead
+                if (attempt >= maxRetries || e instanceof DataIntegrityViolationException) {
+                    logger.warn("Batch insert of {} messages failed {} times, inserting row by row",
+                        batch.size(), attempt + 1, e);
+                    break;
+                }
+                batchRetries.increment();
+                try {
+                    Thread.sleep(retryBackoff.multipliedBy(1L << Math.min(attempt, 10)).toMillis());
+                } catch (InterruptedException interrupted) {
+                    batch.forEach(this::park);
+                    throw interrupted;
+                }
+            }
+        }
+        for (Message message : batch) {
+            try {
+                persist(List.of(message));
+            } catch (DataIntegrityViolationException e) {
+                reject(message, e);
+            } catch (RuntimeException e) {
+                logger.error("Insert failed for message in session {}, parking it for retry",
+                    message.getSessionId(), e);
+                park(message);
+            }
+        }
+    }
+    
+    private void park(Message message) {
+        deadLettered.increment();
+        deadLetters.add(message);
+        while (deadLetters.size() > maxDeadLetters) {
+            Message oldest = deadLetters.poll();
+            if (oldest == null) {
+                break;
+            }
+            deadLetterOverflow.increment();
+            discard(oldest, "dead letters are full");
+        }
+    }
+    
+    private void reject(Message message, DataIntegrityViolationException e) {
+        rejected.increment();
+        logger.error("Database rejected message for session {}: {}", message.getSessionId(), e.getMessage());
+        discard(message, "the database rejected it");
+    }
+    
+    // The log is the only place the message still exists afterwards
+    private void discard(Message message, String reason) {
+        removePending(message);
+        logger.error("Dropped message for session {} because {} ({} at {}): {}", message.getSessionId(), reason,
+            message.getRole(), message.getCreatedAt(), message.getContent());
+    }
+    
+    private void retryDeadLetters() {
+        for (int i = deadLetters.size(); i > 0; i--) {
+            Message message = deadLetters.poll();
+            if (message == null) {
+                return;
+            }
+            try {
+                persist(List.of(message));
+            } catch (DataIntegrityViolationException e) {
+                reject(message, e);
+            } catch (RuntimeException e) {
+                deadLetters.add(message);
+            }
+        }
+    }
+    
+    // Synchronous path: the caller gets the failure, so the message is not left pending
+    private void persistOrRelease(List<Message> batch) {
+        try {
+            persist(batch);
+        } catch (RuntimeException e) {
+            batch.forEach(this::removePending);
+            throw e;
+        }
+    }
+    
+    // Messages stay pending unless the insert committed
+    private void persist(List<Message> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> messageRepository.saveAll(batch));
+        } catch (RuntimeException e) {
+            // The transaction rolled back; ids drawn from the sequence were never written
+            batch.forEach(message -> message.setId(null));
+            throw e;
+        }
+        try {
+            batchSizes.record(batch.size());
+            batch.forEach(contextCache::append);
+            eventPublisher.publishEvent(new MessagesPersistedEvent(List.copyOf(batch)));
+        } catch (RuntimeException e) {
+            // Committed already: retrying would insert duplicates
+            logger.warn("Post-commit handling failed for {} messages", batch.size(), e);
+        } finally {
+            batch.forEach(this::removePending);
+        }
+    }
+    
+    private void removePending(Message message) {
+        pending.computeIfPresent(message.getSessionId(), (id, messages) -> {
+            messages.remove(message);
+            return messages.isEmpty() ? null : messages;
+        });
+    }
+    
+    @Override
+    public void start() {
+        running = true;
+        writer = Thread.ofPlatform().name("memory-write-behind").daemon(true).start(this::drainLoop);
+    }
+    
+    // Flush-on-shutdown: the writer keeps draining until the queue is empty
+    @Override
+    public void stop() {
+        running = false;
+        if (writer != null) {
+            try {
+                writer.join(Duration.ofSeconds(30).toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (!queue.isEmpty()) {
+                logger.warn("Write-behind stopped with {} unflushed messages", queue.size());
+            }
+        }
+        retryDeadLetters();
+        // Last resort: the log is the only place these messages still exist
+        for (Message message : deadLetters) {
+            logger.error("Write-behind stopped without persisting message for session {} ({} at {}): {}",
+                message.getSessionId(), message.getRole(), message.getCreatedAt(), message.getContent());
+        }
+    }
+    
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
@@ -0,0 +1,17 @@
+package com.buddy.memory.service;
+
+import com.buddy.common.memory.Message;
+import java.util.List;
+
+// Published after the transaction that inserted the messages has committed
+public class MessagesPersistedEvent {
+    private final List<Message> messages;
+    
+    public MessagesPersistedEvent(List<Message> messages) {
+        this.messages = messages;
+    }
+    
+    public List<Message> getMessages() {
+        return messages;
+    }
+}
@@ -0,0 +1,66 @@
+package com.buddy.memory.summary;
+
+import com.buddy.common.memory.Message;
+import com.buddy.common.memory.MessageRole;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+// Local summarizer that needs no model: keeps the first sentence of each message as one line and
+// drops the oldest lines once the summary exceeds maxChars. Tool output is left out: it is untrusted
+// text, and a summary line would carry it out of the delimiters it is replayed in.
+public class ExtractiveSummarizer implements Summarizer {
+    
+    private static final int MAX_LINE_CHARS = 160;
+    
+    private final int maxChars;
+    
+    public ExtractiveSummarizer(int maxChars) {
+        this.maxChars = maxChars;
+    }
+    
+    @Override
+    public String summarize(String previousSummary, List<Message> messages) {
+        Deque<String> lines = new ArrayDeque<>();
+        int length = 0;
+        if (previousSummary != null && !previousSummary.isEmpty()) {
+            for (String line : previousSummary.split("\n")) {
+                lines.addLast(line);
+                length += line.length() + 1;
+            }
+        }
+        for (Message message : messages) {
+            if (message.getRole() != MessageRole.USER && message.getRole() != MessageRole.ASSISTANT) {
+                continue;
+            }
+            String line = toLine(message);
+            lines.addLast(line);
+            length += line.length() + 1;
+        }
+        while (length > maxChars && lines.size() > 1) {
+            length -= lines.removeFirst().length() + 1;
+        }
+        return String.join("\n", lines);
+    }
+    
+    private static String toLine(Message message) {
+        String content = message.getContent().strip().replace('\n', ' ');
+        int end = firstSentenceEnd(content);
+        if (end > MAX_LINE_CHARS) {
+            content = content.substring(0, MAX_LINE_CHARS - 3) + "...";
+        } else {
+            content = content.substring(0, end);
+        }
+        return (message.getRole() == MessageRole.USER ? "User: " : "Assistant: ") + content;
+    }
+    
+    private static int firstSentenceEnd(String content) {
+        for (int i = 0; i < content.length() - 1; i++) {
+            char c = content.charAt(i);
+            if ((c == '.' || c == '?' || c == '!') && content.charAt(i + 1) == ' ') {
+                return i + 1;
+            }
+        }
+        return content.length();
+    }
+}
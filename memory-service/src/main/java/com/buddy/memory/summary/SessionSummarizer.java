@@ -0,0 +1,169 @@
+package com.buddy.memory.summary;
+
+import com.buddy.common.memory.Message;
+import com.buddy.common.memory.SessionSummary;
+import com.buddy.common.memory.TokenCounter;
+import com.buddy.memory.repository.MessageRepository;
+import com.buddy.memory.repository.SessionSummaryRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Background folding of older messages into each session's rolling summary. New messages mark the
+// session dirty; after a short delay the messages that have fallen behind the newest tailSize are
+// folded in batches of foldBatchSize, so each message is summarized exactly once.
+@Component
+public class SessionSummarizer implements SmartLifecycle {
+    
+    private static final Logger logger = LoggerFactory.getLogger(SessionSummarizer.class);
+    
+    private final MessageRepository messageRepository;
+    private final SessionSummaryRepository summaryRepository;
+    private final Summarizer summarizer;
+    private final TokenCounter tokenCounter;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int tailSize;
+    private final int foldBatchSize;
+    private final Duration delay;
+    
+    private final Cache<String, Optional<SessionSummary>> summaries;
+    private final Set<String> scheduled = ConcurrentHashMap.newKeySet();
+    private final Counter foldedMessages;
+    private final Timer foldTimer;
+    
+    private volatile boolean running;
+    private ScheduledExecutorService executor;
+    
+    public SessionSummarizer(MessageRepository messageRepository,
+                             SessionSummaryRepository summaryRepository,
+                             Summarizer summarizer,
+                             TokenCounter tokenCounter,
+                             TransactionTemplate transactionTemplate,
+                             MeterRegistry meterRegistry,
+                             @Value("${memory.summary.enabled:true}") boolean enabled,
+                             @Value("${memory.summary.tailSize:20}") int tailSize,
+                             @Value("${memory.summary.foldBatchSize:20}") int foldBatchSize,
+                             @Value("${memory.summary.delay:PT2S}") Duration delay,
+                             @Value("${memory.cache.maxSessions:10000}") long maxSessions) {
+        this.messageRepository = messageRepository;
+        this.summaryRepository = summaryRepository;
+        this.summarizer = summarizer;
+        this.tokenCounter = tokenCounter;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.tailSize = tailSize;
+        this.foldBatchSize = foldBatchSize;
+        this.delay = delay;
+        this.summaries = Caffeine.newBuilder()
+            .maximumSize(maxSessions)
+            .expireAfterAccess(Duration.ofMinutes(30))
+            .build();
+        
+        this.foldedMessages = Counter.builder("memory.summary.folded.messages").register(meterRegistry);
+        this.foldTimer = Timer.builder("memory.summary.fold").register(meterRegistry);
+    }
+    
+    // Cheap to call on every message: at most one fold is scheduled per session at a time
+    public void onMessageAdded(String sessionId) {
+        if (!enabled || !running) {
+            return;
+        }
+        if (scheduled.add(sessionId)) {
+            executor.schedule(() -> {
+                scheduled.remove(sessionId);
+                fold(sessionId);
+            }, delay.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    public Optional<SessionSummary> current(String sessionId) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        return summaries.get(sessionId, summaryRepository::findById);
+    }
+    
+    public void fold(String sessionId) {
+        try {
+            foldTimer.record(() -> {
+                while (foldOnce(sessionId)) {
+                    // another full batch fell out of the tail
+                }
+            });
+        } catch (OptimisticLockingFailureException e) {
+            // Another instance folded the same messages; reload its result next time
+            summaries.invalidate(sessionId);
+        } catch (RuntimeException e) {
+            logger.error("Summarizing session {} failed", sessionId, e);
+        }
+    }
+    
+    // Folds the oldest unsummarized messages that are not in the recent tail; true if a full page was seen
+    private boolean foldOnce(String sessionId) {
+        SessionSummary summary = summaryRepository.findById(sessionId).orElseGet(() -> new SessionSummary(sessionId));
+        PageRequest page = PageRequest.of(0, foldBatchSize + tailSize);
+        List<Message> unsummarized = summary.getCoveredUntilId() == null
+            ? messageRepository.findOldestBySessionId(sessionId, page)
+            : messageRepository.findOldestBySessionIdAfter(
+                sessionId, summary.getCoveredUntilCreatedAt(), summary.getCoveredUntilId(), page);
+        
+        int foldable = unsummarized.size() - tailSize;
+        if (foldable <= 0) {
+            return false;
+        }
+        List<Message> batch = unsummarized.subList(0, foldable);
+        Message last = batch.get(batch.size() - 1);
+        
+        summary.setContent(summarizer.summarize(summary.getContent(), batch));
+        summary.setCoveredUntilCreatedAt(last.getCreatedAt());
+        summary.setCoveredUntilId(last.getId());
+        summary.setMessageCount(summary.getMessageCount() + foldable);
+        summary.setTokenCount(tokenCounter.countMessageTokens(summary.getContent()));
+        summary.setUpdatedAt(OffsetDateTime.now());
+        
+        SessionSummary saved = transactionTemplate.execute(status -> summaryRepository.save(summary));
+        summaries.put(sessionId, Optional.ofNullable(saved));
+        foldedMessages.increment(foldable);
+        logger.debug("Folded {} messages into the summary of session {}", foldable, sessionId);
+        return unsummarized.size() == page.getPageSize();
+    }
+    
+    @Override
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("memory-summarizer").daemon(true).factory());
+        running = true;
+    }
+    
+    @Override
+    public void stop() {
+        running = false;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+    
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
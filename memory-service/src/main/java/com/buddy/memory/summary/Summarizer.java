@@ -0,0 +1,11 @@
+package com.buddy.memory.summary;
+
+import com.buddy.common.memory.Message;
+import java.util.List;
+
+public interface Summarizer {
+    
+    // Folds messages (oldest first, all newer than anything already summarized) into the previous
+    // summary, which is empty for a new session. Must not need the rest of the history.
+    String summarize(String previousSummary, List<Message> messages);
+}
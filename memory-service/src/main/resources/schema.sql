@@ -1,10 +1,35 @@
+-- Hibernate hands out ids in blocks of 50 (pooled optimizer); must match allocationSize on Message
+CREATE SEQUENCE message_seq START WITH 1 INCREMENT BY 50;
+
 CREATE TABLE message (
-  id BIGSERIAL PRIMARY KEY,
+  id BIGINT PRIMARY KEY,
   session_id TEXT NOT NULL,
   role TEXT CHECK (role in ('USER','ASSISTANT','TOOL')),
   content TEXT NOT NULL,
-  created_at TIMESTAMPTZ DEFAULT now()
+  created_at TIMESTAMPTZ DEFAULT now(),
+  token_count INTEGER,
+  truncated BOOLEAN NOT NULL DEFAULT FALSE
 );
 
-CREATE INDEX idx_message_session_id ON message(session_id);
+-- Serves "latest N for a session" and keyset paging without a sort step
+CREATE INDEX idx_message_session_created ON message(session_id, created_at DESC, id DESC);
 CREATE INDEX idx_message_created_at ON message(created_at);
+
+-- One rolling summary per session; messages up to the covered_until cursor are folded into content
+CREATE TABLE session_summary (
+  session_id TEXT PRIMARY KEY,
+  content TEXT NOT NULL,
+  covered_until_created_at TIMESTAMPTZ,
+  covered_until_id BIGINT,
+  message_count INTEGER NOT NULL DEFAULT 0,
+  token_count INTEGER NOT NULL DEFAULT 0,
+  updated_at TIMESTAMPTZ DEFAULT now(),
+  version BIGINT
+);
+
+-- Embeddings keyed by SHA-256 of (embedder id, text); vector is float32 little-endian
+CREATE TABLE embedding_cache (
+  content_hash TEXT PRIMARY KEY,
+  vector BYTEA NOT NULL,
+  created_at TIMESTAMPTZ DEFAULT now()
+);
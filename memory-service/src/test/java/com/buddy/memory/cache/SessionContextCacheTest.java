@@ -0,0 +1,80 @@
+package com.buddy.memory.cache;
+
+import com.buddy.common.memory.Message;
+import com.buddy.common.memory.MessageRole;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class SessionContextCacheTest {
+    
+    private SessionContextCache cache;
+    private AtomicInteger loads;
+    
+    @BeforeEach
+    void setUp() {
+        cache = new SessionContextCache(true, 100, 3, Duration.ofMinutes(5), new SimpleMeterRegistry());
+        loads = new AtomicInteger();
+    }
+    
+    @Test
+    void testSecondReadIsServedFromCache() {
+        List<Message> first = cache.getRecent("s1", 2, id -> load(message(1, "a"), message(2, "b")));
+        List<Message> second = cache.getRecent("s1", 2, id -> load());
+        
+        assertEquals(1, loads.get());
+        assertEquals(first.size(), second.size());
+        assertEquals("a", second.get(0).getContent());
+        assertEquals("b", second.get(1).getContent());
+    }
+    
+    @Test
+    void testAppendIsWrittenThroughAndOldestDropped() {
+        cache.getRecent("s1", 3, id -> load(message(1, "a"), message(2, "b"), message(3, "c")));
+        cache.append(message(4, "d"));
+        
+        List<Message> recent = cache.getRecent("s1", 3, id -> load());
+        
+        assertEquals(1, loads.get());
+        assertEquals(List.of("b", "c", "d"), recent.stream().map(Message::getContent).toList());
+    }
+    
+    @Test
+    void testAppendAlreadyLoadedMessageIsIgnored() {
+        cache.getRecent("s1", 3, id -> load(message(1, "a"), message(2, "b")));
+        cache.append(message(2, "b"));
+        
+        assertEquals(2, cache.getRecent("s1", 3, id -> load()).size());
+    }
+    
+    @Test
+    void testAppendToUncachedSessionDoesNotPopulate() {
+        cache.append(message(1, "a"));
+        cache.getRecent("s1", 2, id -> load(message(1, "a")));
+        
+        assertEquals(1, loads.get());
+    }
+    
+    @Test
+    void testLimitsAboveCapacityBypassCache() {
+        assertTrue(cache.canServe(3));
+        assertFalse(cache.canServe(4));
+    }
+    
+    private List<Message> load(Message... messages) {
+        loads.incrementAndGet();
+        return new ArrayList<>(List.of(messages));
+    }
+    
+    private static Message message(long id, String content) {
+        Message message = new Message("s1", MessageRole.USER, content);
+        message.setId(id);
+        return message;
+    }
+}
@@ -0,0 +1,146 @@
+package com.buddy.memory.recall;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+class CachingEmbedderTest {
+    
+    private final List<String> remoteCalls = new ArrayList<>();
+    private final Map<String, float[]> persisted = new ConcurrentHashMap<>();
+    private SimpleMeterRegistry meterRegistry;
+    private CountingEmbedder remote;
+    
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        remote = new CountingEmbedder();
+    }
+    
+    @Test
+    void testRepeatedTextsReachTheDelegateOnce() {
+        CachingEmbedder embedder = new CachingEmbedder(remote, new MapStore(), 100, meterRegistry);
+        
+        List<float[]> first = embedder.embed(List.of("hello", "world", "hello"));
+        List<float[]> second = embedder.embed(List.of("world"));
+        
+        assertEquals(List.of("hello", "world"), remoteCalls);
+        assertArrayEquals(first.get(0), first.get(2));
+        assertArrayEquals(first.get(1), second.get(0));
+        assertEquals(1.0, lookups("memory"));
+        assertEquals(2.0, lookups("remote"));
+    }
+    
+    @Test
+    void testPersistentTierSurvivesAnEmptyMemoryTier() {
+        new CachingEmbedder(remote, new MapStore(), 100, meterRegistry).embed(List.of("hello"));
+        CachingEmbedder restarted = new CachingEmbedder(remote, new MapStore(), 100, meterRegistry);
+        
+        restarted.embed(List.of("hello"));
+        
+        assertEquals(List.of("hello"), remoteCalls);
+        assertEquals(1.0, lookups("store"));
+    }
+    
+    @Test
+    void testConcurrentIdenticalRequestsAreCoalesced() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        remote.onCall = () -> {
+            started.countDown();
+            await(release);
+        };
+        CachingEmbedder embedder = new CachingEmbedder(remote, new MapStore(), 100, meterRegistry);
+        
+        CompletableFuture<List<float[]>> first = CompletableFuture.supplyAsync(() -> embedder.embed(List.of("slow")));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<List<float[]>> second = CompletableFuture.supplyAsync(() -> embedder.embed(List.of("slow")));
+        while (lookups("coalesced") < 1) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+        
+        assertArrayEquals(first.get(5, TimeUnit.SECONDS).get(0), second.get(5, TimeUnit.SECONDS).get(0));
+        assertEquals(List.of("slow"), remoteCalls);
+    }
+    
+    @Test
+    void testFailureReachesCallersAndIsNotCached() {
+        remote.onCall = () -> {
+            throw new IllegalStateException("rate limited");
+        };
+        CachingEmbedder embedder = new CachingEmbedder(remote, new MapStore(), 100, meterRegistry);
+        
+        assertThrows(IllegalStateException.class, () -> embedder.embed(List.of("hello")));
+        remote.onCall = () -> {};
+        embedder.embed(List.of("hello"));
+        
+        assertEquals(List.of("hello", "hello"), remoteCalls);
+    }
+    
+    private double lookups(String result) {
+        return meterRegistry.counter("memory.embeddings.lookups", "result", result).count();
+    }
+    
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private class CountingEmbedder implements Embedder {
+        volatile Runnable onCall = () -> {};
+        private final HashingEmbedder hashing = new HashingEmbedder(16);
+        
+        @Override
+        public String id() {
+            return "counting-16";
+        }
+        
+        @Override
+        public int dimensions() {
+            return 16;
+        }
+        
+        @Override
+        public List<float[]> embed(List<String> texts) {
+            synchronized (remoteCalls) {
+                remoteCalls.addAll(texts);
+            }
+            onCall.run();
+            return hashing.embed(texts);
+        }
+    }
+    
+    // Shares `persisted` across instances, like a database would
+    private class MapStore implements EmbeddingStore {
+        @Override
+        public Map<String, float[]> getAll(Collection<String> contentHashes) {
+            Map<String, float[]> found = new HashMap<>();
+            contentHashes.forEach(hash -> {
+                if (persisted.containsKey(hash)) {
+                    found.put(hash, persisted.get(hash));
+                }
+            });
+            return found;
+        }
+        
+        @Override
+        public void putAll(Map<String, float[]> embeddings) {
+            persisted.putAll(embeddings);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.buddy.memory.recall;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+class HnswIndexTest {
+    
+    private static final int DIMENSIONS = 32;
+    
+    @Test
+    void testEmptyIndexReturnsNothing() {
+        HnswIndex index = new HnswIndex(DIMENSIONS, 8, 50, 1);
+        
+        assertTrue(index.search(randomVector(new Random(1)), 5, 20).isEmpty());
+    }
+    
+    @Test
+    void testDuplicateIdsAreIgnored() {
+        HnswIndex index = new HnswIndex(DIMENSIONS, 8, 50, 1);
+        float[] vector = randomVector(new Random(1));
+        
+        assertTrue(index.add(7, vector));
+        assertFalse(index.add(7, vector));
+        assertEquals(1, index.size());
+        assertEquals(7, index.search(vector, 1, 10).get(0).getId());
+    }
+    
+    @Test
+    void testRecallAgainstExactSearch() {
+        Random random = new Random(42);
+        float[][] vectors = new float[2000][];
+        HnswIndex index = new HnswIndex(DIMENSIONS, 16, 100, 42);
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i] = VectorMath.normalize(randomVector(random));
+            index.add(i, vectors[i]);
+        }
+        
+        int k = 10;
+        int found = 0;
+        for (int q = 0; q < 50; q++) {
+            float[] query = VectorMath.normalize(randomVector(random));
+            Set<Long> exact = new HashSet<>(IntStream.range(0, vectors.length).boxed()
+                .sorted(Comparator.comparingDouble((Integer i) -> dot(vectors[i], query)).reversed())
+                .limit(k)
+                .map(Integer::longValue)
+                .toList());
+            List<HnswIndex.Neighbour> approximate = index.search(query, k, 64);
+            found += (int) approximate.stream().filter(n -> exact.contains(n.getId())).count();
+        }
+        
+        double recall = found / (50.0 * k);
+        assertTrue(recall >= 0.9, "recall@10 was " + recall);
+    }
+    
+    private static float[] randomVector(Random random) {
+        float[] vector = new float[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+    
+    private static double dot(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,62 @@
+package com.buddy.memory.recall;
+
+import com.buddy.memory.repository.EmbeddingCacheRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Runs outside the test transaction so each putAll commits (or rolls back) on its own
+@DataJpaTest
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class JpaEmbeddingStoreTest {
+    
+    @Autowired
+    private EmbeddingCacheRepository repository;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    private JpaEmbeddingStore store;
+    
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+        store = new JpaEmbeddingStore(repository, new TransactionTemplate(transactionManager));
+    }
+    
+    @Test
+    void testPutAllRoundTripsVectors() {
+        store.putAll(Map.of("a", new float[] {1f, -2.5f}));
+        
+        assertArrayEquals(new float[] {1f, -2.5f}, store.getAll(List.of("a", "missing")).get("a"));
+        assertEquals(1, store.getAll(List.of("a", "missing")).size());
+    }
+    
+    @Test
+    void testDuplicateKeyDoesNotDropTheRestOfTheBatch() {
+        store.putAll(Map.of("b", new float[] {2f}));
+        
+        Map<String, float[]> batch = new LinkedHashMap<>();
+        batch.put("a", new float[] {1f});
+        batch.put("b", new float[] {2f});
+        batch.put("c", new float[] {3f});
+        store.putAll(batch);
+        
+        Map<String, float[]> stored = store.getAll(List.of("a", "b", "c"));
+        assertEquals(3, stored.size());
+        assertArrayEquals(new float[] {1f}, stored.get("a"));
+        assertArrayEquals(new float[] {3f}, stored.get("c"));
+    }
+}
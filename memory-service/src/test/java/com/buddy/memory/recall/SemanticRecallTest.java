@@ -0,0 +1,114 @@
+package com.buddy.memory.recall;
+
+import com.buddy.common.memory.Message;
+import com.buddy.common.memory.MessageRole;
+import com.buddy.memory.repository.MessageRepository;
+import com.buddy.memory.service.MessagesPersistedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+class SemanticRecallTest {
+    
+    private final List<Message> stored = new ArrayList<>();
+    private final CountDownLatch loadReleased = new CountDownLatch(1);
+    private SemanticRecall semanticRecall;
+    
+    @BeforeEach
+    void setUp() {
+        MessageRepository messageRepository = mock(MessageRepository.class);
+        when(messageRepository.findRecentBySessionId(eq("s1"), any())).thenAnswer(invocation -> List.copyOf(stored));
+        when(messageRepository.findRecentBySessionId(eq("slow"), any())).thenAnswer(invocation -> {
+            loadReleased.await(5, TimeUnit.SECONDS);
+            return List.of(stored.get(0));
+        });
+        when(messageRepository.findAllById(anyIterable())).thenAnswer(invocation -> {
+            Collection<Long> ids = new ArrayList<>();
+            invocation.<Iterable<Long>>getArgument(0).forEach(ids::add);
+            return stored.stream().filter(m -> ids.contains(m.getId())).toList();
+        });
+        semanticRecall = new SemanticRecall(new HashingEmbedder(256), messageRepository, new SimpleMeterRegistry(),
+            true, 8, 50, 32, 1000, 10000, 100, 1);
+        
+        store(1, "My sister's birthday is on the 14th of March");
+        store(2, "Remind me to buy oat milk and bread");
+        store(3, "The deployment pipeline failed on the integration tests");
+    }
+    
+    @Test
+    void testRecallRanksTheRelevantMessageFirst() throws InterruptedException {
+        List<RecallHit> hits = recallWhenReady("s1", "when is my sister's birthday?", 2);
+        
+        assertEquals(2, hits.size());
+        assertEquals(1L, hits.get(0).getMessage().getId());
+        assertTrue(hits.get(0).getScore() > hits.get(1).getScore());
+    }
+    
+    @Test
+    void testRecallDoesNotWaitForTheIndexBuild() throws InterruptedException {
+        long start = System.nanoTime();
+        assertThrows(RecallNotReadyException.class,
+            () -> semanticRecall.recall("slow", "when is my sister's birthday?", 1));
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(1).toNanos());
+        
+        loadReleased.countDown();
+        assertEquals(1L, recallWhenReady("slow", "when is my sister's birthday?", 1).get(0).getMessage().getId());
+    }
+    
+    @Test
+    void testReadyIndexWithoutMatchesAnswersEmpty() throws InterruptedException {
+        stored.clear();
+        
+        assertTrue(recallWhenReady("s1", "when is my sister's birthday?", 1).isEmpty());
+    }
+    
+    @Test
+    void testPersistedMessagesAreAddedToLoadedIndex() throws InterruptedException {
+        recallWhenReady("s1", "warm up", 1);
+        Message message = store(4, "Flight to Lisbon departs at 7am on Friday");
+        
+        semanticRecall.onMessagesPersisted(new MessagesPersistedEvent(List.of(message)));
+        
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        List<RecallHit> hits = List.of();
+        while (System.nanoTime() < deadline) {
+            hits = semanticRecall.recall("s1", "flight to lisbon", 1);
+            if (!hits.isEmpty() && hits.get(0).getMessage().getId() == 4L) {
+                break;
+            }
+            Thread.sleep(10);
+        }
+        assertEquals(4L, hits.get(0).getMessage().getId());
+    }
+    
+    private List<RecallHit> recallWhenReady(String sessionId, String query, int k) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (true) {
+            try {
+                return semanticRecall.recall(sessionId, query, k);
+            } catch (RecallNotReadyException e) {
+                if (System.nanoTime() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(10);
+            }
+        }
+    }
+    
+    private Message store(long id, String content) {
+        Message message = new Message("s1", MessageRole.USER, content);
+        message.setId(id);
+        stored.add(message);
+        return message;
+    }
+}
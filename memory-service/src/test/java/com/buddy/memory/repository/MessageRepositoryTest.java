@@ -5,6 +5,7 @@ import com.buddy.common.memory.MessageRole;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ActiveProfiles;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -48,6 +49,28 @@ class MessageRepositoryTest {
         assertEquals("session-1", session1Messages.get(1).getSessionId());
     }
     
+    @Test
+    void testRecentMessagesAreLimitedAndPageable() {
+        OffsetDateTime base = OffsetDateTime.now().minusMinutes(10);
+        for (int i = 0; i < 5; i++) {
+            Message message = new Message("paged", MessageRole.USER, "Message " + i);
+            message.setCreatedAt(base.plusSeconds(i));
+            messageRepository.save(message);
+        }
+        
+        List<Message> latest = messageRepository.findBySessionIdOrderByCreatedAtDesc("paged", 2);
+        assertEquals(2, latest.size());
+        assertEquals("Message 4", latest.get(0).getContent());
+        assertEquals("Message 3", latest.get(1).getContent());
+        
+        Message cursor = latest.get(1);
+        List<Message> older = messageRepository.findRecentBySessionIdBefore(
+            "paged", cursor.getCreatedAt(), cursor.getId(), PageRequest.of(0, 10));
+        assertEquals(3, older.size());
+        assertEquals("Message 2", older.get(0).getContent());
+        assertEquals("Message 0", older.get(2).getContent());
+    }
+    
     @Test
     void testMessageRoleEnum() {
         Message userMessage = new Message("test", MessageRole.USER, "User message");
@@ -0,0 +1,183 @@
+package com.buddy.memory.service;
+
+import com.buddy.common.memory.Message;
+import com.buddy.common.memory.MessageRole;
+import com.buddy.memory.cache.SessionContextCache;
+import com.buddy.memory.repository.MessageRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+class MessageWriteBehindTest {
+    
+    private MessageRepository messageRepository;
+    private final List<Message> persisted = new CopyOnWriteArrayList<>();
+    private final AtomicInteger failuresLeft = new AtomicInteger();
+    private volatile String rejectedContent;
+    private volatile String invalidContent;
+    
+    @BeforeEach
+    void setUp() {
+        messageRepository = mock(MessageRepository.class);
+        when(messageRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Message> batch = invocation.getArgument(0);
+            if (batch.stream().anyMatch(m -> m.getContent().equals(invalidContent))) {
+                throw new DataIntegrityViolationException("check constraint violated");
+            }
+            if (failuresLeft.getAndUpdate(n -> Math.max(0, n - 1)) > 0
+                    || batch.stream().anyMatch(m -> m.getContent().equals(rejectedContent))) {
+                throw new DataAccessResourceFailureException("insert failed");
+            }
+            persisted.addAll(batch);
+            return batch;
+        });
+    }
+    
+    @Test
+    void testPendingMessagesAreVisibleAndFlushedOnStop() {
+        MessageWriteBehind writeBehind = writeBehind(10, Duration.ofSeconds(5));
+        writeBehind.start();
+        
+        Message message = new Message("s1", MessageRole.ASSISTANT, "Hi there");
+        writeBehind.enqueue(message);
+        List<Message> pending = writeBehind.pendingFor("s1");
+        writeBehind.stop();
+        
+        assertTrue(pending.isEmpty() || pending.contains(message));
+        assertEquals(List.of(message), persisted);
+        assertTrue(writeBehind.pendingFor("s1").isEmpty());
+    }
+    
+    @Test
+    void testAppendsBeforeStartArePersistedSynchronously() {
+        MessageWriteBehind writeBehind = writeBehind(100, Duration.ofMillis(20));
+        
+        for (int i = 0; i < 3; i++) {
+            writeBehind.enqueue(new Message("s1", MessageRole.TOOL, "Result " + i));
+        }
+        
+        assertEquals(3, persisted.size());
+        verify(messageRepository, times(3)).saveAll(anyList());
+        assertTrue(writeBehind.pendingFor("s1").isEmpty());
+    }
+    
+    @Test
+    void testFailedBatchIsRetried() {
+        failuresLeft.set(2);
+        MessageWriteBehind writeBehind = writeBehind(10, Duration.ofMillis(20));
+        writeBehind.start();
+        
+        Message message = new Message("s1", MessageRole.USER, "Retry me");
+        writeBehind.enqueue(message);
+        writeBehind.stop();
+        
+        assertEquals(List.of(message), persisted);
+        assertTrue(writeBehind.pendingFor("s1").isEmpty());
+    }
+    
+    @Test
+    void testRowThatKeepsFailingStaysPendingUntilItCanBeInserted() {
+        rejectedContent = "Bad row";
+        MessageWriteBehind writeBehind = writeBehind(10, Duration.ofMillis(20));
+        writeBehind.start();
+        
+        Message good = new Message("s1", MessageRole.USER, "Good row");
+        Message bad = new Message("s1", MessageRole.ASSISTANT, "Bad row");
+        Message alsoGood = new Message("s1", MessageRole.USER, "Another good row");
+        writeBehind.enqueue(good);
+        writeBehind.enqueue(bad);
+        writeBehind.enqueue(alsoGood);
+        
+        await(() -> persisted.containsAll(List.of(good, alsoGood)) && writeBehind.pendingFor("s1").equals(List.of(bad)));
+        assertFalse(persisted.contains(bad));
+        
+        rejectedContent = null;
+        await(() -> persisted.contains(bad));
+        writeBehind.stop();
+        assertTrue(writeBehind.pendingFor("s1").isEmpty());
+    }
+    
+    @Test
+    void testRowTheDatabaseRejectsIsDroppedNotParked() {
+        invalidContent = "Invalid row";
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        MessageWriteBehind writeBehind = writeBehind(10, Duration.ofMillis(20), meterRegistry, 100);
+        writeBehind.start();
+        
+        Message good = new Message("s1", MessageRole.USER, "Good row");
+        Message invalid = new Message("s1", MessageRole.ASSISTANT, "Invalid row");
+        writeBehind.enqueue(good);
+        writeBehind.enqueue(invalid);
+        
+        await(() -> persisted.contains(good) && writeBehind.pendingFor("s1").isEmpty());
+        writeBehind.stop();
+        assertFalse(persisted.contains(invalid));
+        assertEquals(1, meterRegistry.get("memory.writebehind.rejected").counter().count());
+        assertEquals(0, meterRegistry.get("memory.writebehind.deadlettered").counter().count());
+    }
+    
+    @Test
+    void testDeadLettersAreBounded() {
+        failuresLeft.set(Integer.MAX_VALUE);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        MessageWriteBehind writeBehind = writeBehind(1, Duration.ofMillis(20), meterRegistry, 2);
+        writeBehind.start();
+        
+        for (int i = 0; i < 4; i++) {
+            writeBehind.enqueue(new Message("s1", MessageRole.USER, "Row " + i));
+        }
+        
+        await(() -> meterRegistry.get("memory.writebehind.deadlettered").counter().count() == 4);
+        assertEquals(2, meterRegistry.get("memory.writebehind.deadletter.overflow").counter().count());
+        assertEquals(List.of("Row 2", "Row 3"), writeBehind.pendingFor("s1").stream().map(Message::getContent).toList());
+        failuresLeft.set(0);
+        writeBehind.stop();
+    }
+    
+    @Test
+    void testCreatedAtIsStampedOnEnqueue() {
+        MessageWriteBehind writeBehind = writeBehind(10, Duration.ofMillis(20));
+        Message message = new Message();
+        message.setSessionId("s1");
+        message.setRole(MessageRole.ASSISTANT);
+        message.setContent("No timestamp");
+        
+        writeBehind.enqueue(message);
+        
+        assertNotNull(message.getCreatedAt());
+    }
+    
+    private MessageWriteBehind writeBehind(int batchSize, Duration maxDelay) {
+        return writeBehind(batchSize, maxDelay, new SimpleMeterRegistry(), 100);
+    }
+    
+    private MessageWriteBehind writeBehind(int batchSize, Duration maxDelay, SimpleMeterRegistry meterRegistry,
+                                           int maxDeadLetters) {
+        SessionContextCache cache = new SessionContextCache(true, 100, 10, Duration.ofMinutes(1), new SimpleMeterRegistry());
+        TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+        return new MessageWriteBehind(messageRepository, cache, transactionTemplate, event -> {}, meterRegistry,
+            true, 100, batchSize, maxDelay, Duration.ofMillis(10), 2, Duration.ofMillis(1), Duration.ofMillis(50),
+            maxDeadLetters);
+    }
+    
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met in time");
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.buddy.memory.summary;
+
+import com.buddy.common.memory.HeuristicTokenCounter;
+import com.buddy.common.memory.Message;
+import com.buddy.common.memory.MessageRole;
+import com.buddy.common.memory.SessionSummary;
+import com.buddy.memory.repository.MessageRepository;
+import com.buddy.memory.repository.SessionSummaryRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+class SessionSummarizerTest {
+    
+    private static final OffsetDateTime START = OffsetDateTime.parse("2024-01-01T00:00:00Z");
+    
+    private MessageRepository messageRepository;
+    private SessionSummaryRepository summaryRepository;
+    private final List<Message> history = new ArrayList<>();
+    private final List<List<Message>> summarizedBatches = new ArrayList<>();
+    private SessionSummary stored;
+    private SessionSummarizer sessionSummarizer;
+    
+    @BeforeEach
+    void setUp() {
+        messageRepository = mock(MessageRepository.class);
+        summaryRepository = mock(SessionSummaryRepository.class);
+        when(messageRepository.findOldestBySessionId(eq("s1"), any())).thenAnswer(invocation ->
+            page(history, invocation.getArgument(1)));
+        when(messageRepository.findOldestBySessionIdAfter(eq("s1"), any(), anyLong(), any())).thenAnswer(invocation -> {
+            long afterId = invocation.getArgument(2);
+            return page(history.stream().filter(m -> m.getId() > afterId).toList(), invocation.getArgument(3));
+        });
+        when(summaryRepository.findById("s1")).thenAnswer(invocation -> Optional.ofNullable(stored));
+        when(summaryRepository.save(any())).thenAnswer(invocation -> stored = invocation.getArgument(0));
+        
+        // Stub summarizer: one "[n]" marker per folded message, appended to the previous summary
+        Summarizer summarizer = (previous, messages) -> {
+            summarizedBatches.add(List.copyOf(messages));
+            StringBuilder summary = new StringBuilder(previous);
+            messages.forEach(m -> summary.append('[').append(m.getId()).append(']'));
+            return summary.toString();
+        };
+        sessionSummarizer = new SessionSummarizer(messageRepository, summaryRepository, summarizer,
+            new HeuristicTokenCounter(), new TransactionTemplate(mock(PlatformTransactionManager.class)),
+            new SimpleMeterRegistry(), true, 3, 2, Duration.ofMillis(10), 100);
+    }
+    
+    @Test
+    void testShortSessionIsNotSummarized() {
+        addMessages(3);
+        
+        sessionSummarizer.fold("s1");
+        
+        verify(summaryRepository, never()).save(any());
+        assertTrue(sessionSummarizer.current("s1").isEmpty());
+    }
+    
+    @Test
+    void testMessagesBehindTheTailAreFoldedInBatches() {
+        addMessages(8);
+        
+        sessionSummarizer.fold("s1");
+        
+        // tail of 3 stays verbatim; the 5 older messages go in batches of at most 2
+        assertEquals(List.of(2, 2, 1), summarizedBatches.stream().map(List::size).toList());
+        assertEquals("[1][2][3][4][5]", stored.getContent());
+        assertEquals(5L, stored.getCoveredUntilId());
+        assertEquals(5, stored.getMessageCount());
+        assertTrue(stored.getTokenCount() > 0);
+        assertSame(stored, sessionSummarizer.current("s1").orElseThrow());
+    }
+    
+    @Test
+    void testNewMessagesAreFoldedIncrementally() {
+        addMessages(5);
+        sessionSummarizer.fold("s1");
+        summarizedBatches.clear();
+        
+        addMessages(2);
+        sessionSummarizer.fold("s1");
+        
+        // only the two messages that just left the tail are summarized, on top of the old summary
+        assertEquals(List.of(3L, 4L), summarizedBatches.get(0).stream().map(Message::getId).toList());
+        assertEquals("[1][2][3][4]", stored.getContent());
+        assertTrue(stored.covers(history.get(3)));
+        assertFalse(stored.covers(history.get(4)));
+    }
+    
+    private void addMessages(int count) {
+        for (int i = 0; i < count; i++) {
+            long id = history.size() + 1;
+            Message message = new Message("s1", id % 2 == 1 ? MessageRole.USER : MessageRole.ASSISTANT, "Message " + id);
+            message.setId(id);
+            message.setCreatedAt(START.plusSeconds(id));
+            history.add(message);
+        }
+    }
+    
+    private static List<Message> page(List<Message> messages, Pageable pageable) {
+        return messages.subList(0, Math.min(messages.size(), pageable.getPageSize()));
+    }
+}
@@ -2,9 +2,10 @@ package com.buddy.tools.controller;
 
 import com.buddy.tools.service.ToolCatalog;
 import com.buddy.common.tool.ToolResult;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import java.util.Map;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping("/api/tools")
@@ -18,8 +19,16 @@ public class ToolsController {
     }
     
     @GetMapping("/spec")
-    public ResponseEntity<Map<String, Object>> getToolsSpec() {
-        return ResponseEntity.ok(toolCatalog.getToolsSpecification());
+    public ResponseEntity<byte[]> getToolsSpec(WebRequest request) {
+        ToolCatalog.Snapshot snapshot = toolCatalog.getSnapshot();
+        if (request.checkNotModified(snapshot.getEtag())) {
+            // 304 with the ETag already set by checkNotModified
+            return null;
+        }
+        return ResponseEntity.ok()
+            .eTag(snapshot.getEtag())
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(snapshot.getJson());
     }
     
     @PostMapping("/execute/{name}")
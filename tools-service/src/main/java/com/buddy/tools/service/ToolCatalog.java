@@ -2,22 +2,49 @@ package com.buddy.tools.service;
 
 import com.buddy.common.tool.Tool;
 import com.buddy.common.tool.ToolResult;
+import com.buddy.common.tool.ToolSpec;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.stereotype.Service;
-import java.util.HashMap;
-import java.util.Map;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
 import java.util.List;
-import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import jakarta.annotation.PostConstruct;
 
 @Service
 public class ToolCatalog {
     
-    private final Map<String, Tool> tools = new HashMap<>();
+    private final Map<String, Tool> tools = new ConcurrentHashMap<>();
+    private final ObjectMapper objectMapper;
+    
+    // Rebuilt only when the registered tool set changes; served as-is to every /spec request
+    private volatile Snapshot snapshot;
+    
+    public ToolCatalog(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.snapshot = buildSnapshot();
+    }
     
     @PostConstruct
     public void initializeTools() {
-        tools.put("notes", new NotesTool());
-        tools.put("web_search", new WebSearchTool());
+        registerTool(new NotesTool());
+        registerTool(new WebSearchTool());
+    }
+    
+    public synchronized void registerTool(Tool tool) {
+        tools.put(tool.getName(), tool);
+        snapshot = buildSnapshot();
+    }
+    
+    public synchronized void unregisterTool(String toolName) {
+        if (tools.remove(toolName) != null) {
+            snapshot = buildSnapshot();
+        }
     }
     
     public ToolResult executeTool(String toolName, String input) {
@@ -33,19 +60,54 @@ public class ToolCatalog {
         }
     }
     
-    public Map<String, Object> getToolsSpecification() {
-        Map<String, Object> spec = new HashMap<>();
-        List<Map<String, String>> toolSpecs = new ArrayList<>();
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+    
+    private Snapshot buildSnapshot() {
+        // Sorted so the same tool set always serializes, and therefore hashes, identically
+        List<ToolSpec> specs = tools.values().stream()
+            .map(ToolSpec::of)
+            .sorted(Comparator.comparing(ToolSpec::getName))
+            .toList();
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(Map.of("tools", specs));
+            return new Snapshot(specs, json, etagOf(json));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize tool specification", e);
+        }
+    }
+    
+    private static String etagOf(byte[] json) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(json);
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    public static class Snapshot {
+        private final List<ToolSpec> tools;
+        private final byte[] json;
+        private final String etag;
+        
+        Snapshot(List<ToolSpec> tools, byte[] json, String etag) {
+            this.tools = tools;
+            this.json = json;
+            this.etag = etag;
+        }
         
-        for (Tool tool : tools.values()) {
-            Map<String, String> toolSpec = new HashMap<>();
-            toolSpec.put("name", tool.getName());
-            toolSpec.put("description", tool.getDescription());
-            toolSpec.put("inputSchema", tool.getInputSchema());
-            toolSpecs.add(toolSpec);
+        public List<ToolSpec> getTools() {
+            return tools;
         }
         
-        spec.put("tools", toolSpecs);
-        return spec;
+        public byte[] getJson() {
+            return json;
+        }
+        
+        public String getEtag() {
+            return etag;
+        }
     }
 }
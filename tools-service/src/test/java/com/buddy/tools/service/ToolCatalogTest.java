@@ -0,0 +1,56 @@
+package com.buddy.tools.service;
+
+import com.buddy.common.tool.Tool;
+import com.buddy.common.tool.ToolResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ToolCatalogTest {
+    
+    private ToolCatalog toolCatalog;
+    
+    @BeforeEach
+    void setUp() {
+        toolCatalog = new ToolCatalog(new ObjectMapper());
+        toolCatalog.initializeTools();
+    }
+    
+    @Test
+    void testSnapshotIsReusedUntilToolsChange() {
+        ToolCatalog.Snapshot first = toolCatalog.getSnapshot();
+        
+        assertSame(first, toolCatalog.getSnapshot());
+        assertEquals(2, first.getTools().size());
+        assertEquals("notes", first.getTools().get(0).getName());
+        assertTrue(first.getEtag().startsWith("\""));
+    }
+    
+    @Test
+    void testEtagChangesWithRegisteredTools() {
+        String before = toolCatalog.getSnapshot().getEtag();
+        
+        toolCatalog.registerTool(new EchoTool());
+        String after = toolCatalog.getSnapshot().getEtag();
+        toolCatalog.unregisterTool("echo");
+        
+        assertNotEquals(before, after);
+        assertEquals(before, toolCatalog.getSnapshot().getEtag());
+    }
+    
+    @Test
+    void testEtagIsStableAcrossInstances() {
+        ToolCatalog other = new ToolCatalog(new ObjectMapper());
+        other.initializeTools();
+        
+        assertEquals(toolCatalog.getSnapshot().getEtag(), other.getSnapshot().getEtag());
+    }
+    
+    private static class EchoTool implements Tool {
+        public String getName() { return "echo"; }
+        public String getDescription() { return "Echoes input"; }
+        public String getInputSchema() { return "String input"; }
+        public ToolResult execute(String input) { return ToolResult.success(input); }
+    }
+}